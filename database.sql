@@ -43,6 +43,7 @@ CREATE TABLE IF NOT EXISTS elections (
     start_date DATETIME NOT NULL,
     end_date DATETIME NOT NULL,
     status ENUM('pending', 'active', 'completed', 'cancelled') DEFAULT 'pending',
+    voting_method ENUM('single', 'ranked', 'multi_position') DEFAULT 'single',
     created_by INT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
@@ -93,11 +94,70 @@ CREATE TABLE IF NOT EXISTS votes (
     election_id INT NOT NULL,
     user_id INT NOT NULL,
     candidate_id INT NOT NULL,
+    -- Ranked ballots only: candidate IDs in preference order as packed 4-byte ints;
+    -- candidate_id holds the first preference
+    ranking VARBINARY(1024) NULL,
+    -- Multi-position ballots only: the position this choice is for; '' otherwise
+    position VARCHAR(100) NOT NULL DEFAULT '',
     voted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    CONSTRAINT unique_vote UNIQUE (election_id, user_id),
+    CONSTRAINT unique_vote UNIQUE (election_id, user_id, position),
     CONSTRAINT fk_vote_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE,
     CONSTRAINT fk_vote_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     CONSTRAINT fk_vote_candidate FOREIGN KEY (candidate_id) REFERENCES candidates(id) ON DELETE CASCADE
 );
 
-ALTER TABLE users ADD COLUMN last_login TIMESTAMP NULL;
+-- Create voter rolls table; each row is an inclusive range of eligible user IDs.
+-- Elections without any rows are open to every user.
+CREATE TABLE IF NOT EXISTS election_voter_rolls (
+    election_id INT NOT NULL,
+    first_user_id INT NOT NULL,
+    last_user_id INT NOT NULL,
+    PRIMARY KEY (election_id, first_user_id),
+    CONSTRAINT fk_roll_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
+
+-- Final results of completed elections, frozen when they close so finished elections are
+-- shown without counting votes again; one row per candidate in display order
+CREATE TABLE IF NOT EXISTS election_result_snapshots (
+    election_id INT NOT NULL,
+    position_order INT NOT NULL,
+    position_rank INT NOT NULL,
+    -- Group the candidate is ranked in: its position for multi-position elections, '' otherwise
+    position_group VARCHAR(100) NOT NULL,
+    candidate_id INT NOT NULL,
+    candidate_name VARCHAR(100) NOT NULL,
+    candidate_position VARCHAR(100) NOT NULL,
+    votes INT NOT NULL,
+    percentage DECIMAL(5,2) NOT NULL,
+    voters INT NOT NULL,
+    eligible_voters INT NOT NULL,
+    frozen_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (election_id, position_order, position_rank),
+    CONSTRAINT fk_snapshot_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
+
+-- Instant-runoff rounds of completed ranked-choice elections, frozen with their results;
+-- one row per round and candidate, in the tabulator's candidate order
+CREATE TABLE IF NOT EXISTS election_round_snapshots (
+    election_id INT NOT NULL,
+    round_number INT NOT NULL,
+    candidate_order INT NOT NULL,
+    candidate_id INT NOT NULL,
+    votes INT NOT NULL,
+    exhausted INT NOT NULL,
+    -- Candidate eliminated after the round, or -1; the winner is -1 for a tie
+    eliminated_candidate_id INT NOT NULL,
+    winner_id INT NOT NULL,
+    ballots INT NOT NULL,
+    PRIMARY KEY (election_id, round_number, candidate_order),
+    CONSTRAINT fk_round_snapshot_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
+
+-- Ballots per election and minute, counted when the ballot is recorded
+CREATE TABLE IF NOT EXISTS vote_turnout_buckets (
+    election_id INT NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    ballots INT NOT NULL,
+    PRIMARY KEY (election_id, bucket_start),
+    CONSTRAINT fk_turnout_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
@@ -1,5 +1,18 @@
 package com.example.vote;
 
+import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionScheduler;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.FxWatchdog;
+import com.example.vote.util.HealthMonitor;
+import com.example.vote.util.LoginThrottle;
+import com.example.vote.util.Metrics;
+import com.example.vote.util.OfflineVoteQueue;
+import com.example.vote.util.ReplicaRouter;
+import com.example.vote.util.StartupTimer;
+import com.example.vote.util.TurnoutBuckets;
+import com.example.vote.util.VoteJournal;
+import com.example.vote.util.VoterParticipation;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -15,6 +28,36 @@ public class VoteApplication extends Application {
         stage.setTitle("Voting System - Login");
         stage.setScene(scene);
         stage.show();
+        StartupTimer.markInteractive();
+        FxWatchdog.start();
+        FlightEvents.startRecording();
+        
+        // Load the election schedule and voter participation in the background
+        ElectionScheduler.start();
+        VoterParticipation.start();
+        VoteJournal.start();
+        OfflineVoteQueue.start();
+        TurnoutBuckets.start();
+        ReplicaRouter.start();
+        Metrics.start();
+        HealthMonitor.start();
+        LoginThrottle.start();
+    }
+    
+    @Override
+    public void stop() {
+        FxWatchdog.shutdown();
+        ElectionScheduler.shutdown();
+        VoterParticipation.shutdown();
+        OfflineVoteQueue.shutdown();
+        TurnoutBuckets.shutdown();
+        VoteJournal.shutdown();
+        ReplicaRouter.shutdown();
+        HealthMonitor.shutdown();
+        LoginThrottle.shutdown();
+        Metrics.shutdown();
+        DatabaseConnection.shutdown();
+        FlightEvents.stopRecording();
     }
 
     public static void main(String[] args) {
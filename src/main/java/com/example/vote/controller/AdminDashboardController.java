@@ -2,17 +2,29 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionScheduler;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.HealthMonitor;
+import com.example.vote.util.SqlStatistics;
 import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
@@ -24,9 +36,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.function.Function;
 
 public class AdminDashboardController implements Initializable {
 
@@ -48,6 +62,9 @@ public class AdminDashboardController implements Initializable {
     @FXML
     private Button settingsButton;
     
+    @FXML
+    private Button queryStatsButton;
+    
     @FXML
     private Text totalUsersText;
     
@@ -108,13 +125,13 @@ public class AdminDashboardController implements Initializable {
      * Update dashboard data from database
      */
     private void updateDashboardData() {
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             // Count total users
             int totalUsers = countUsers(conn);
             totalUsersText.setText(String.valueOf(totalUsers));
             
             // Count active elections
-            int activeElections = countActiveElections(conn);
+            int activeElections = countActiveElections();
             activeElectionsText.setText(String.valueOf(activeElections));
             
             // Count completed elections
@@ -129,9 +146,16 @@ public class AdminDashboardController implements Initializable {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             lastUpdateLabel.setText("Last Updated: " + LocalDateTime.now().format(formatter));
             
-            // Set system health based on database connectivity
-            systemHealthProgress.setProgress(1.0);
-            statusLabel.setText("System Ready");
+            // Set system health from the probe window and the measured signals
+            HealthMonitor.Health health = HealthMonitor.getHealth();
+            systemHealthProgress.setProgress(health.getScore());
+            systemHealthProgress.getStyleClass().remove("progress-red");
+            if (health.getScore() < 0.75) {
+                systemHealthProgress.getStyleClass().add("progress-red");
+            }
+            statusLabel.setText(health.getProblems().isEmpty()
+                    ? "System Ready"
+                    : "Attention: " + String.join(", ", health.getProblems()));
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -160,16 +184,9 @@ public class AdminDashboardController implements Initializable {
     /**
      * Count active elections in the system
      */
-    private int countActiveElections(Connection conn) throws SQLException {
-        // An election is active if its status is 'active' and current date is between start_date and end_date
-        String sql = "SELECT COUNT(*) FROM elections WHERE status = 'active' AND CURRENT_TIMESTAMP BETWEEN start_date AND end_date";
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-            return 0;
-        }
+    private int countActiveElections() throws SQLException {
+        // Open elections are tracked in memory by the scheduler as their start and end dates pass
+        return ElectionScheduler.countOpenElections();
     }
     
     /**
@@ -218,7 +235,7 @@ public class AdminDashboardController implements Initializable {
     @FXML
     private void handleUsers(ActionEvent event) {
         try {
-            Parent manageUsersParent = FXMLLoader.load(getClass().getResource("/com/example/vote/manage-users-view.fxml"));
+            Parent manageUsersParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/manage-users-view.fxml"));
             Scene manageUsersScene = new Scene(manageUsersParent);
             
             // Get the current stage
@@ -238,7 +255,7 @@ public class AdminDashboardController implements Initializable {
     @FXML
     private void handleElections(ActionEvent event) {
         try {
-            Parent manageElectionsParent = FXMLLoader.load(getClass().getResource("/com/example/vote/manage-elections-view.fxml"));
+            Parent manageElectionsParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/manage-elections-view.fxml"));
             Scene manageElectionsScene = new Scene(manageElectionsParent);
             
             // Get the current stage
@@ -258,7 +275,7 @@ public class AdminDashboardController implements Initializable {
     @FXML
     private void handleReports(ActionEvent event) {
         try {
-            Parent reportsParent = FXMLLoader.load(getClass().getResource("/com/example/vote/reports-view.fxml"));
+            Parent reportsParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/reports-view.fxml"));
             Scene reportsScene = new Scene(reportsParent);
             
             // Get the current stage
@@ -278,7 +295,7 @@ public class AdminDashboardController implements Initializable {
     @FXML
     private void handleSettings(ActionEvent event) {
         try {
-            Parent settingsParent = FXMLLoader.load(getClass().getResource("/com/example/vote/settings-view.fxml"));
+            Parent settingsParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/settings-view.fxml"));
             Scene settingsScene = new Scene(settingsParent);
             
             // Get the current stage
@@ -292,6 +309,64 @@ public class AdminDashboardController implements Initializable {
         }
     }
     
+    /**
+     * Handle button click to show the statements that spent the most time in the database
+     */
+    @FXML
+    private void handleQueryStats(ActionEvent event) {
+        TableView<SqlStatistics.StatementStats> table = new TableView<>(
+                FXCollections.observableArrayList(SqlStatistics.getTopStatements(25)));
+        table.setPrefSize(900, 350);
+        table.getColumns().add(statsColumn("Statement", 380, stats -> stats.getSql()));
+        table.getColumns().add(statsColumn("Count", 60, stats -> String.valueOf(stats.getExecutions())));
+        table.getColumns().add(statsColumn("Rows", 70, stats -> String.valueOf(stats.getRows())));
+        table.getColumns().add(statsColumn("Errors", 55, stats -> String.valueOf(stats.getErrors())));
+        table.getColumns().add(statsColumn("Total ms", 75, stats -> formatMillis(stats.getLatency().getTotal())));
+        table.getColumns().add(statsColumn("Mean ms", 65, stats -> formatMillis(stats.getLatency().getMean())));
+        table.getColumns().add(statsColumn("p95 ms", 60, stats -> formatMillis(stats.getLatency().getPercentile(95))));
+        table.getColumns().add(statsColumn("p99 ms", 60, stats -> formatMillis(stats.getLatency().getPercentile(99))));
+        table.getColumns().add(statsColumn("Max ms", 60, stats -> formatMillis(stats.getLatency().getMax())));
+        
+        StringBuilder slowQueries = new StringBuilder();
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm:ss");
+        for (SqlStatistics.SlowQuery query : SqlStatistics.getSlowQueries()) {
+            slowQueries.append(query.getTime().format(formatter)).append("  ")
+                    .append(query.getMillis()).append(" ms")
+                    .append(query.isFailed() ? " (failed)  " : "  ")
+                    .append(query.getSql()).append('\n');
+        }
+        TextArea slowQueryArea = new TextArea(slowQueries.length() > 0 ? slowQueries.toString() : "No slow queries recorded.");
+        slowQueryArea.setEditable(false);
+        slowQueryArea.setPrefHeight(150);
+        
+        VBox content = new VBox(10, table, new Label("Recent slow queries"), slowQueryArea);
+        
+        ButtonType resetButton = new ButtonType("Reset Statistics", ButtonBar.ButtonData.LEFT);
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, "", resetButton, ButtonType.CLOSE);
+        alert.setTitle("Query Statistics");
+        alert.setHeaderText("Statements by total database time since start");
+        alert.getDialogPane().setContent(content);
+        alert.setResizable(true);
+        
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isPresent() && result.get() == resetButton) {
+            SqlStatistics.reset();
+            statusLabel.setText("Query statistics reset");
+        }
+    }
+    
+    private TableColumn<SqlStatistics.StatementStats, String> statsColumn(String title, double width,
+            Function<SqlStatistics.StatementStats, String> value) {
+        TableColumn<SqlStatistics.StatementStats, String> column = new TableColumn<>(title);
+        column.setPrefWidth(width);
+        column.setCellValueFactory(cell -> new SimpleStringProperty(value.apply(cell.getValue())));
+        return column;
+    }
+    
+    private String formatMillis(double micros) {
+        return String.format("%.2f", micros / 1000.0);
+    }
+    
     /**
      * Handle logout button click
      */
@@ -304,7 +379,7 @@ public class AdminDashboardController implements Initializable {
             }
             
             // Navigate back to login screen
-            Parent loginParent = FXMLLoader.load(getClass().getResource("/com/example/vote/login-view.fxml"));
+            Parent loginParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/login-view.fxml"));
             Scene loginScene = new Scene(loginParent);
             
             Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
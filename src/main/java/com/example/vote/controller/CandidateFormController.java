@@ -3,6 +3,7 @@ package com.example.vote.controller;
 import com.example.vote.model.Candidate;
 import com.example.vote.model.Election;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.LiveResults;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
@@ -166,6 +167,7 @@ public class CandidateFormController implements Initializable {
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     candidate.setId(generatedKeys.getInt(1));
+                    LiveResults.bump(election.getId());
                     
                     // Close the form and refresh parent table
                     closeForm(true);
@@ -194,6 +196,8 @@ public class CandidateFormController implements Initializable {
             int affectedRows = stmt.executeUpdate();
             
             if (affectedRows == 1) {
+                LiveResults.bump(election.getId());
+                
                 // Close the form and refresh parent table
                 closeForm(true);
             } else {
@@ -2,6 +2,8 @@ package com.example.vote.controller;
 
 import com.example.vote.model.Election;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionScheduler;
+import com.example.vote.util.ResultsSnapshots;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -46,6 +48,9 @@ public class ElectionFormController implements Initializable {
     @FXML
     private ComboBox<String> statusCombo;
 
+    @FXML
+    private ComboBox<String> votingMethodCombo;
+
     @FXML
     private Label errorLabel;
 
@@ -89,6 +94,10 @@ public class ElectionFormController implements Initializable {
         statusCombo.setItems(FXCollections.observableArrayList("pending", "active", "completed", "cancelled"));
         statusCombo.setValue("pending");
         
+        // Populate voting method combo box
+        votingMethodCombo.setItems(FXCollections.observableArrayList("single", "ranked", "multi_position"));
+        votingMethodCombo.setValue("single");
+        
         // Default dates to today
         startDatePicker.setValue(LocalDate.now());
         endDatePicker.setValue(LocalDate.now().plusDays(7)); // Default end date to a week from now
@@ -132,6 +141,25 @@ public class ElectionFormController implements Initializable {
         }
         
         statusCombo.setValue(election.getStatus());
+        votingMethodCombo.setValue(election.getVotingMethod());
+        
+        // Ballots already cast must keep their shape
+        votingMethodCombo.setDisable(hasVotes());
+    }
+    
+    private boolean hasVotes() {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM votes WHERE election_id = ? LIMIT 1")) {
+            
+            stmt.setInt(1, election.getId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+            
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return true;
+        }
     }
     
     @FXML
@@ -159,6 +187,7 @@ public class ElectionFormController implements Initializable {
             election.setStartDate(startDateTime);
             election.setEndDate(endDateTime);
             election.setStatus(status);
+            election.setVotingMethod(votingMethodCombo.getValue());
             
             // Save to database
             if (isEditMode) {
@@ -211,7 +240,7 @@ public class ElectionFormController implements Initializable {
     private void createElection() {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO elections (title, description, start_date, end_date, status, created_by) VALUES (?, ?, ?, ?, ?, ?)",
+                     "INSERT INTO elections (title, description, start_date, end_date, status, voting_method, created_by) VALUES (?, ?, ?, ?, ?, ?, ?)",
                      Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, election.getTitle());
@@ -219,7 +248,8 @@ public class ElectionFormController implements Initializable {
             stmt.setTimestamp(3, Timestamp.valueOf(election.getStartDate()));
             stmt.setTimestamp(4, Timestamp.valueOf(election.getEndDate()));
             stmt.setString(5, election.getStatus());
-            stmt.setInt(6, election.getCreatedBy());
+            stmt.setString(6, election.getVotingMethod());
+            stmt.setInt(7, election.getCreatedBy());
             
             int affectedRows = stmt.executeUpdate();
             
@@ -227,6 +257,7 @@ public class ElectionFormController implements Initializable {
                 ResultSet generatedKeys = stmt.getGeneratedKeys();
                 if (generatedKeys.next()) {
                     election.setId(generatedKeys.getInt(1));
+                    scheduleElection();
                     
                     // Close the form and refresh parent table
                     closeForm(true);
@@ -244,18 +275,25 @@ public class ElectionFormController implements Initializable {
     private void updateElection() {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "UPDATE elections SET title = ?, description = ?, start_date = ?, end_date = ?, status = ? WHERE id = ?")) {
+                     "UPDATE elections SET title = ?, description = ?, start_date = ?, end_date = ?, status = ?, voting_method = ? WHERE id = ?")) {
             
             stmt.setString(1, election.getTitle());
             stmt.setString(2, election.getDescription());
             stmt.setTimestamp(3, Timestamp.valueOf(election.getStartDate()));
             stmt.setTimestamp(4, Timestamp.valueOf(election.getEndDate()));
             stmt.setString(5, election.getStatus());
-            stmt.setInt(6, election.getId());
+            stmt.setString(6, election.getVotingMethod());
+            stmt.setInt(7, election.getId());
             
             int affectedRows = stmt.executeUpdate();
             
             if (affectedRows == 1) {
+                if (!"completed".equals(election.getStatus())) {
+                    // Reopened or cancelled: results are no longer final
+                    ResultsSnapshots.invalidate(election.getId());
+                }
+                scheduleElection();
+                
                 // Close the form and refresh parent table
                 closeForm(true);
             } else {
@@ -268,6 +306,14 @@ public class ElectionFormController implements Initializable {
         }
     }
     
+    /**
+     * Let the scheduler open and close the election at its start and end dates
+     */
+    private void scheduleElection() {
+        ElectionScheduler.track(election.getId(), election.getTitle(),
+                election.getStartDate(), election.getEndDate(), election.getStatus());
+    }
+    
     @FXML
     private void handleCancel(ActionEvent event) {
         closeForm(false);
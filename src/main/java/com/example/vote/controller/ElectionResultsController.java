@@ -1,12 +1,22 @@
 package com.example.vote.controller;
 
 import com.example.vote.model.User;
+import com.example.vote.util.ChartData;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionTally;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.LiveResults;
+import com.example.vote.util.RankedBallots;
+import com.example.vote.util.RankedChoiceTabulator;
+import com.example.vote.util.ResultsSnapshots;
+import com.example.vote.util.TurnoutBuckets;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,6 +24,7 @@ import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.chart.LineChart;
 import javafx.scene.chart.PieChart;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
@@ -22,7 +33,13 @@ import java.io.IOException;
 import java.net.URL;
 import java.sql.*;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Timer;
+import java.util.TimerTask;
 
 public class ElectionResultsController implements Initializable {
 
@@ -47,6 +64,15 @@ public class ElectionResultsController implements Initializable {
     @FXML
     private PieChart votesPieChart;
 
+    @FXML
+    private LineChart<String, Number> turnoutChart;
+
+    @FXML
+    private TitledPane roundsPane;
+
+    @FXML
+    private TableView<RoundRow> roundsTableView;
+
     @FXML
     private Label totalVotesLabel;
 
@@ -69,6 +95,9 @@ public class ElectionResultsController implements Initializable {
     private ObservableList<CandidateResult> candidateResults = FXCollections.observableArrayList();
     private int totalVotes = 0;
     private int totalEligibleVoters = 0;
+    private boolean rankedChoice = false;
+    private boolean multiPosition = false;
+    private Timer turnoutTimer;
 
     /**
      * Inner class to represent candidate results
@@ -114,6 +143,27 @@ public class ElectionResultsController implements Initializable {
         }
     }
 
+    /**
+     * Inner class to represent one line of the instant-runoff rounds table
+     */
+    public static class RoundRow {
+        private final String name;
+        private final List<String> cells;
+
+        public RoundRow(String name, List<String> cells) {
+            this.name = name;
+            this.cells = cells;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCell(int round) {
+            return round < cells.size() ? cells.get(round) : "";
+        }
+    }
+
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
         // Configure table columns
@@ -150,17 +200,20 @@ public class ElectionResultsController implements Initializable {
      * Load election data and results
      */
     private void loadElectionData() {
-        try (Connection conn = DatabaseConnection.getConnection()) {
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
             // Get election details
-            String electionSql = "SELECT title, status, start_date, end_date FROM elections WHERE id = ?";
+            String electionSql = "SELECT title, status, start_date, end_date, voting_method FROM elections WHERE id = ?";
+            String status;
             try (PreparedStatement stmt = conn.prepareStatement(electionSql)) {
                 stmt.setInt(1, electionId);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
                         electionTitle = rs.getString("title");
-                        String status = rs.getString("status");
+                        status = rs.getString("status");
                         electionTitleLabel.setText(electionTitle);
                         statusLabel.setText(status);
+                        rankedChoice = "ranked".equalsIgnoreCase(rs.getString("voting_method"));
+                        multiPosition = "multi_position".equalsIgnoreCase(rs.getString("voting_method"));
                     } else {
                         statusLabel.setText("Election not found");
                         return;
@@ -168,11 +221,38 @@ public class ElectionResultsController implements Initializable {
                 }
             }
             
-            // Get candidate results
-            loadCandidateResults(conn);
+            // Get candidate results; completed elections show their frozen final results
+            FlightEvents.ResultsEvent results = FlightEvents.beginResults("results view", electionId);
+            RankedChoiceTabulator.Result frozenRounds = null;
+            if ("completed".equalsIgnoreCase(status)) {
+                ResultsSnapshots.Snapshot snapshot = ResultsSnapshots.getOrFreeze(electionId);
+                loadCandidateResults(snapshot.getPositions());
+                calculateTurnout(snapshot.getVoters(), snapshot.getEligibleVoters());
+                frozenRounds = snapshot.getRounds();
+            } else {
+                // Shared with other viewers until the next vote; multi-position elections rank per position
+                LiveResults.Results live = LiveResults.get(electionId, multiPosition);
+                loadCandidateResults(live.getPositions());
+                
+                // Turnout against the election's voter roll (or all voting users)
+                calculateTurnout(live.getVoters(), live.getEligibleVoters());
+            }
+            results.commit();
+            
+            // Keep the turnout chart current while voting is open
+            loadTurnoutSeries();
+            if ("active".equalsIgnoreCase(status)) {
+                startTurnoutTimer();
+            }
             
-            // Calculate turnout
-            calculateTurnout(conn);
+            // Show the elimination rounds for ranked-choice elections, frozen once the election completed
+            if (frozenRounds != null) {
+                roundsPane.setVisible(true);
+                roundsPane.setManaged(true);
+                showRounds(frozenRounds);
+            } else if (rankedChoice) {
+                tabulateRounds();
+            }
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -181,103 +261,173 @@ public class ElectionResultsController implements Initializable {
     }
 
     /**
-     * Load candidate results from the database
+     * Show candidate results, ranked within each position
      */
-    private void loadCandidateResults(Connection conn) throws SQLException {
+    private void loadCandidateResults(List<ElectionTally.PositionTally> positions) {
         candidateResults.clear();
         
-        // Query to get candidates with their vote counts, ordered by votes DESC
-        String sql = "SELECT c.id, c.name, COALESCE(COUNT(v.id), 0) AS vote_count " +
-                     "FROM candidates c " +
-                     "LEFT JOIN votes v ON c.id = v.candidate_id " +
-                     "WHERE c.election_id = ? " +
-                     "GROUP BY c.id " +
-                     "ORDER BY vote_count DESC";
+        totalVotes = 0;
         
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, electionId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                // First, sum up total votes
-                totalVotes = 0;
-                
-                // Create a temporary list to store results before calculating percentages
-                ObservableList<CandidateResult> tempResults = FXCollections.observableArrayList();
+        for (ElectionTally.PositionTally position : positions) {
+            totalVotes += (int) position.getTotalVotes();
+            
+            int rank = 1;
+            for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                int voteCount = (int) candidate.getVotes();
+                String name = multiPosition ? candidate.getName() + " - " + position.getPosition() : candidate.getName();
                 
-                int rank = 1;
-                while (rs.next()) {
-                    int candidateId = rs.getInt("id");
-                    String name = rs.getString("name");
-                    int voteCount = rs.getInt("vote_count");
-                    
-                    // Accumulate total votes
-                    totalVotes += voteCount;
-                    
-                    // Store the result (without percentage for now)
-                    tempResults.add(new CandidateResult(rank++, candidateId, name, voteCount, 0));
+                // Percentages are within the candidate's position
+                double percentage = position.getTotalVotes() == 0 ? 0 : (voteCount * 100.0 / position.getTotalVotes());
+                candidateResults.add(new CandidateResult(rank++, candidate.getCandidateId(), name, voteCount, percentage));
+            }
+        }
+        
+        // Update total votes label
+        totalVotesLabel.setText(String.valueOf(totalVotes));
+        
+        // Update table view
+        candidatesTableView.setItems(candidateResults);
+        
+        // Update the pie chart in place, largest candidates first and the rest as "Others"
+        List<ChartData.Entry> labelled = new ArrayList<>();
+        for (ChartData.ResultSlice slice : ChartData.resultSlices(positions, multiPosition)) {
+            labelled.add(slice.withVotesAndShare());
+        }
+        ChartData.updatePie(votesPieChart, labelled);
+        votesPieChart.setTitle("Vote Distribution");
+    }
+
+    /**
+     * Tabulate the ranked ballots in the background and show each round
+     */
+    private void tabulateRounds() {
+        roundsPane.setVisible(true);
+        roundsPane.setManaged(true);
+        roundsPane.setText("Instant-Runoff Rounds (counting...)");
+        
+        Task<RankedChoiceTabulator.Result> tabulation = new Task<>() {
+            @Override
+            protected RankedChoiceTabulator.Result call() throws Exception {
+                FlightEvents.ResultsEvent results = FlightEvents.beginResults("ranked choice tabulation", electionId);
+                RankedBallots ballots;
+                try (Connection conn = DatabaseConnection.getReadConnection()) {
+                    ballots = RankedBallots.load(conn, electionId);
                 }
-                
-                // Update total votes label
-                totalVotesLabel.setText(String.valueOf(totalVotes));
-                
-                // Now calculate percentages and add to actual results list
-                ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
-                
-                for (CandidateResult result : tempResults) {
-                    // Calculate percentage
-                    double percentage = totalVotes == 0 ? 0 : (result.getVoteCount() * 100.0 / totalVotes);
-                    
-                    // Add to results with percentage
-                    candidateResults.add(new CandidateResult(
-                            result.getRank(),
-                            result.getCandidateId(),
-                            result.getName(),
-                            result.getVoteCount(),
-                            percentage
-                    ));
-                    
-                    // Add to pie chart data if votes > 0
-                    if (result.getVoteCount() > 0) {
-                        pieChartData.add(new PieChart.Data(result.getName() + " (" + result.getVoteCount() + ")", result.getVoteCount()));
-                    }
+                RankedChoiceTabulator.Result result = RankedChoiceTabulator.tabulate(ballots);
+                results.commit();
+                return result;
+            }
+        };
+        
+        tabulation.setOnSucceeded(event -> showRounds(tabulation.getValue()));
+        tabulation.setOnFailed(event -> {
+            Throwable error = tabulation.getException();
+            error.printStackTrace();
+            roundsPane.setText("Instant-Runoff Rounds (error: " + error.getMessage() + ")");
+        });
+        
+        Thread thread = new Thread(tabulation, "rcv-tabulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Fill the rounds table with one column per round
+     */
+    private void showRounds(RankedChoiceTabulator.Result result) {
+        Map<Integer, String> names = new HashMap<>();
+        for (CandidateResult candidate : candidateResults) {
+            names.put(candidate.getCandidateId(), candidate.getName());
+        }
+        
+        int[] candidateIds = result.getCandidateIds();
+        List<RankedChoiceTabulator.Round> rounds = result.getRounds();
+        List<List<String>> cells = new ArrayList<>();
+        for (int i = 0; i <= candidateIds.length; i++) {
+            cells.add(new ArrayList<>());
+        }
+        
+        boolean[] out = new boolean[candidateIds.length];
+        for (RankedChoiceTabulator.Round round : rounds) {
+            long[] tallies = round.getTallies();
+            for (int i = 0; i < candidateIds.length; i++) {
+                if (out[i]) {
+                    cells.get(i).add("");
+                } else if (candidateIds[i] == round.getEliminatedCandidateId()) {
+                    cells.get(i).add(tallies[i] + " (out)");
+                    out[i] = true;
+                } else {
+                    cells.get(i).add(String.valueOf(tallies[i]));
                 }
-                
-                // Update table view
-                candidatesTableView.setItems(candidateResults);
-                
-                // Update pie chart
-                votesPieChart.setData(pieChartData);
-                votesPieChart.setTitle("Vote Distribution");
-                
-                // Add visible labels to pie chart slices
-                pieChartData.forEach(data -> {
-                    data.nameProperty().bind(
-                            new SimpleStringProperty(data.getName() + " (" + 
-                            new DecimalFormat("0.0%").format(data.getPieValue() / totalVotes) + ")")
-                    );
-                });
             }
+            cells.get(candidateIds.length).add(String.valueOf(round.getExhausted()));
+        }
+        
+        ObservableList<RoundRow> rows = FXCollections.observableArrayList();
+        for (int i = 0; i < candidateIds.length; i++) {
+            rows.add(new RoundRow(names.getOrDefault(candidateIds[i], "#" + candidateIds[i]), cells.get(i)));
+        }
+        rows.add(new RoundRow("Exhausted", cells.get(candidateIds.length)));
+        
+        TableColumn<RoundRow, String> candidateColumn = new TableColumn<>("Candidate");
+        candidateColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getName()));
+        roundsTableView.getColumns().setAll(List.of(candidateColumn));
+        for (int r = 0; r < rounds.size(); r++) {
+            final int round = r;
+            TableColumn<RoundRow, String> roundColumn = new TableColumn<>("Round " + (round + 1));
+            roundColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getCell(round)));
+            roundsTableView.getColumns().add(roundColumn);
         }
+        roundsTableView.setItems(rows);
+        
+        String outcome = result.getWinnerId() < 0
+                ? "tie"
+                : "winner " + names.getOrDefault(result.getWinnerId(), "#" + result.getWinnerId());
+        roundsPane.setText("Instant-Runoff Rounds: " + outcome + " after " + rounds.size() +
+                (rounds.size() == 1 ? " round" : " rounds"));
     }
 
     /**
      * Calculate voter turnout
      */
-    private void calculateTurnout(Connection conn) throws SQLException {
-        // Get total eligible voters (all users with role 'user')
-        String sql = "SELECT COUNT(*) FROM users WHERE role = 'user'";
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                totalEligibleVoters = rs.getInt(1);
-            }
-        }
+    private void calculateTurnout(int voters, int eligibleVoters) {
+        totalEligibleVoters = eligibleVoters;
         
-        // Calculate turnout percentage
-        double turnout = totalEligibleVoters == 0 ? 0 : (totalVotes * 100.0 / totalEligibleVoters);
+        // Calculate turnout percentage from the distinct voters in this election
+        double turnout = totalEligibleVoters == 0 ? 0 : (voters * 100.0 / totalEligibleVoters);
         DecimalFormat df = new DecimalFormat("0.0%");
         turnoutLabel.setText(df.format(turnout / 100));
     }
 
+    /**
+     * Show ballots over time from the election's turnout buckets
+     */
+    private void loadTurnoutSeries() {
+        try {
+            ChartData.updateTurnout(turnoutChart, TurnoutBuckets.load(electionId));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            statusLabel.setText("Error loading turnout over time: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Set up a timer to refresh the turnout chart
+     */
+    private void startTurnoutTimer() {
+        if (turnoutTimer != null) {
+            return;
+        }
+        turnoutTimer = new Timer(true);
+        turnoutTimer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                // Update UI on the JavaFX Application Thread
+                Platform.runLater(() -> loadTurnoutSeries());
+            }
+        }, 30000, 30000); // Update every 30 seconds
+    }
+
     /**
      * Handle refresh button click
      */
@@ -291,9 +441,13 @@ public class ElectionResultsController implements Initializable {
      */
     @FXML
     private void handleBack(ActionEvent event) {
+        if (turnoutTimer != null) {
+            turnoutTimer.cancel();
+            turnoutTimer = null;
+        }
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource(returnView));
-            Parent parent = loader.load();
+            Parent parent = FlightEvents.loadScreen(loader);
             
             if (returnView.endsWith("user-elections-view.fxml")) {
                 UserElectionsController controller = loader.getController();
@@ -1,6 +1,7 @@
 package com.example.vote.controller;
 
 import com.example.vote.util.EmailService;
+import com.example.vote.util.FlightEvents;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -54,7 +55,7 @@ public class ForgotPasswordController {
             try {
                 // Load reset password screen
                 FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/reset-password-view.fxml"));
-                Parent resetPasswordParent = loader.load();
+                Parent resetPasswordParent = FlightEvents.loadScreen(loader);
                 
                 // Pass email to reset password controller
                 ResetPasswordController controller = loader.getController();
@@ -80,7 +81,7 @@ public class ForgotPasswordController {
     @FXML
     private void switchToLogin(ActionEvent event) {
         try {
-            Parent loginParent = FXMLLoader.load(getClass().getResource("/com/example/vote/login-view.fxml"));
+            Parent loginParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/login-view.fxml"));
             Scene loginScene = new Scene(loginParent);
             
             // Get the current stage
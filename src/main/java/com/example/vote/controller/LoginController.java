@@ -2,6 +2,9 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.LoginThrottle;
+import com.example.vote.util.Metrics;
 import com.example.vote.util.PasswordHash;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -20,6 +23,9 @@ import java.sql.SQLException;
 
 public class LoginController {
 
+    private static final Metrics.Timer LOGIN_TIME = Metrics.timer("vote_login_seconds", "Time to check a username and password");
+    private static final Metrics.Counter LOGIN_FAILURES = Metrics.counter("vote_login_failures_total", "Logins rejected for a wrong username or password");
+
     @FXML
     private TextField usernameField;
     
@@ -53,12 +59,26 @@ public class LoginController {
             return;
         }
         
+        // Refuse repeated guessing before spending time on the password hash
+        if (LoginThrottle.isBlocked(username)) {
+            messageLabel.setText("Too many failed login attempts. Please try again later.");
+            return;
+        }
+        
         // Try to authenticate user
         try {
+            long start = System.nanoTime();
+            FlightEvents.LoginEvent loginEvent = new FlightEvents.LoginEvent();
+            loginEvent.begin();
             User user = authenticateUser(username, password);
+            LOGIN_TIME.recordSince(start);
+            loginEvent.username = username;
+            loginEvent.succeeded = user != null;
+            loginEvent.commit();
             
             if (user != null) {
                 // Successful login
+                LoginThrottle.recordSuccess(username);
                 if (user.isAdmin()) {
                     // Load admin dashboard
                     loadAdminDashboard(event, user);
@@ -68,6 +88,8 @@ public class LoginController {
                 }
             } else {
                 // Failed login
+                LOGIN_FAILURES.increment();
+                LoginThrottle.recordFailure(username);
                 messageLabel.setText("Invalid username or password!");
             }
         } catch (SQLException e) {
@@ -104,6 +126,27 @@ public class LoginController {
         }
     }
     
+    /**
+     * Re-hashes a password stored with a lower workload, e.g. by a bulk import
+     * @param userId The ID of the user to update
+     * @param password The verified plain text password
+     */
+    private void upgradePasswordHash(int userId, String password) {
+        String sql = "UPDATE users SET password = ? WHERE id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, PasswordHash.hashPassword(password));
+            stmt.setInt(2, userId);
+            stmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("Failed to upgrade password hash: " + e.getMessage());
+            // Non-critical error, the old hash still verifies
+        }
+    }
+    
     private User authenticateUser(String username, String password) throws SQLException {
         // First, retrieve the user by username only
         String sql = "SELECT * FROM users WHERE username = ?";
@@ -129,6 +172,9 @@ public class LoginController {
                         
                         // Now that we've read everything we need, we can close the ResultSet and update the login timestamp
                         updateLastLoginTimestamp(userId);
+                        if (PasswordHash.needsRehash(storedHashedPassword)) {
+                            upgradePasswordHash(userId, password);
+                        }
                         
                         // Create and return user object with the data we read earlier
                         User user = new User();
@@ -154,7 +200,7 @@ public class LoginController {
      */
     private void loadAdminDashboard(ActionEvent event, User user) throws IOException {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
-        Parent dashboardParent = loader.load();
+        Parent dashboardParent = FlightEvents.loadScreen(loader);
         
         // Get the controller and pass the user object
         AdminDashboardController controller = loader.getController();
@@ -174,7 +220,7 @@ public class LoginController {
      */
     private void loadUserDashboard(ActionEvent event, User user) throws IOException {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-dashboard.fxml"));
-        Parent dashboardParent = loader.load();
+        Parent dashboardParent = FlightEvents.loadScreen(loader);
         
         // Get the controller and pass the user object
         UserDashboardController controller = loader.getController();
@@ -192,7 +238,7 @@ public class LoginController {
     @FXML
     private void switchToSignup(ActionEvent event) {
         try {
-            Parent signupParent = FXMLLoader.load(getClass().getResource("/com/example/vote/signup-view.fxml"));
+            Parent signupParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/signup-view.fxml"));
             Scene signupScene = new Scene(signupParent);
             
             // Get the current stage
@@ -210,7 +256,7 @@ public class LoginController {
     @FXML
     private void switchToForgotPassword(ActionEvent event) {
         try {
-            Parent forgotPasswordParent = FXMLLoader.load(getClass().getResource("/com/example/vote/forgot-password-view.fxml"));
+            Parent forgotPasswordParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/forgot-password-view.fxml"));
             Scene forgotPasswordScene = new Scene(forgotPasswordParent);
             
             // Get the current stage
@@ -3,9 +3,13 @@ package com.example.vote.controller;
 import com.example.vote.model.Candidate;
 import com.example.vote.model.Election;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionTemplates;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.LiveResults;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,12 +18,17 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -59,6 +68,9 @@ public class ManageCandidatesController implements Initializable {
     
     @FXML
     private Button addCandidateButton;
+
+    @FXML
+    private Button importCandidatesButton;
     
     @FXML
     private Button backButton;
@@ -254,6 +266,60 @@ public class ManageCandidatesController implements Initializable {
         showCandidateDialog(null);
     }
     
+    @FXML
+    private void handleImportCandidates(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Select Candidates CSV (name,position[,profile,photo_url])");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+            new FileChooser.ExtensionFilter("All Files", "*.*")
+        );
+        
+        File selectedFile = fileChooser.showOpenDialog(candidateTable.getScene().getWindow());
+        if (selectedFile != null) {
+            importCandidates(selectedFile);
+        }
+    }
+    
+    private void importCandidates(File file) {
+        Task<ElectionTemplates.ImportResult> importTask = new Task<>() {
+            @Override
+            protected ElectionTemplates.ImportResult call() throws Exception {
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    return ElectionTemplates.importCandidates(election.getId(), reader);
+                }
+            }
+        };
+        
+        importTask.setOnSucceeded(event -> {
+            importCandidatesButton.setDisable(false);
+            ElectionTemplates.ImportResult result = importTask.getValue();
+            if (result.getImported() > 0) {
+                // New candidates change the results of an open election
+                LiveResults.bump(election.getId());
+            }
+            loadCandidates();
+            String message = "Imported " + result.getImported() + " candidates";
+            if (!result.getErrors().isEmpty()) {
+                message += ", " + result.getErrors().size() + " rows skipped (e.g. " + result.getErrors().get(0) + ")";
+            }
+            statusLabel.setText(message);
+        });
+        
+        importTask.setOnFailed(event -> {
+            importCandidatesButton.setDisable(false);
+            Throwable error = importTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Error importing candidates: " + error.getMessage());
+        });
+        
+        importCandidatesButton.setDisable(true);
+        statusLabel.setText("Importing candidates...");
+        Thread thread = new Thread(importTask, "candidate-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
     private void handleEditCandidate(Candidate candidate) {
         showCandidateDialog(candidate);
     }
@@ -289,6 +355,7 @@ public class ManageCandidatesController implements Initializable {
                 int rowsAffected = stmt.executeUpdate();
                 
                 if (rowsAffected > 0) {
+                    LiveResults.bump(election.getId());
                     statusLabel.setText("Candidate deleted successfully!");
                     loadCandidates(); // Refresh the table
                 } else {
@@ -316,7 +383,7 @@ public class ManageCandidatesController implements Initializable {
     private void showCandidateDialog(Candidate existingCandidate, boolean readOnly) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/candidate-form-view.fxml"));
-            Parent candidateForm = loader.load();
+            Parent candidateForm = FlightEvents.loadScreen(loader);
             
             CandidateFormController controller = loader.getController();
             controller.initData(existingCandidate, election, this, readOnly);
@@ -2,9 +2,15 @@ package com.example.vote.controller;
 
 import com.example.vote.model.Election;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionScheduler;
+import com.example.vote.util.ElectionTemplates;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.VoterParticipation;
+import com.example.vote.util.VoterRolls;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,13 +20,19 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
@@ -119,7 +131,9 @@ public class ManageElectionsController implements Initializable {
                     private final Button editButton = new Button("Edit");
                     private final Button deleteButton = new Button("Delete");
                     private final Button candidatesButton = new Button("Candidates");
-                    private final HBox buttonsBox = new HBox(5, editButton, candidatesButton, deleteButton);
+                    private final Button votersButton = new Button("Voters");
+                    private final Button cloneButton = new Button("Clone");
+                    private final HBox buttonsBox = new HBox(5, editButton, candidatesButton, votersButton, cloneButton, deleteButton);
                     
                     {
                         // Setup Edit button
@@ -136,6 +150,20 @@ public class ManageElectionsController implements Initializable {
                             handleManageCandidates(election);
                         });
                         
+                        // Setup Voters button
+                        votersButton.setStyle("-fx-background-color: #9C27B0; -fx-text-fill: white;");
+                        votersButton.setOnAction(event -> {
+                            Election election = getTableView().getItems().get(getIndex());
+                            handleManageVoterRoll(election);
+                        });
+                        
+                        // Setup Clone button
+                        cloneButton.setStyle("-fx-background-color: #607D8B; -fx-text-fill: white;");
+                        cloneButton.setOnAction(event -> {
+                            Election election = getTableView().getItems().get(getIndex());
+                            handleCloneElection(election);
+                        });
+                        
                         // Setup Delete button
                         deleteButton.setStyle("-fx-background-color: #F44336; -fx-text-fill: white;");
                         deleteButton.setOnAction(event -> {
@@ -175,6 +203,7 @@ public class ManageElectionsController implements Initializable {
                 election.setStartDate(rs.getTimestamp("start_date").toLocalDateTime());
                 election.setEndDate(rs.getTimestamp("end_date").toLocalDateTime());
                 election.setStatus(rs.getString("status"));
+                election.setVotingMethod(rs.getString("voting_method"));
                 election.setCreatedBy(rs.getInt("created_by"));
                 
                 Timestamp createdAt = rs.getTimestamp("created_at");
@@ -272,7 +301,7 @@ public class ManageElectionsController implements Initializable {
     private void handleManageCandidates(Election election) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/manage-candidates-view.fxml"));
-            Parent root = loader.load();
+            Parent root = FlightEvents.loadScreen(loader);
             
             ManageCandidatesController controller = loader.getController();
             controller.initData(election);
@@ -293,6 +322,132 @@ public class ManageElectionsController implements Initializable {
         }
     }
     
+    private void handleManageVoterRoll(Election election) {
+        String rollDescription;
+        try {
+            int eligible = VoterRolls.countEligible(election.getId());
+            rollDescription = VoterRolls.hasRoll(election.getId())
+                    ? "This election is restricted to a voter roll of " + eligible + " voters."
+                    : "This election is open to all " + eligible + " voters.";
+        } catch (SQLException e) {
+            e.printStackTrace();
+            statusLabel.setText("Error loading voter roll: " + e.getMessage());
+            return;
+        }
+        
+        ButtonType importButton = new ButtonType("Import Roll...");
+        ButtonType openButton = new ButtonType("Open to All");
+        Alert dialog = new Alert(Alert.AlertType.CONFIRMATION, "", importButton, openButton, ButtonType.CANCEL);
+        dialog.setTitle("Voter Roll");
+        dialog.setHeaderText("Voter Roll - " + election.getTitle());
+        dialog.setContentText(rollDescription + "\n\nImport a text file with one user ID, ID range " +
+                "(e.g. 1000-1999) or username per line to replace the roll.");
+        
+        Optional<ButtonType> choice = dialog.showAndWait();
+        if (choice.isEmpty() || choice.get() == ButtonType.CANCEL) {
+            return;
+        }
+        
+        if (choice.get() == openButton) {
+            try {
+                VoterRolls.clearRoll(election.getId());
+                statusLabel.setText("Election " + election.getTitle() + " is now open to all voters");
+            } catch (SQLException e) {
+                e.printStackTrace();
+                statusLabel.setText("Error clearing voter roll: " + e.getMessage());
+            }
+            return;
+        }
+        
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Select Voter Roll");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Text Files", "*.txt", "*.csv"),
+            new FileChooser.ExtensionFilter("All Files", "*.*")
+        );
+        
+        File selectedFile = fileChooser.showOpenDialog(electionTable.getScene().getWindow());
+        if (selectedFile != null) {
+            importVoterRoll(election, selectedFile);
+        }
+    }
+    
+    private void importVoterRoll(Election election, File file) {
+        // Large rolls take a while to parse and store, so keep it off the FX thread
+        Task<VoterRolls.ImportResult> importTask = new Task<>() {
+            @Override
+            protected VoterRolls.ImportResult call() throws Exception {
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    return VoterRolls.importRoll(election.getId(), reader);
+                }
+            }
+        };
+        
+        importTask.setOnSucceeded(event -> {
+            VoterRolls.ImportResult result = importTask.getValue();
+            String message = "Imported voter roll for " + election.getTitle() + ": " +
+                    result.getEligibleCount() + " voters in " + result.getRangeCount() + " ranges";
+            if (!result.getRejectedEntries().isEmpty()) {
+                message += ", " + result.getRejectedEntries().size() + " entries skipped (e.g. " +
+                        result.getRejectedEntries().get(0) + ")";
+            }
+            statusLabel.setText(message);
+        });
+        
+        importTask.setOnFailed(event -> {
+            Throwable error = importTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Error importing voter roll: " + error.getMessage());
+        });
+        
+        statusLabel.setText("Importing voter roll for " + election.getTitle() + "...");
+        Thread thread = new Thread(importTask, "voter-roll-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void handleCloneElection(Election election) {
+        TextInputDialog dialog = new TextInputDialog("Copy of " + election.getTitle());
+        dialog.setTitle("Clone Election");
+        dialog.setHeaderText("Clone " + election.getTitle());
+        dialog.setContentText("Title of the new election:");
+        
+        Optional<String> titleResult = dialog.showAndWait();
+        if (titleResult.isEmpty() || titleResult.get().trim().isEmpty()) {
+            return;
+        }
+        String title = titleResult.get().trim();
+        
+        // The copy starts tomorrow at the original time of day and runs for as long as the original
+        LocalDateTime startDate = LocalDateTime.now().plusDays(1).with(election.getStartDate().toLocalTime());
+        LocalDateTime endDate = startDate.plus(Duration.between(election.getStartDate(), election.getEndDate()));
+        
+        Task<Integer> cloneTask = new Task<>() {
+            @Override
+            protected Integer call() throws Exception {
+                return ElectionTemplates.cloneElection(election.getId(), title, startDate, endDate);
+            }
+        };
+        
+        cloneTask.setOnSucceeded(event -> {
+            ElectionScheduler.track(cloneTask.getValue(), title, startDate, endDate, "pending");
+            loadElections();
+            statusLabel.setText("Created " + title + " from " + election.getTitle() +
+                    ", starting " + startDate.format(dateFormatter));
+        });
+        
+        cloneTask.setOnFailed(event -> {
+            Throwable error = cloneTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Error cloning election: " + error.getMessage());
+        });
+        
+        statusLabel.setText("Cloning " + election.getTitle() + "...");
+        Thread thread = new Thread(cloneTask, "election-clone");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
     private void handleDeleteElection(Election election) {
         // Check if the election has associated votes
         try (Connection conn = DatabaseConnection.getConnection();
@@ -336,6 +491,8 @@ public class ManageElectionsController implements Initializable {
                 int rowsAffected = electionStmt.executeUpdate();
                 
                 if (rowsAffected > 0) {
+                    ElectionScheduler.remove(election.getId());
+                    VoterParticipation.removeElection(election.getId());
                     statusLabel.setText("Election deleted successfully!");
                     loadElections(); // Refresh the table
                 } else {
@@ -359,7 +516,7 @@ public class ManageElectionsController implements Initializable {
     private void showElectionDialog(Election existingElection) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/election-form-view.fxml"));
-            Parent electionForm = loader.load();
+            Parent electionForm = FlightEvents.loadScreen(loader);
             
             ElectionFormController controller = loader.getController();
             controller.initData(existingElection, this);
@@ -387,7 +544,7 @@ public class ManageElectionsController implements Initializable {
     @FXML
     private void handleBackToAdminDashboard(ActionEvent event) {
         try {
-            Parent adminDashboardParent = FXMLLoader.load(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
+            Parent adminDashboardParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
             Scene adminDashboardScene = new Scene(adminDashboardParent);
             
             // Get the current stage
@@ -2,11 +2,16 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.FlightEvents;
 import com.example.vote.util.PasswordHash;
+import com.example.vote.util.UserImporter;
+import com.example.vote.util.VoterParticipation;
+import com.example.vote.util.VoterRolls;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -17,12 +22,17 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -65,6 +75,9 @@ public class ManageUsersController implements Initializable {
     @FXML
     private Button addUserButton;
 
+    @FXML
+    private Button importUsersButton;
+
     @FXML
     private Button backButton;
 
@@ -250,6 +263,79 @@ public class ManageUsersController implements Initializable {
         showUserDialog(null);
     }
     
+    @FXML
+    private void handleImportUsers(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Select Users CSV (username,password,fullname,email[,role])");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("CSV Files", "*.csv"),
+            new FileChooser.ExtensionFilter("All Files", "*.*")
+        );
+        
+        File selectedFile = fileChooser.showOpenDialog(userTable.getScene().getWindow());
+        if (selectedFile != null) {
+            importUsers(selectedFile);
+        }
+    }
+    
+    private void importUsers(File file) {
+        // Hashing thousands of passwords takes a while, so keep it off the FX thread
+        Task<UserImporter.ImportResult> importTask = new Task<>() {
+            @Override
+            protected UserImporter.ImportResult call() throws Exception {
+                try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                    return UserImporter.importUsers(reader, (rowsRead, rowsImported) ->
+                            updateMessage(String.format("Importing users... %d rows read, %d imported",
+                                    rowsRead, rowsImported)));
+                }
+            }
+        };
+        
+        statusLabel.textProperty().bind(importTask.messageProperty());
+        importTask.setOnSucceeded(event -> {
+            statusLabel.textProperty().unbind();
+            importUsersButton.setDisable(false);
+            UserImporter.ImportResult result = importTask.getValue();
+            statusLabel.setText(String.format("Imported %d users, %d rows skipped",
+                    result.getImported(), result.getErrors().size()));
+            loadUsers();
+            if (!result.getErrors().isEmpty()) {
+                showImportErrors(result);
+            }
+        });
+        
+        importTask.setOnFailed(event -> {
+            statusLabel.textProperty().unbind();
+            importUsersButton.setDisable(false);
+            Throwable error = importTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Error importing users: " + error.getMessage());
+        });
+        
+        importUsersButton.setDisable(true);
+        Thread thread = new Thread(importTask, "user-import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void showImportErrors(UserImporter.ImportResult result) {
+        StringBuilder report = new StringBuilder();
+        for (UserImporter.RowError error : result.getErrors()) {
+            report.append(error).append('\n');
+        }
+        
+        TextArea textArea = new TextArea(report.toString());
+        textArea.setEditable(false);
+        textArea.setWrapText(false);
+        textArea.setPrefSize(600, 300);
+        
+        Alert alert = new Alert(Alert.AlertType.WARNING);
+        alert.setTitle("Import Users");
+        alert.setHeaderText(result.getErrors().size() + " rows could not be imported");
+        alert.getDialogPane().setContent(textArea);
+        alert.showAndWait();
+    }
+    
     private void handleEditUser(User user) {
         showUserDialog(user);
     }
@@ -288,6 +374,10 @@ public class ManageUsersController implements Initializable {
                 int rowsAffected = stmt.executeUpdate();
                 
                 if (rowsAffected > 0) {
+                    // The user's votes were removed by the cascade
+                    VoterParticipation.removeUser(user.getId());
+                    VoterRolls.removeUser(user.getId());
+                    VoterRolls.invalidateUserCount();
                     statusLabel.setText("User deleted successfully!");
                     loadUsers(); // Refresh the table
                 } else {
@@ -311,7 +401,7 @@ public class ManageUsersController implements Initializable {
     private void showUserDialog(User existingUser) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-form-view.fxml"));
-            Parent userForm = loader.load();
+            Parent userForm = FlightEvents.loadScreen(loader);
             
             UserFormController controller = loader.getController();
             controller.initData(existingUser, this);
@@ -339,7 +429,7 @@ public class ManageUsersController implements Initializable {
     @FXML
     private void handleBackToAdminDashboard(ActionEvent event) {
         try {
-            Parent adminDashboardParent = FXMLLoader.load(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
+            Parent adminDashboardParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
             Scene adminDashboardScene = new Scene(adminDashboardParent);
             
             // Get the current stage
@@ -2,26 +2,40 @@ package com.example.vote.controller;
 
 import com.example.vote.model.Election;
 import com.example.vote.model.Candidate;
+import com.example.vote.util.ChartData;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionAnalytics;
+import com.example.vote.util.ElectionTally;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.LiveResults;
+import com.example.vote.util.ReportExporter;
+import com.example.vote.util.ResultsSnapshots;
+import com.example.vote.util.TurnoutBuckets;
+import com.example.vote.util.VoteJournalVerifier;
+import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.chart.BarChart;
 import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.PieChart;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.Connection;
@@ -29,7 +43,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ReportsController implements Initializable {
 
@@ -42,9 +63,21 @@ public class ReportsController implements Initializable {
     @FXML
     private Button exportPdfButton;
 
+    @FXML
+    private Button exportCsvButton;
+
+    @FXML
+    private Button verifyJournalButton;
+
+    @FXML
+    private Button analyticsButton;
+
     @FXML
     private Button backButton;
 
+    @FXML
+    private ProgressBar exportProgressBar;
+
     @FXML
     private Text totalVotesText;
 
@@ -72,6 +105,9 @@ public class ReportsController implements Initializable {
     @FXML
     private BarChart<String, Number> candidateVotesBarChart;
 
+    @FXML
+    private LineChart<String, Number> turnoutTimeChart;
+
     @FXML
     private CategoryAxis xAxis;
 
@@ -104,7 +140,8 @@ public class ReportsController implements Initializable {
 
     private ObservableList<Election> elections;
     private ObservableList<CandidateResult> candidateResults;
-    private int totalUsersCount;
+    private Election reportElection;
+    private List<ElectionTally.PositionTally> reportPositions;
     
     // Custom class to hold candidate result data
     public static class CandidateResult {
@@ -141,11 +178,9 @@ public class ReportsController implements Initializable {
         // Load elections into combo box
         loadElections();
         
-        // Count total users for potential turnout calculation
-        countTotalUsers();
-        
-        // Set export button disabled initially
+        // Set export buttons disabled initially
         exportPdfButton.setDisable(true);
+        exportCsvButton.setDisable(true);
         
         // Set up election selection handler
         electionComboBox.setOnAction(event -> {
@@ -158,9 +193,9 @@ public class ReportsController implements Initializable {
     private void loadElections() {
         elections = FXCollections.observableArrayList();
         
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT id, title, description, start_date, end_date, status, created_by FROM elections")) {
+                     "SELECT id, title, description, start_date, end_date, status, voting_method, created_by FROM elections")) {
             
             ResultSet rs = stmt.executeQuery();
             
@@ -172,6 +207,7 @@ public class ReportsController implements Initializable {
                 election.setStartDate(rs.getTimestamp("start_date").toLocalDateTime());
                 election.setEndDate(rs.getTimestamp("end_date").toLocalDateTime());
                 election.setStatus(rs.getString("status"));
+                election.setVotingMethod(rs.getString("voting_method"));
                 election.setCreatedBy(rs.getInt("created_by"));
                 
                 elections.add(election);
@@ -193,22 +229,6 @@ public class ReportsController implements Initializable {
         }
     }
     
-    private void countTotalUsers() {
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM users")) {
-            
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                totalUsersCount = rs.getInt(1);
-            }
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            statusLabel.setText("Error counting users: " + e.getMessage());
-        }
-    }
-
     @FXML
     private void handleGenerateReport(ActionEvent event) {
         Election selectedElection = electionComboBox.getValue();
@@ -219,6 +239,8 @@ public class ReportsController implements Initializable {
         }
         
         try {
+            FlightEvents.ResultsEvent results = FlightEvents.beginResults("report", selectedElection.getId());
+            
             // Load election details
             loadElectionDetails(selectedElection);
             
@@ -228,8 +250,14 @@ public class ReportsController implements Initializable {
             // Generate charts
             generateCharts(selectedElection);
             
-            // Enable export button
+            // Ballots over time from the turnout buckets
+            ChartData.updateTurnout(turnoutTimeChart, TurnoutBuckets.load(selectedElection.getId()));
+            results.commit();
+            
+            // Enable export buttons
+            reportElection = selectedElection;
             exportPdfButton.setDisable(false);
+            exportCsvButton.setDisable(false);
             
             statusLabel.setText("Report generated successfully");
             
@@ -252,7 +280,7 @@ public class ReportsController implements Initializable {
         electionStatusText.setText(election.getStatus());
         
         // Get created by user name
-        try (Connection conn = DatabaseConnection.getConnection();
+        try (Connection conn = DatabaseConnection.getReadConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "SELECT fullname FROM users WHERE id = ?")) {
             
@@ -270,122 +298,357 @@ public class ReportsController implements Initializable {
     private void loadCandidateResults(Election election) throws SQLException {
         candidateResults = FXCollections.observableArrayList();
         
-        int totalVotes = 0;
+        long totalVotes = 0;
+        int distinctVoters;
+        int eligibleVoters;
         
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT c.id, c.name, c.position, c.votes " +
-                     "FROM candidates c " +
-                     "WHERE c.election_id = ? " +
-                     "ORDER BY c.votes DESC")) {
-            
-            stmt.setInt(1, election.getId());
-            ResultSet rs = stmt.executeQuery();
+        if ("completed".equalsIgnoreCase(election.getStatus())) {
+            // Final results were frozen when the election closed
+            ResultsSnapshots.Snapshot snapshot = ResultsSnapshots.getOrFreeze(election.getId());
+            reportPositions = snapshot.getPositions();
+            distinctVoters = snapshot.getVoters();
+            eligibleVoters = snapshot.getEligibleVoters();
+        } else {
+            // Shared with the results screen; multi-position elections are ranked per position
+            LiveResults.Results live = LiveResults.get(election.getId(), election.isMultiPosition());
+            reportPositions = live.getPositions();
+            distinctVoters = live.getVoters();
+            eligibleVoters = live.getEligibleVoters();
+        }
+        
+        for (ElectionTally.PositionTally position : reportPositions) {
+            totalVotes += position.getTotalVotes();
             
             int rank = 1;
-            while (rs.next()) {
-                String name = rs.getString("name");
-                String position = rs.getString("position");
-                int votes = rs.getInt("votes");
-                
-                totalVotes += votes;
-                
-                candidateResults.add(new CandidateResult(rank, name, position, votes, "0%"));
-                rank++;
-            }
-            
-            // Calculate percentages
-            if (totalVotes > 0) {
-                for (CandidateResult result : candidateResults) {
-                    double percentage = (double) result.getVotes() / totalVotes * 100;
-                    String percentageStr = String.format("%.1f%%", percentage);
-                    
-                    // Update the percentage (we're creating a new object because the fields are final)
-                    int index = candidateResults.indexOf(result);
-                    candidateResults.set(index, new CandidateResult(
-                            result.getRank(), 
-                            result.getName(),
-                            result.getPosition(),
-                            result.getVotes(),
-                            percentageStr
-                    ));
-                }
-            }
-            
-            // Update table
-            resultsTableView.setItems(candidateResults);
-            
-            // Update summary stats
-            totalVotesText.setText(String.valueOf(totalVotes));
-            
-            // Calculate turnout
-            if (totalUsersCount > 0) {
-                double turnoutPercentage = 0;
+            for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                // Percentages are within the candidate's position
+                String percentageStr = position.getTotalVotes() > 0
+                        ? String.format("%.1f%%", (double) candidate.getVotes() / position.getTotalVotes() * 100)
+                        : "0%";
                 
-                // Count distinct voters for this election
-                try (PreparedStatement votersStmt = conn.prepareStatement(
-                        "SELECT COUNT(DISTINCT user_id) FROM votes WHERE election_id = ?")) {
-                    
-                    votersStmt.setInt(1, election.getId());
-                    ResultSet votersRs = votersStmt.executeQuery();
-                    
-                    if (votersRs.next()) {
-                        int distinctVoters = votersRs.getInt(1);
-                        turnoutPercentage = (double) distinctVoters / totalUsersCount * 100;
-                    }
-                }
-                
-                voterTurnoutText.setText(String.format("%.1f%%", turnoutPercentage));
-            } else {
-                voterTurnoutText.setText("N/A");
+                candidateResults.add(new CandidateResult(
+                        rank++,
+                        candidate.getName(),
+                        candidate.getPosition(),
+                        (int) candidate.getVotes(),
+                        percentageStr
+                ));
             }
+        }
+        
+        // Update table
+        resultsTableView.setItems(candidateResults);
+        
+        // Update summary stats
+        totalVotesText.setText(String.valueOf(totalVotes));
+        
+        // Calculate turnout against the election's eligible voters
+        if (eligibleVoters > 0) {
+            double turnoutPercentage = (double) distinctVoters / eligibleVoters * 100;
             
+            voterTurnoutText.setText(String.format("%.1f%%", turnoutPercentage));
+        } else {
+            voterTurnoutText.setText("N/A");
         }
     }
     
     private void generateCharts(Election election) {
-        // Clear previous chart data
-        voteDistributionPieChart.getData().clear();
-        candidateVotesBarChart.getData().clear();
+        boolean byPosition = election.isMultiPosition();
         
-        if (candidateResults.isEmpty()) {
+        // Update the charts in place; beyond the largest candidates the rest are shown as "Others".
+        // The pie is labelled like the results screen and the PDF export.
+        List<ChartData.Entry> slices = new ArrayList<>();
+        for (ChartData.ResultSlice slice : ChartData.resultSlices(reportPositions, byPosition)) {
+            slices.add(slice.withVotesAndShare());
+        }
+        Map<String, List<ChartData.Entry>> barsByPosition = new LinkedHashMap<>();
+        for (ElectionTally.PositionTally position : reportPositions) {
+            List<ChartData.Entry> bars = new ArrayList<>();
+            for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                bars.add(new ChartData.Entry(String.valueOf(candidate.getCandidateId()), candidate.getName(), candidate.getVotes()));
+            }
+            
+            // One series per position for multi-position elections
+            String seriesName = byPosition ? position.getPosition() : "Votes";
+            barsByPosition.computeIfAbsent(seriesName, name -> new ArrayList<>())
+                    .addAll(ChartData.topN(bars, ChartData.TOP_N));
+        }
+        
+        ChartData.updatePie(voteDistributionPieChart, slices);
+        voteDistributionPieChart.setTitle("Vote Distribution");
+        ChartData.updateBars(candidateVotesBarChart, barsByPosition);
+    }
+
+    @FXML
+    private void handleExportPdf(ActionEvent event) {
+        if (reportElection == null || reportPositions == null) {
+            statusLabel.setText("Please generate a report first");
             return;
         }
         
-        // Generate pie chart
-        ObservableList<PieChart.Data> pieChartData = FXCollections.observableArrayList();
-        for (CandidateResult result : candidateResults) {
-            pieChartData.add(new PieChart.Data(result.getName(), result.getVotes()));
+        File file = chooseExportFile("Export Report to PDF", "PDF Files", "*.pdf", ".pdf");
+        if (file == null) {
+            return;
         }
-        voteDistributionPieChart.setData(pieChartData);
-        voteDistributionPieChart.setTitle("Vote Distribution");
         
-        // Generate bar chart
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName("Votes");
+        // Capture the report as shown; the export itself runs off the FX thread
+        ReportExporter.ReportSummary summary = new ReportExporter.ReportSummary(
+                electionTitleLabel.getText(),
+                electionDescriptionLabel.getText(),
+                electionDatesLabel.getText(),
+                electionStatusText.getText(),
+                electionCreatedByLabel.getText(),
+                voterTurnoutText.getText(),
+                reportPositions);
         
-        for (CandidateResult result : candidateResults) {
-            series.getData().add(new XYChart.Data<>(result.getName(), result.getVotes()));
+        Task<Void> exportTask = new Task<>() {
+            @Override
+            protected Void call() throws Exception {
+                ReportExporter.exportPdf(summary, file.toPath(), this::updateProgress);
+                return null;
+            }
+        };
+        runExport(exportTask, "Exporting report to " + file.getName() + "...",
+                () -> "Report exported to " + file.getAbsolutePath());
+    }
+    
+    @FXML
+    private void handleExportCsv(ActionEvent event) {
+        if (reportElection == null) {
+            statusLabel.setText("Please generate a report first");
+            return;
+        }
+        
+        File file = chooseExportFile("Export Votes to CSV", "CSV Files", "*.csv", ".csv");
+        if (file == null) {
+            return;
         }
         
-        candidateVotesBarChart.getData().add(series);
+        int electionId = reportElection.getId();
+        Task<Long> exportTask = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return ReportExporter.exportVotesCsv(electionId, file.toPath(), this::updateProgress);
+            }
+        };
+        runExport(exportTask, "Exporting votes to " + file.getName() + "...",
+                () -> "Exported " + exportTask.getValue() + " votes to " + file.getAbsolutePath());
+    }
+    
+    private File chooseExportFile(String title, String description, String pattern, String extension) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(title);
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(description, pattern));
+        fileChooser.setInitialFileName(reportElection.getTitle().replaceAll("[^A-Za-z0-9_-]+", "_") + extension);
+        return fileChooser.showSaveDialog(exportPdfButton.getScene().getWindow());
+    }
+    
+    /**
+     * Run an export in the background, showing its progress in the status bar
+     */
+    private void runExport(Task<?> exportTask, String startMessage, Supplier<String> doneMessage) {
+        exportPdfButton.setDisable(true);
+        exportCsvButton.setDisable(true);
+        exportProgressBar.progressProperty().bind(exportTask.progressProperty());
+        exportProgressBar.setVisible(true);
+        statusLabel.setText(startMessage);
+        
+        exportTask.setOnSucceeded(e -> {
+            finishExport();
+            statusLabel.setText(doneMessage.get());
+        });
+        exportTask.setOnFailed(e -> {
+            finishExport();
+            Throwable error = exportTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Export failed: " + error.getMessage());
+        });
+        
+        Thread thread = new Thread(exportTask, "report-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void finishExport() {
+        exportProgressBar.progressProperty().unbind();
+        exportProgressBar.setVisible(false);
+        exportPdfButton.setDisable(false);
+        exportCsvButton.setDisable(false);
     }
 
     @FXML
-    private void handleExportPdf(ActionEvent event) {
-        // This would implement PDF export functionality
-        // For now, just show a message
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Export to PDF");
-        alert.setHeaderText("Export Feature");
-        alert.setContentText("PDF export functionality will be implemented in a future version.");
+    private void handleVerifyJournal(ActionEvent event) {
+        // Replaying the whole journal reads every vote, so keep it off the FX thread
+        Task<VoteJournalVerifier.Result> verifyTask = new Task<>() {
+            @Override
+            protected VoteJournalVerifier.Result call() throws Exception {
+                return VoteJournalVerifier.verify();
+            }
+        };
+        
+        verifyTask.setOnSucceeded(e -> {
+            verifyJournalButton.setDisable(false);
+            showJournalVerification(verifyTask.getValue());
+        });
+        verifyTask.setOnFailed(e -> {
+            verifyJournalButton.setDisable(false);
+            Throwable error = verifyTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Journal verification failed: " + error.getMessage());
+        });
+        
+        verifyJournalButton.setDisable(true);
+        statusLabel.setText("Verifying vote journal...");
+        Thread thread = new Thread(verifyTask, "journal-verify");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    @FXML
+    private void handleAnalytics(ActionEvent event) {
+        runAnalytics(false);
+    }
+    
+    private void runAnalytics(boolean refresh) {
+        // One pass over every vote; cached afterwards, but the first run is too slow for the FX thread
+        Task<ElectionAnalytics.Report> analyticsTask = new Task<>() {
+            @Override
+            protected ElectionAnalytics.Report call() throws Exception {
+                return ElectionAnalytics.get(refresh);
+            }
+        };
+        
+        analyticsTask.setOnSucceeded(e -> {
+            analyticsButton.setDisable(false);
+            statusLabel.setText("Analytics ready");
+            showAnalytics(analyticsTask.getValue());
+        });
+        analyticsTask.setOnFailed(e -> {
+            analyticsButton.setDisable(false);
+            Throwable error = analyticsTask.getException();
+            error.printStackTrace();
+            statusLabel.setText("Analytics failed: " + error.getMessage());
+        });
+        
+        analyticsButton.setDisable(true);
+        statusLabel.setText("Computing analytics...");
+        Thread thread = new Thread(analyticsTask, "analytics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void showAnalytics(ElectionAnalytics.Report report) {
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        
+        // Turnout trend and votes per election
+        LineChart<String, Number> turnoutChart = new LineChart<>(new CategoryAxis(), new NumberAxis(0, 100, 10));
+        turnoutChart.setTitle("Turnout by Election (%)");
+        turnoutChart.setLegendVisible(false);
+        turnoutChart.setAnimated(false);
+        turnoutChart.setPrefHeight(250);
+        XYChart.Series<String, Number> turnoutSeries = new XYChart.Series<>();
+        for (ElectionAnalytics.ElectionStats stats : report.getElections()) {
+            turnoutSeries.getData().add(new XYChart.Data<>(stats.getTitle() + " #" + stats.getElectionId(), stats.getTurnout()));
+        }
+        turnoutChart.getData().add(turnoutSeries);
+        
+        TableView<ElectionAnalytics.ElectionStats> electionTable = new TableView<>(
+                FXCollections.observableArrayList(report.getElections()));
+        electionTable.setPrefHeight(200);
+        electionTable.getColumns().add(analyticsColumn("Election", 220, stats -> stats.getTitle()));
+        electionTable.getColumns().add(analyticsColumn("Start", 90, stats -> stats.getStartDate().format(dateFormatter)));
+        electionTable.getColumns().add(analyticsColumn("Status", 80, stats -> stats.getStatus()));
+        electionTable.getColumns().add(analyticsColumn("Voters", 70, stats -> String.valueOf(stats.getVoters())));
+        electionTable.getColumns().add(analyticsColumn("Choices", 70, stats -> String.valueOf(stats.getChoices())));
+        electionTable.getColumns().add(analyticsColumn("Eligible", 70, stats -> String.valueOf(stats.getEligibleVoters())));
+        electionTable.getColumns().add(analyticsColumn("Turnout", 70, stats -> String.format("%.1f%%", stats.getTurnout())));
+        electionTable.getColumns().add(analyticsColumn("Change", 70, stats -> Double.isNaN(stats.getTurnoutChange())
+                ? "" : String.format("%+.1f pts", stats.getTurnoutChange())));
+        
+        // How many elections each user voted in
+        BarChart<String, Number> participationChart = new BarChart<>(new CategoryAxis(), new NumberAxis());
+        participationChart.setTitle("Users by Number of Elections Voted In");
+        participationChart.setLegendVisible(false);
+        participationChart.setAnimated(false);
+        XYChart.Series<String, Number> participationSeries = new XYChart.Series<>();
+        for (int i = 0; i <= ElectionAnalytics.MAX_PARTICIPATION_BUCKET; i++) {
+            String bucket = i == ElectionAnalytics.MAX_PARTICIPATION_BUCKET ? i + "+" : String.valueOf(i);
+            participationSeries.getData().add(new XYChart.Data<>(bucket, report.getUsersVotingIn(i)));
+        }
+        participationChart.getData().add(participationSeries);
+        Label participationLabel = new Label(String.format("%d of %d voters took part in at least one election (%.1f%%)",
+                report.getParticipants(), report.getVotingUsers(), report.getParticipationRate()));
+        
+        // Repeat voters by the election they first voted in
+        TableView<ElectionAnalytics.Cohort> cohortTable = new TableView<>(
+                FXCollections.observableArrayList(report.getCohorts()));
+        cohortTable.getColumns().add(analyticsColumn("First Election", 260, cohort -> cohort.getTitle()));
+        cohortTable.getColumns().add(analyticsColumn("New Voters", 90, cohort -> String.valueOf(cohort.getNewVoters())));
+        cohortTable.getColumns().add(analyticsColumn("Voted Again", 90, cohort -> String.valueOf(cohort.getReturned())));
+        cohortTable.getColumns().add(analyticsColumn("Return Rate", 90, cohort -> String.format("%.1f%%", cohort.getReturnRate())));
+        
+        TabPane tabs = new TabPane(
+                new Tab("Turnout", new VBox(10, turnoutChart, electionTable)),
+                new Tab("Participation", new VBox(10, participationChart, participationLabel)),
+                new Tab("Repeat Voters", cohortTable));
+        tabs.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+        tabs.setPrefSize(850, 500);
+        
+        ButtonType recomputeButton = new ButtonType("Recompute", ButtonBar.ButtonData.LEFT);
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, "", recomputeButton, ButtonType.CLOSE);
+        alert.setTitle("Cross-Election Analytics");
+        alert.setHeaderText(String.format("%d elections, %d vote rows scanned in %d ms at %s",
+                report.getElections().size(), report.getRowsScanned(), report.getComputeMillis(),
+                report.getComputedAt().format(DateTimeFormatter.ofPattern("HH:mm:ss"))));
+        alert.getDialogPane().setContent(tabs);
+        alert.setResizable(true);
+        
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isPresent() && result.get() == recomputeButton) {
+            runAnalytics(true);
+        }
+    }
+    
+    private <T> TableColumn<T, String> analyticsColumn(String title, double width, Function<T, String> value) {
+        TableColumn<T, String> column = new TableColumn<>(title);
+        column.setPrefWidth(width);
+        column.setCellValueFactory(cell -> new SimpleStringProperty(value.apply(cell.getValue())));
+        return column;
+    }
+    
+    private void showJournalVerification(VoteJournalVerifier.Result result) {
+        boolean consistent = result.isChainIntact() && result.getMismatches().isEmpty();
+        statusLabel.setText(String.format("Vote journal: %d records, %s", result.getRecordCount(),
+                consistent ? "consistent with vote counts" : "problems found"));
+        
+        StringBuilder details = new StringBuilder();
+        details.append(result.isChainIntact()
+                ? "Hash chain intact.\n"
+                : "Hash chain broken at record " + result.getFirstBrokenSequence() + ".\n");
+        if (result.getMismatches().isEmpty()) {
+            details.append("Every candidate's vote count matches the journal.\n");
+        } else {
+            details.append(result.getMismatches().size()).append(" candidates differ from the journal:\n");
+            for (VoteJournalVerifier.Mismatch mismatch : result.getMismatches()) {
+                details.append(mismatch).append('\n');
+            }
+        }
+        
+        TextArea textArea = new TextArea(details.toString());
+        textArea.setEditable(false);
+        textArea.setPrefSize(500, 250);
+        
+        Alert alert = new Alert(consistent ? Alert.AlertType.INFORMATION : Alert.AlertType.WARNING);
+        alert.setTitle("Vote Journal");
+        alert.setHeaderText(result.getRecordCount() + " journal records verified");
+        alert.getDialogPane().setContent(textArea);
         alert.showAndWait();
     }
 
     @FXML
     private void handleBack(ActionEvent event) {
         try {
-            Parent adminDashboardParent = FXMLLoader.load(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
+            Parent adminDashboardParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
             Scene adminDashboardScene = new Scene(adminDashboardParent);
             
             Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
@@ -1,10 +1,10 @@
 package com.example.vote.controller;
 
 import com.example.vote.util.EmailService;
+import com.example.vote.util.FlightEvents;
 import com.example.vote.util.PasswordHash;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -128,7 +128,7 @@ public class ResetPasswordController {
     @FXML
     private void switchToLogin(ActionEvent event) {
         try {
-            Parent loginParent = FXMLLoader.load(getClass().getResource("/com/example/vote/login-view.fxml"));
+            Parent loginParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/login-view.fxml"));
             Scene loginScene = new Scene(loginParent);
             
             // Get the current stage
@@ -1,10 +1,12 @@
 package com.example.vote.controller;
 
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.HealthMonitor;
+import com.example.vote.util.LoginThrottle;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Parent;
@@ -216,6 +218,7 @@ public class SettingsController implements Initializable {
             settings.put("date_format", dateFormatComboBox.getValue());
             
             stmt.close();
+            LoginThrottle.setEnabled(enableIpBlockingCheckbox.isSelected());
             statusLabel.setText("Settings saved successfully");
             hasChanges = false;
             
@@ -258,12 +261,21 @@ public class SettingsController implements Initializable {
 
     @FXML
     private void handleTestConnection(ActionEvent event) {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            statusLabel.setText("Database connection successful!");
-        } catch (SQLException e) {
-            e.printStackTrace();
-            statusLabel.setText("Database connection failed: " + e.getMessage());
+        HealthMonitor.Sample sample = HealthMonitor.probeNow();
+        if (!sample.isReachable()) {
+            statusLabel.setText("Database connection failed: " + sample.getError());
+            return;
         }
+        StringBuilder message = new StringBuilder(
+                String.format("Database connection successful! Round trip %.1f ms", sample.getRoundTripMillis()));
+        if (sample.getConnectionsUsed() >= 0 && sample.getMaxConnections() > 0) {
+            message.append(", ").append(sample.getConnectionsUsed()).append(" of ")
+                    .append(sample.getMaxConnections()).append(" connections in use");
+        }
+        if (sample.getLockWaits() > 0) {
+            message.append(", ").append(sample.getLockWaits()).append(" transactions waiting for locks");
+        }
+        statusLabel.setText(message.toString());
     }
 
     @FXML
@@ -287,6 +299,8 @@ public class SettingsController implements Initializable {
                     writer.write("-- This is a placeholder backup file\n");
                 }
                 
+                HealthMonitor.setBackupDirectory(selectedDirectory.toPath());
+                
                 // Update last backup time
                 String formattedDate = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
                 lastBackupLabel.setText(formattedDate);
@@ -412,7 +426,7 @@ public class SettingsController implements Initializable {
             }
             
             // Navigate back to admin dashboard
-            Parent adminDashboardParent = FXMLLoader.load(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
+            Parent adminDashboardParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/admin-dashboard.fxml"));
             Scene adminDashboardScene = new Scene(adminDashboardParent);
             
             Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
@@ -2,10 +2,11 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.FlightEvents;
 import com.example.vote.util.PasswordHash;
+import com.example.vote.util.VoterRolls;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -127,6 +128,9 @@ public class SignupController {
             stmt.setString(5, user.getEmail());
             
             int rowsAffected = stmt.executeUpdate();
+            if (rowsAffected > 0) {
+                VoterRolls.invalidateUserCount();
+            }
             return rowsAffected > 0;
             
         } catch (SQLException e) {
@@ -164,7 +168,7 @@ public class SignupController {
     @FXML
     private void switchToLogin(ActionEvent event) {
         try {
-            Parent loginParent = FXMLLoader.load(getClass().getResource("/com/example/vote/login-view.fxml"));
+            Parent loginParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/login-view.fxml"));
             Scene loginScene = new Scene(loginParent);
             
             // Get the current stage
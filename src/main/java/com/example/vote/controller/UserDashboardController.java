@@ -2,6 +2,9 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionScheduler;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.VoterParticipation;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -107,11 +110,11 @@ public class UserDashboardController implements Initializable {
             totalVotesText.setText(String.valueOf(totalVotes));
             
             // Count active elections
-            int activeElections = countActiveElections(conn);
+            int activeElections = countActiveElections();
             activeElectionsText.setText(String.valueOf(activeElections));
             
             // Load active elections into list view
-            loadActiveElections(conn);
+            loadActiveElections();
             
             statusLabel.setText("Ready");
             
@@ -140,66 +143,40 @@ public class UserDashboardController implements Initializable {
     /**
      * Count active elections in the system
      */
-    private int countActiveElections(Connection conn) throws SQLException {
-        // An election is active if its status is 'active' and current date is between start_date and end_date
-        String sql = "SELECT COUNT(*) FROM elections WHERE status = 'active' AND CURRENT_TIMESTAMP BETWEEN start_date AND end_date";
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-            return 0;
-        }
+    private int countActiveElections() throws SQLException {
+        // Open elections are tracked in memory by the scheduler as their start and end dates pass
+        return ElectionScheduler.countOpenElections();
     }
     
     /**
      * Load active elections into the list view
      */
-    private void loadActiveElections(Connection conn) throws SQLException {
+    private void loadActiveElections() throws SQLException {
         electionsListView.getItems().clear();
         
-        String sql = "SELECT id, title FROM elections WHERE status = 'active' AND CURRENT_TIMESTAMP BETWEEN start_date AND end_date";
-        try (PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            Map<String, Integer> electionMap = new HashMap<>();
-            boolean hasElections = false;
-            
-            while (rs.next()) {
-                hasElections = true;
-                int id = rs.getInt("id");
-                String title = rs.getString("title");
-                String displayText = title;
-                
-                // Store the election ID mapped to its display text for later retrieval
-                electionMap.put(displayText, id);
-                electionsListView.getItems().add(displayText);
-            }
-            
-            if (!hasElections) {
-                electionsListView.getItems().add("No active elections found");
-            }
+        Map<String, Integer> electionMap = new HashMap<>();
+        
+        for (ElectionScheduler.OpenElection election : ElectionScheduler.getOpenElections()) {
+            String displayText = election.getTitle();
             
-            // Store the election map as a property of the controller
-            this.electionMap = electionMap;
+            // Store the election ID mapped to its display text for later retrieval
+            electionMap.put(displayText, election.getId());
+            electionsListView.getItems().add(displayText);
+        }
+        
+        if (electionMap.isEmpty()) {
+            electionsListView.getItems().add("No active elections found");
         }
+        
+        // Store the election map as a property of the controller
+        this.electionMap = electionMap;
     }
     
     /**
      * Check if user has already voted in an election
      */
-    private boolean hasUserVotedInElection(Connection conn, int userId, int electionId) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM votes WHERE user_id = ? AND election_id = ?";
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, userId);
-            stmt.setInt(2, electionId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt(1) > 0;
-                }
-                return false;
-            }
-        }
+    private boolean hasUserVotedInElection(int userId, int electionId) throws SQLException {
+        return VoterParticipation.hasVoted(electionId, userId);
     }
 
     /**
@@ -223,7 +200,7 @@ public class UserDashboardController implements Initializable {
         try {
             // Open the voting screen for this election
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/vote-view.fxml"));
-            Parent voteViewParent = loader.load();
+            Parent voteViewParent = FlightEvents.loadScreen(loader);
             
             // Pass election ID and user to the voting controller
             VoteController voteController = loader.getController();
@@ -249,7 +226,7 @@ public class UserDashboardController implements Initializable {
         try {
             // Navigate to the elections view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-elections-view.fxml"));
-            Parent electionsViewParent = loader.load();
+            Parent electionsViewParent = FlightEvents.loadScreen(loader);
             
             // Pass the user to the elections controller
             UserElectionsController controller = loader.getController();
@@ -278,7 +255,7 @@ public class UserDashboardController implements Initializable {
         try {
             // Navigate to user profile view
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-profile-view.fxml"));
-            Parent profileViewParent = loader.load();
+            Parent profileViewParent = FlightEvents.loadScreen(loader);
             
             // Pass the user to the profile controller
             UserProfileController controller = loader.getController();
@@ -308,7 +285,7 @@ public class UserDashboardController implements Initializable {
             }
             
             // Navigate back to login screen
-            Parent loginParent = FXMLLoader.load(getClass().getResource("/com/example/vote/login-view.fxml"));
+            Parent loginParent = FlightEvents.loadScreen(getClass().getResource("/com/example/vote/login-view.fxml"));
             Scene loginScene = new Scene(loginParent);
             
             Stage window = (Stage) ((Node) event.getSource()).getScene().getWindow();
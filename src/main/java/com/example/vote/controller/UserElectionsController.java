@@ -2,6 +2,8 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.VoterParticipation;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -21,9 +23,11 @@ import javafx.util.Callback;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.*;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 public class UserElectionsController implements Initializable {
 
@@ -56,6 +60,7 @@ public class UserElectionsController implements Initializable {
 
     private User currentUser;
     private ObservableList<Election> electionsList = FXCollections.observableArrayList();
+    private List<Election> allElections = new ArrayList<>();
 
     /**
      * Election class to represent elections in the TableView
@@ -67,16 +72,20 @@ public class UserElectionsController implements Initializable {
         private final Date startDate;
         private final Date endDate;
         private final String status;
-        private final boolean hasVoted;
+        private boolean hasVoted;
+        private final LocalDateTime startDateTime;
+        private final LocalDateTime endDateTime;
 
-        public Election(int id, String title, String description, Date startDate, Date endDate, String status, boolean hasVoted) {
+        public Election(int id, String title, String description, Timestamp startDate, Timestamp endDate, String status, boolean hasVoted) {
             this.id = id;
             this.title = title;
             this.description = description;
-            this.startDate = startDate;
-            this.endDate = endDate;
+            this.startDate = new Date(startDate.getTime());
+            this.endDate = new Date(endDate.getTime());
             this.status = status;
             this.hasVoted = hasVoted;
+            this.startDateTime = startDate.toLocalDateTime();
+            this.endDateTime = endDate.toLocalDateTime();
         }
 
         public int getId() {
@@ -106,6 +115,22 @@ public class UserElectionsController implements Initializable {
         public boolean isHasVoted() {
             return hasVoted;
         }
+
+        public void setHasVoted(boolean hasVoted) {
+            this.hasVoted = hasVoted;
+        }
+
+        public boolean isActive(LocalDateTime now) {
+            return "active".equalsIgnoreCase(status) && !now.isBefore(startDateTime) && !now.isAfter(endDateTime);
+        }
+
+        public boolean isUpcoming(LocalDateTime now) {
+            return ("active".equalsIgnoreCase(status) || "pending".equalsIgnoreCase(status)) && now.isBefore(startDateTime);
+        }
+
+        public boolean isCompleted(LocalDateTime now) {
+            return "completed".equalsIgnoreCase(status) || now.isAfter(endDateTime);
+        }
     }
 
     @Override
@@ -113,7 +138,7 @@ public class UserElectionsController implements Initializable {
         // Setup filter combo box
         filterComboBox.getItems().addAll("All Elections", "Active", "Upcoming", "Completed", "Voted", "Not Voted");
         filterComboBox.setValue("All Elections");
-        filterComboBox.setOnAction(event -> loadElections());
+        filterComboBox.setOnAction(event -> applyFilter());
 
         // Configure the table columns
         titleColumn.setCellValueFactory(data -> new SimpleStringProperty(data.getValue().getTitle()));
@@ -201,69 +226,81 @@ public class UserElectionsController implements Initializable {
     }
 
     /**
-     * Load elections based on the selected filter
+     * Load all elections with one scan and mark the ones the user has voted in
      */
     private void loadElections() {
-        electionsList.clear();
+        allElections.clear();
         
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            StringBuilder sql = new StringBuilder();
-            sql.append("SELECT e.id, e.title, e.description, e.start_date, e.end_date, e.status, ");
-            sql.append("(SELECT COUNT(*) FROM votes v WHERE v.election_id = e.id AND v.user_id = ?) > 0 AS has_voted ");
-            sql.append("FROM elections e WHERE 1=1 ");
-
-            // Apply filter
-            String filter = filterComboBox.getValue();
-            if ("Active".equals(filter)) {
-                sql.append("AND e.status = 'active' AND CURRENT_TIMESTAMP BETWEEN e.start_date AND e.end_date ");
-            } else if ("Upcoming".equals(filter)) {
-                sql.append("AND (e.status = 'active' OR e.status = 'pending') AND CURRENT_TIMESTAMP < e.start_date ");
-            } else if ("Completed".equals(filter)) {
-                sql.append("AND (e.status = 'completed' OR CURRENT_TIMESTAMP > e.end_date) ");
-            } else if ("Voted".equals(filter)) {
-                sql.append("AND EXISTS (SELECT 1 FROM votes v WHERE v.election_id = e.id AND v.user_id = ?) ");
-            } else if ("Not Voted".equals(filter)) {
-                sql.append("AND e.status = 'active' AND CURRENT_TIMESTAMP BETWEEN e.start_date AND e.end_date ");
-                sql.append("AND NOT EXISTS (SELECT 1 FROM votes v WHERE v.election_id = e.id AND v.user_id = ?) ");
-            }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, title, description, start_date, end_date, status FROM elections ORDER BY start_date DESC")) {
             
-            sql.append("ORDER BY e.start_date DESC");
-            
-            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-                stmt.setInt(1, currentUser.getId());
-                
-                // Set additional parameters for specific filters
-                if ("Voted".equals(filter)) {
-                    stmt.setInt(2, currentUser.getId());
-                } else if ("Not Voted".equals(filter)) {
-                    stmt.setInt(2, currentUser.getId());
-                }
-                
-                try (ResultSet rs = stmt.executeQuery()) {
-                    while (rs.next()) {
-                        int id = rs.getInt("id");
-                        String title = rs.getString("title");
-                        String description = rs.getString("description");
-                        Date startDate = rs.getDate("start_date");
-                        Date endDate = rs.getDate("end_date");
-                        String status = rs.getString("status");
-                        boolean hasVoted = rs.getBoolean("has_voted");
-                        
-                        Election election = new Election(id, title, description, startDate, endDate, status, hasVoted);
-                        electionsList.add(election);
-                    }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    String title = rs.getString("title");
+                    String description = rs.getString("description");
+                    Timestamp startDate = rs.getTimestamp("start_date");
+                    Timestamp endDate = rs.getTimestamp("end_date");
+                    String status = rs.getString("status");
+                    
+                    allElections.add(new Election(id, title, description, startDate, endDate, status, false));
                 }
             }
             
-            electionsTableView.setItems(electionsList);
-            
-            // Update status label
-            statusLabel.setText(electionsList.size() + " elections found");
+            // Answered from the participation bitmaps, with at most one query for the rest
+            List<Integer> electionIds = new ArrayList<>();
+            for (Election election : allElections) {
+                electionIds.add(election.getId());
+            }
+            Set<Integer> votedElections = VoterParticipation.getVotedElections(currentUser.getId(), electionIds);
+            for (Election election : allElections) {
+                election.setHasVoted(votedElections.contains(election.getId()));
+            }
             
         } catch (SQLException e) {
             e.printStackTrace();
             statusLabel.setText("Error loading elections: " + e.getMessage());
+            return;
         }
+        
+        applyFilter();
+    }
+    
+    /**
+     * Show the loaded elections that match the selected filter
+     */
+    private void applyFilter() {
+        String filter = filterComboBox.getValue();
+        LocalDateTime now = LocalDateTime.now();
+        
+        List<Election> matching = new ArrayList<>();
+        for (Election election : allElections) {
+            boolean matches;
+            if ("Active".equals(filter)) {
+                matches = election.isActive(now);
+            } else if ("Upcoming".equals(filter)) {
+                matches = election.isUpcoming(now);
+            } else if ("Completed".equals(filter)) {
+                matches = election.isCompleted(now);
+            } else if ("Voted".equals(filter)) {
+                matches = election.isHasVoted();
+            } else if ("Not Voted".equals(filter)) {
+                matches = election.isActive(now) && !election.isHasVoted();
+            } else {
+                matches = true;
+            }
+            
+            if (matches) {
+                matching.add(election);
+            }
+        }
+        
+        electionsList.setAll(matching);
+        electionsTableView.setItems(electionsList);
+        
+        // Update status label
+        statusLabel.setText(electionsList.size() + " elections found");
     }
 
     /**
@@ -272,7 +309,7 @@ public class UserElectionsController implements Initializable {
     private void openVotingScreen(Election election) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/vote-view.fxml"));
-            Parent voteViewParent = loader.load();
+            Parent voteViewParent = FlightEvents.loadScreen(loader);
             
             // Pass election ID and user to the voting controller
             VoteController voteController = loader.getController();
@@ -296,7 +333,7 @@ public class UserElectionsController implements Initializable {
     private void openResultsScreen(Election election) {
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/election-results-view.fxml"));
-            Parent resultsViewParent = loader.load();
+            Parent resultsViewParent = FlightEvents.loadScreen(loader);
             
             // Pass election ID and user to the results controller
             ElectionResultsController resultsController = loader.getController();
@@ -355,7 +392,7 @@ public class UserElectionsController implements Initializable {
         try {
             // Navigate back to the user dashboard
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-dashboard.fxml"));
-            Parent dashboardParent = loader.load();
+            Parent dashboardParent = FlightEvents.loadScreen(loader);
             
             // Pass the user to the dashboard controller
             UserDashboardController controller = loader.getController();
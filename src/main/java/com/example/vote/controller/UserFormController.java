@@ -3,6 +3,7 @@ package com.example.vote.controller;
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
 import com.example.vote.util.PasswordHash;
+import com.example.vote.util.VoterRolls;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -210,6 +211,7 @@ public class UserFormController implements Initializable {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                VoterRolls.invalidateUserCount();
                 showSuccessAlert("User created successfully!");
                 parentController.refreshTable();
                 closeForm(null);
@@ -251,6 +253,8 @@ public class UserFormController implements Initializable {
             int rowsAffected = stmt.executeUpdate();
             
             if (rowsAffected > 0) {
+                // The role may have changed
+                VoterRolls.invalidateUserCount();
                 showSuccessAlert("User updated successfully!");
                 parentController.refreshTable();
                 closeForm(null);
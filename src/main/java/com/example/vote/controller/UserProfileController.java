@@ -2,6 +2,7 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.FlightEvents;
 import com.example.vote.util.PasswordHash;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -379,7 +380,7 @@ public class UserProfileController implements Initializable {
 
             // Navigate to user dashboard
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-dashboard.fxml"));
-            Parent dashboardParent = loader.load();
+            Parent dashboardParent = FlightEvents.loadScreen(loader);
             
             UserDashboardController controller = loader.getController();
             controller.initData(currentUser);
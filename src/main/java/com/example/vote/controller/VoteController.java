@@ -2,10 +2,23 @@ package com.example.vote.controller;
 
 import com.example.vote.model.User;
 import com.example.vote.util.DatabaseConnection;
+import com.example.vote.util.ElectionScheduler;
+import com.example.vote.util.ElectionTally;
+import com.example.vote.util.FlightEvents;
+import com.example.vote.util.LiveResults;
+import com.example.vote.util.Metrics;
+import com.example.vote.util.OfflineVoteQueue;
+import com.example.vote.util.RankedBallots;
+import com.example.vote.util.ResultsSnapshots;
+import com.example.vote.util.TurnoutBuckets;
+import com.example.vote.util.VoteJournal;
+import com.example.vote.util.VoterParticipation;
+import com.example.vote.util.VoterRolls;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,11 +27,20 @@ import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javafx.util.StringConverter;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 public class VoteController implements Initializable {
@@ -41,6 +63,18 @@ public class VoteController implements Initializable {
     @FXML
     private TableColumn<Candidate, String> infoColumn;
 
+    @FXML
+    private Text instructionText;
+
+    @FXML
+    private VBox positionsBox;
+
+    @FXML
+    private VBox rankingBox;
+
+    @FXML
+    private ListView<Candidate> rankingListView;
+
     @FXML
     private Button submitButton;
 
@@ -53,7 +87,13 @@ public class VoteController implements Initializable {
     private User currentUser;
     private int electionId;
     private String electionTitle;
+    private LocalDateTime electionEndDate;
     private boolean hasVoted = false;
+    private boolean isEligible = true;
+    private boolean rankedChoice = false;
+    private final ObservableList<Candidate> ranking = FXCollections.observableArrayList();
+    private boolean multiPosition = false;
+    private final Map<String, ComboBox<Candidate>> positionChoices = new LinkedHashMap<>();
 
     /**
      * Candidate class to represent election candidates in the TableView
@@ -101,6 +141,16 @@ public class VoteController implements Initializable {
                 statusLabel.setText("Selected: " + newSelection.getName());
             }
         });
+        
+        // Number the ranked candidates by preference
+        rankingListView.setItems(ranking);
+        rankingListView.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Candidate candidate, boolean empty) {
+                super.updateItem(candidate, empty);
+                setText(empty || candidate == null ? null : (getIndex() + 1) + ". " + candidate.getName());
+            }
+        });
     }
 
     /**
@@ -117,6 +167,11 @@ public class VoteController implements Initializable {
         
         // Check if user has already voted in this election
         checkIfUserHasVoted();
+        
+        // Check if user is on the voter roll for this election
+        if (!hasVoted) {
+            checkEligibility();
+        }
     }
 
     /**
@@ -125,17 +180,30 @@ public class VoteController implements Initializable {
     private void loadElectionData() {
         try (Connection conn = DatabaseConnection.getConnection()) {
             // Get election details
-            String electionSql = "SELECT title FROM elections WHERE id = ?";
+            String electionSql = "SELECT title, voting_method, end_date FROM elections WHERE id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(electionSql)) {
                 stmt.setInt(1, electionId);
                 try (ResultSet rs = stmt.executeQuery()) {
                     if (rs.next()) {
                         electionTitle = rs.getString("title");
                         electionTitleLabel.setText(electionTitle);
+                        electionEndDate = rs.getTimestamp("end_date").toLocalDateTime();
+                        rankedChoice = "ranked".equalsIgnoreCase(rs.getString("voting_method"));
+                        multiPosition = "multi_position".equalsIgnoreCase(rs.getString("voting_method"));
                     }
                 }
             }
             
+            if (rankedChoice) {
+                instructionText.setText("Rank the candidates in order of preference:");
+                rankingBox.setVisible(true);
+                rankingBox.setManaged(true);
+            } else if (multiPosition) {
+                instructionText.setText("Choose one candidate for each position:");
+                positionsBox.setVisible(true);
+                positionsBox.setManaged(true);
+            }
+            
             // Get candidates for this election
             String candidatesSql = "SELECT id, name, position, profile FROM candidates WHERE election_id = ?";
             try (PreparedStatement stmt = conn.prepareStatement(candidatesSql)) {
@@ -152,6 +220,10 @@ public class VoteController implements Initializable {
                     }
                     candidatesTableView.setItems(candidates);
                     
+                    if (multiPosition) {
+                        buildPositionChoices(candidates);
+                    }
+                    
                     if (candidates.isEmpty()) {
                         statusLabel.setText("No candidates found for this election");
                         submitButton.setDisable(true);
@@ -165,25 +237,75 @@ public class VoteController implements Initializable {
         }
     }
 
+    /**
+     * Add a choice box for every position on the ballot
+     */
+    private void buildPositionChoices(List<Candidate> candidates) {
+        Map<String, ObservableList<Candidate>> byPosition = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            byPosition.computeIfAbsent(positionOf(candidate), key -> FXCollections.observableArrayList()).add(candidate);
+        }
+        
+        StringConverter<Candidate> converter = new StringConverter<>() {
+            @Override
+            public String toString(Candidate candidate) {
+                return candidate == null ? "" : candidate.getName();
+            }
+            
+            @Override
+            public Candidate fromString(String name) {
+                return null;
+            }
+        };
+        
+        positionChoices.clear();
+        positionsBox.getChildren().clear();
+        for (Map.Entry<String, ObservableList<Candidate>> entry : byPosition.entrySet()) {
+            Label positionLabel = new Label(entry.getKey() + ":");
+            positionLabel.setPrefWidth(150.0);
+            
+            ComboBox<Candidate> choice = new ComboBox<>(entry.getValue());
+            choice.setConverter(converter);
+            choice.setPromptText("Abstain");
+            choice.setPrefWidth(250.0);
+            
+            positionChoices.put(entry.getKey(), choice);
+            positionsBox.getChildren().add(new HBox(10.0, positionLabel, choice));
+        }
+    }
+    
+    /**
+     * Get the ballot position a candidate stands for
+     */
+    private static String positionOf(Candidate candidate) {
+        String position = candidate.getPosition().trim();
+        return position.isEmpty() ? ElectionTally.GENERAL_POSITION : position;
+    }
+
     /**
      * Check if the current user has already voted in this election
      */
     private void checkIfUserHasVoted() {
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            String sql = "SELECT COUNT(*) FROM votes WHERE user_id = ? AND election_id = ?";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setInt(1, currentUser.getId());
-                stmt.setInt(2, electionId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next() && rs.getInt(1) > 0) {
-                        hasVoted = true;
-                        alreadyVotedLabel.setVisible(true);
-                        submitButton.setDisable(true);
-                        statusLabel.setText("You have already cast a vote in this election");
-                        
-                        // Try to show who they voted for
-                        showPreviousVote(conn);
-                    }
+        try {
+            if (OfflineVoteQueue.hasQueuedVote(electionId, currentUser.getId())) {
+                hasVoted = true;
+                alreadyVotedLabel.setVisible(true);
+                submitButton.setDisable(true);
+                statusLabel.setText("Your vote is saved at this station and waiting to be submitted");
+                return;
+            }
+            FlightEvents.VotePhaseEvent duplicateCheck = FlightEvents.beginVotePhase("duplicate check", electionId);
+            boolean voted = VoterParticipation.hasVoted(electionId, currentUser.getId());
+            duplicateCheck.commit();
+            if (voted) {
+                hasVoted = true;
+                alreadyVotedLabel.setVisible(true);
+                submitButton.setDisable(true);
+                statusLabel.setText("You have already cast a vote in this election");
+                
+                // Try to show who they voted for
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    showPreviousVote(conn);
                 }
             }
         } catch (SQLException e) {
@@ -192,6 +314,43 @@ public class VoteController implements Initializable {
         }
     }
     
+    /**
+     * Check if the current user is on the voter roll for this election. The rolls may have to
+     * be reloaded from the database, so the check runs in the background and the ballot can't
+     * be submitted until it is done.
+     */
+    private void checkEligibility() {
+        boolean submitDisabled = submitButton.isDisable();
+        isEligible = false;
+        submitButton.setDisable(true);
+        
+        int userId = currentUser.getId();
+        Task<Boolean> eligibilityCheck = new Task<>() {
+            @Override
+            protected Boolean call() throws Exception {
+                return VoterRolls.isEligible(electionId, userId);
+            }
+        };
+        
+        eligibilityCheck.setOnSucceeded(event -> {
+            isEligible = eligibilityCheck.getValue();
+            if (!isEligible) {
+                statusLabel.setText("You are not on the voter roll for this election");
+            } else {
+                submitButton.setDisable(submitDisabled);
+            }
+        });
+        eligibilityCheck.setOnFailed(event -> {
+            Throwable error = eligibilityCheck.getException();
+            error.printStackTrace();
+            statusLabel.setText("Error checking voter eligibility: " + error.getMessage());
+        });
+        
+        Thread thread = new Thread(eligibilityCheck, "eligibility-check");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
     /**
      * Show which candidate the user previously voted for
      */
@@ -202,9 +361,13 @@ public class VoteController implements Initializable {
             stmt.setInt(1, currentUser.getId());
             stmt.setInt(2, electionId);
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    String candidateName = rs.getString("name");
-                    statusLabel.setText("You previously voted for: " + candidateName);
+                // Multi-position ballots have one row per position
+                List<String> candidateNames = new ArrayList<>();
+                while (rs.next()) {
+                    candidateNames.add(rs.getString("name"));
+                }
+                if (!candidateNames.isEmpty()) {
+                    statusLabel.setText("You previously voted for: " + String.join(", ", candidateNames));
                 }
             }
         }
@@ -215,6 +378,15 @@ public class VoteController implements Initializable {
      */
     @FXML
     private void handleSubmitVote(ActionEvent event) {
+        if (rankedChoice) {
+            submitRanking();
+            return;
+        }
+        if (multiPosition) {
+            submitPositions();
+            return;
+        }
+        
         Candidate selectedCandidate = candidatesTableView.getSelectionModel().getSelectedItem();
         
         if (selectedCandidate == null) {
@@ -222,6 +394,11 @@ public class VoteController implements Initializable {
             return;
         }
         
+        if (!isEligible) {
+            statusLabel.setText("You are not on the voter roll for this election");
+            return;
+        }
+        
         // Confirm vote
         Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
         confirmDialog.setTitle("Confirm Vote");
@@ -232,38 +409,225 @@ public class VoteController implements Initializable {
         confirmDialog.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
                 // User confirmed, record the vote
-                recordVote(selectedCandidate.getId());
+                recordVote(List.of(selectedCandidate), null);
             }
         });
     }
     
     /**
-     * Record the user's vote in the database
+     * Confirm and record a ranked ballot
      */
-    private void recordVote(int candidateId) {
+    private void submitRanking() {
+        if (ranking.isEmpty()) {
+            statusLabel.setText("Please rank at least one candidate first");
+            return;
+        }
+        
+        if (!isEligible) {
+            statusLabel.setText("You are not on the voter roll for this election");
+            return;
+        }
+        
+        StringBuilder summary = new StringBuilder();
+        List<Integer> rankedIds = new ArrayList<>();
+        for (int i = 0; i < ranking.size(); i++) {
+            summary.append(i + 1).append(". ").append(ranking.get(i).getName()).append("\n");
+            rankedIds.add(ranking.get(i).getId());
+        }
+        
+        Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmDialog.setTitle("Confirm Vote");
+        confirmDialog.setHeaderText("Submit your ranking");
+        confirmDialog.setContentText(summary + "\nAre you sure you want to submit this ranking? " +
+                                     "This action cannot be undone.");
+        
+        confirmDialog.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.OK) {
+                // The first preference is kept in candidate_id like a single-choice vote
+                recordVote(List.of(ranking.get(0)), RankedBallots.pack(rankedIds));
+            }
+        });
+    }
+    
+    /**
+     * Confirm and record a ballot with one choice per position
+     */
+    private void submitPositions() {
+        List<Candidate> choices = new ArrayList<>();
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, ComboBox<Candidate>> entry : positionChoices.entrySet()) {
+            Candidate choice = entry.getValue().getValue();
+            summary.append(entry.getKey()).append(": ")
+                   .append(choice != null ? choice.getName() : "(abstain)").append("\n");
+            if (choice != null) {
+                choices.add(choice);
+            }
+        }
+        
+        if (choices.isEmpty()) {
+            statusLabel.setText("Please choose a candidate for at least one position");
+            return;
+        }
+        
+        if (!isEligible) {
+            statusLabel.setText("You are not on the voter roll for this election");
+            return;
+        }
+        
+        Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmDialog.setTitle("Confirm Vote");
+        confirmDialog.setHeaderText("Submit your ballot");
+        confirmDialog.setContentText(summary + "\nAre you sure you want to submit this ballot? " +
+                                     "This action cannot be undone.");
+        
+        confirmDialog.showAndWait().ifPresent(response -> {
+            if (response == ButtonType.OK) {
+                recordVote(choices, null);
+            }
+        });
+    }
+    
+    /**
+     * Add the selected candidate to the bottom of the ranking
+     */
+    @FXML
+    private void handleAddToRanking(ActionEvent event) {
+        Candidate selectedCandidate = candidatesTableView.getSelectionModel().getSelectedItem();
+        if (selectedCandidate == null) {
+            statusLabel.setText("Please select a candidate first");
+        } else if (ranking.contains(selectedCandidate)) {
+            statusLabel.setText(selectedCandidate.getName() + " is already ranked");
+        } else {
+            ranking.add(selectedCandidate);
+            statusLabel.setText("Ranked " + selectedCandidate.getName() + " as choice " + ranking.size());
+        }
+    }
+    
+    /**
+     * Remove the selected candidate from the ranking
+     */
+    @FXML
+    private void handleRemoveFromRanking(ActionEvent event) {
+        int index = rankingListView.getSelectionModel().getSelectedIndex();
+        if (index >= 0) {
+            ranking.remove(index);
+        }
+    }
+    
+    /**
+     * Move the selected candidate one place up the ranking
+     */
+    @FXML
+    private void handleMoveUp(ActionEvent event) {
+        moveRanked(-1);
+    }
+    
+    /**
+     * Move the selected candidate one place down the ranking
+     */
+    @FXML
+    private void handleMoveDown(ActionEvent event) {
+        moveRanked(1);
+    }
+    
+    private void moveRanked(int offset) {
+        int index = rankingListView.getSelectionModel().getSelectedIndex();
+        int target = index + offset;
+        if (index < 0 || target < 0 || target >= ranking.size()) {
+            return;
+        }
+        Candidate candidate = ranking.remove(index);
+        ranking.add(target, candidate);
+        rankingListView.getSelectionModel().select(target);
+    }
+    
+    /**
+     * Append a committed ballot to this station's vote journal
+     */
+    private void journalVote(List<Candidate> choices) {
+        int[] candidateIds = new int[choices.size()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = choices.get(i).getId();
+        }
+        try {
+            VoteJournal.append(electionId, currentUser.getId(), candidateIds);
+        } catch (IOException e) {
+            // The vote is committed; the verifier will report the missing journal record
+            System.err.println("Failed to write vote journal: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Record the user's ballot in the database
+     * @param choices The chosen candidates: one, one per position, or the first preference of a ranked ballot
+     * @param rankedBallot The packed ranking, or null if the ballot is not ranked
+     */
+    private void recordVote(List<Candidate> choices, byte[] rankedBallot) {
+        long start = System.nanoTime();
+        FlightEvents.VoteSubmissionEvent submission = new FlightEvents.VoteSubmissionEvent();
+        submission.electionId = electionId;
+        submission.choices = choices.size();
+        submission.outcome = "failed";
+        submission.begin();
         try (Connection conn = DatabaseConnection.getConnection()) {
-            // Start a transaction to ensure both operations complete or neither does
+            // The election may have closed while the ballot was being filled in
+            if (!isOpenForVoting(conn)) {
+                submission.outcome = "closed";
+                submission.commit();
+                statusLabel.setText("This election has closed; your vote was not recorded");
+                submitButton.setDisable(true);
+                return;
+            }
+            
+            // Start a transaction so the whole ballot is recorded or none of it is
             conn.setAutoCommit(false);
             
             try {
-                // Insert vote record
-                String voteSql = "INSERT INTO votes (election_id, user_id, candidate_id) VALUES (?, ?, ?)";
+                // Insert one vote record per choice
+                String voteSql = "INSERT INTO votes (election_id, user_id, candidate_id, ranking, position) VALUES (?, ?, ?, ?, ?)";
+                FlightEvents.VotePhaseEvent phase = FlightEvents.beginVotePhase("insert", electionId);
                 try (PreparedStatement stmt = conn.prepareStatement(voteSql)) {
-                    stmt.setInt(1, electionId);
-                    stmt.setInt(2, currentUser.getId());
-                    stmt.setInt(3, candidateId);
-                    stmt.executeUpdate();
+                    for (Candidate choice : choices) {
+                        stmt.setInt(1, electionId);
+                        stmt.setInt(2, currentUser.getId());
+                        stmt.setInt(3, choice.getId());
+                        if (rankedBallot != null) {
+                            stmt.setBytes(4, rankedBallot);
+                        } else {
+                            stmt.setNull(4, Types.VARBINARY);
+                        }
+                        stmt.setString(5, multiPosition ? positionOf(choice) : "");
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
                 }
+                phase.commit();
                 
-                // Update candidate vote count
+                // Update candidate vote counts
                 String updateCountSql = "UPDATE candidates SET votes = votes + 1 WHERE id = ?";
+                phase = FlightEvents.beginVotePhase("counter update", electionId);
                 try (PreparedStatement stmt = conn.prepareStatement(updateCountSql)) {
-                    stmt.setInt(1, candidateId);
-                    stmt.executeUpdate();
+                    for (Candidate choice : choices) {
+                        stmt.setInt(1, choice.getId());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
                 }
+                phase.commit();
                 
                 // Commit the transaction
+                phase = FlightEvents.beginVotePhase("commit", electionId);
                 conn.commit();
+                phase.commit();
+                submission.outcome = "committed";
+                submission.end();
+                Metrics.VOTE_COMMIT.recordSince(start);
+                Metrics.VOTES.increment();
+                LiveResults.bump(electionId);
+                TurnoutBuckets.recordBallot(electionId, currentUser.getId());
+                VoterParticipation.recordVote(electionId, currentUser.getId());
+                journalVote(choices);
+                invalidateIfClosed();
                 
                 // Show success message
                 Alert successAlert = new Alert(Alert.AlertType.INFORMATION);
@@ -281,6 +645,10 @@ public class VoteController implements Initializable {
                 
                 // Check if the error is due to unique constraint violation
                 if (e.getMessage().contains("Duplicate entry") || e.getMessage().contains("unique_vote")) {
+                    // Voted from another kiosk since our participation data was loaded
+                    submission.outcome = "duplicate";
+                    submission.end();
+                    VoterParticipation.recordVote(electionId, currentUser.getId());
                     statusLabel.setText("You have already voted in this election");
                     alreadyVotedLabel.setVisible(true);
                     submitButton.setDisable(true);
@@ -292,9 +660,107 @@ public class VoteController implements Initializable {
                 conn.setAutoCommit(true);
             }
             
-        } catch (SQLException | IOException e) {
+        } catch (SQLException e) {
+            if (OfflineVoteQueue.isConnectionFailure(e)) {
+                // The database is unreachable; keep the vote at this station and forward it later,
+                // as long as what this station knows says the election is still open
+                if (!isOpenOffline()) {
+                    submission.outcome = "closed";
+                    submission.commit();
+                    statusLabel.setText("This election has closed; your vote was not recorded");
+                    submitButton.setDisable(true);
+                    return;
+                }
+                submission.outcome = "queued";
+                submission.commit();
+                queueVote(choices, rankedBallot);
+                return;
+            }
             e.printStackTrace();
             statusLabel.setText("Error recording vote: " + e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+            statusLabel.setText("Error recording vote: " + e.getMessage());
+        }
+        submission.commit();
+    }
+    
+    /**
+     * Check that the election is still active and within its voting period
+     */
+    private boolean isOpenForVoting(Connection conn) throws SQLException {
+        String sql = "SELECT status, start_date, end_date FROM elections WHERE id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || !"active".equalsIgnoreCase(rs.getString("status"))) {
+                    return false;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                return !now.isBefore(rs.getTimestamp("start_date").toLocalDateTime())
+                        && now.isBefore(rs.getTimestamp("end_date").toLocalDateTime());
+            }
+        }
+    }
+    
+    /**
+     * Drop the frozen results if the election closed while this ballot was being committed,
+     * so they are counted again with it
+     */
+    private void invalidateIfClosed() {
+        try {
+            if (!ElectionScheduler.isOpen(electionId)) {
+                ResultsSnapshots.invalidate(electionId);
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to invalidate results of election " + electionId + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Check the station's schedule and the end date loaded with the ballot
+     */
+    private boolean isOpenOffline() {
+        if (electionEndDate == null || !LocalDateTime.now().isBefore(electionEndDate)) {
+            return false;
+        }
+        try {
+            return ElectionScheduler.isOpen(electionId);
+        } catch (SQLException e) {
+            // The schedule was never loaded; the end date is all there is to go on
+            return true;
+        }
+    }
+    
+    private void queueVote(List<Candidate> choices, byte[] rankedBallot) {
+        int[] candidateIds = new int[choices.size()];
+        String[] positions = new String[choices.size()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = choices.get(i).getId();
+            positions[i] = multiPosition ? positionOf(choices.get(i)) : "";
+        }
+        
+        try {
+            if (!OfflineVoteQueue.enqueue(electionId, currentUser.getId(), candidateIds, positions, rankedBallot)) {
+                statusLabel.setText("You have already voted in this election");
+                alreadyVotedLabel.setVisible(true);
+                submitButton.setDisable(true);
+                return;
+            }
+            VoterParticipation.recordVote(electionId, currentUser.getId());
+            
+            Alert savedAlert = new Alert(Alert.AlertType.INFORMATION);
+            savedAlert.setTitle("Vote Saved");
+            savedAlert.setHeaderText("Thank you for voting!");
+            savedAlert.setContentText("The voting server is unreachable right now. Your vote has been saved at " +
+                    "this station and will be submitted automatically when the connection is restored.");
+            savedAlert.showAndWait();
+            
+            returnToDashboard(null);
+            
+        } catch (IOException e) {
+            e.printStackTrace();
+            statusLabel.setText("Error recording vote: the server is unreachable and the vote could not be saved locally");
         }
     }
 
@@ -316,7 +782,7 @@ public class VoteController implements Initializable {
      */
     private void returnToDashboard(ActionEvent event) throws IOException {
         FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/example/vote/user-dashboard.fxml"));
-        Parent dashboardParent = loader.load();
+        Parent dashboardParent = FlightEvents.loadScreen(loader);
         
         // Pass the user to the dashboard controller
         UserDashboardController controller = loader.getController();
@@ -13,6 +13,7 @@ public class Election {
     private final ObjectProperty<LocalDateTime> startDate = new SimpleObjectProperty<>(this, "startDate");
     private final ObjectProperty<LocalDateTime> endDate = new SimpleObjectProperty<>(this, "endDate");
     private final StringProperty status = new SimpleStringProperty(this, "status", "pending");
+    private final StringProperty votingMethod = new SimpleStringProperty(this, "votingMethod", "single");
     private final IntegerProperty createdBy = new SimpleIntegerProperty(this, "createdBy", 0);
     private final ObjectProperty<LocalDateTime> createdAt = new SimpleObjectProperty<>(this, "createdAt");
     private final ObjectProperty<LocalDateTime> updatedAt = new SimpleObjectProperty<>(this, "updatedAt");
@@ -69,6 +70,10 @@ public class Election {
         return status;
     }
     
+    public StringProperty votingMethodProperty() {
+        return votingMethod;
+    }
+    
     public IntegerProperty createdByProperty() {
         return createdBy;
     }
@@ -130,6 +135,14 @@ public class Election {
         this.status.set(status);
     }
     
+    public String getVotingMethod() {
+        return votingMethod.get();
+    }
+    
+    public void setVotingMethod(String votingMethod) {
+        this.votingMethod.set(votingMethod);
+    }
+    
     public int getCreatedBy() {
         return createdBy.get();
     }
@@ -170,6 +183,14 @@ public class Election {
         return "cancelled".equalsIgnoreCase(getStatus());
     }
     
+    public boolean isRankedChoice() {
+        return "ranked".equalsIgnoreCase(getVotingMethod());
+    }
+    
+    public boolean isMultiPosition() {
+        return "multi_position".equalsIgnoreCase(getVotingMethod());
+    }
+    
     @Override
     public String toString() {
         return "Election{" +
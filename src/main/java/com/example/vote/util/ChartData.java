@@ -0,0 +1,319 @@
+package com.example.vote.util;
+
+import javafx.scene.chart.Chart;
+import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps result charts current without rebuilding them. Slices and bars are matched to the
+ * existing chart data by key and only their values and labels change, so a refresh does not
+ * recreate every node or restart every animation. Large candidate lists are cut to the
+ * -Dvote.charts.topN largest (default 12) plus one "Others" entry holding the rest.
+ *
+ * Updates are animated only when few values change and the last update was at least a second
+ * ago; bursts of refreshes and large changes are applied without animation.
+ */
+public class ChartData {
+
+    public static final int TOP_N = Math.max(2, Integer.getInteger("vote.charts.topN", 12));
+
+    private static final String OTHERS_KEY = "\0others";
+    private static final long ANIMATION_INTERVAL_MILLIS = 1000;
+    private static final int MAX_ANIMATED_CHANGES = 20;
+    private static final String PIE_KEYS = ChartData.class.getName() + ".pieKeys";
+    private static final String LAST_UPDATE = ChartData.class.getName() + ".lastUpdate";
+
+    /**
+     * One labelled value of a chart
+     */
+    public static class Entry {
+        private final String key;
+        private final String label;
+        private final double value;
+
+        /**
+         * @param key Identifies the entry across updates, e.g. the candidate ID
+         * @param label Text shown on the chart
+         * @param value The value, e.g. the number of votes
+         */
+        public Entry(String key, String label, double value) {
+            this.key = key;
+            this.label = label;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A pie slice of election results
+     */
+    public static class ResultSlice extends Entry {
+        private final double share;
+        private final boolean ofAllChoices;
+
+        ResultSlice(String key, String label, double value, double share, boolean ofAllChoices) {
+            super(key, label, value);
+            this.share = share;
+            this.ofAllChoices = ofAllChoices;
+        }
+
+        /**
+         * @return The share of the votes, e.g. 0.25 for 25%
+         */
+        public double getShare() {
+            return share;
+        }
+
+        /**
+         * @return The share as a percentage, e.g. "25.0%" or "25.0% of all choices"
+         */
+        public String formatShare() {
+            return new DecimalFormat("0.0%").format(share) + (ofAllChoices ? " of all choices" : "");
+        }
+
+        /**
+         * @return This slice labelled with its votes and share, as the result charts show it
+         */
+        public Entry withVotesAndShare() {
+            return new Entry(getKey(), getLabel() + " (" + (long) getValue() + ") (" + formatShare() + ")", getValue());
+        }
+    }
+
+    /**
+     * Get the pie slices of election results: candidates with votes, largest first, and the
+     * rest as "Others". A candidate's share is of the votes for their position. "Others" may
+     * span positions, so in multi-position elections its share is of all choices.
+     *
+     * @param positions The results, e.g. from ElectionTally.tally
+     * @param byPosition Whether the election has several positions; labels then name the position
+     * @return The slices, at most TOP_N
+     */
+    public static List<ResultSlice> resultSlices(List<ElectionTally.PositionTally> positions, boolean byPosition) {
+        List<Entry> entries = new ArrayList<>();
+        Map<String, Double> shares = new HashMap<>();
+        long totalVotes = 0;
+        for (ElectionTally.PositionTally position : positions) {
+            totalVotes += position.getTotalVotes();
+            for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                if (candidate.getVotes() == 0) {
+                    continue;
+                }
+                String key = String.valueOf(candidate.getCandidateId());
+                String label = byPosition ? candidate.getName() + " - " + position.getPosition() : candidate.getName();
+                entries.add(new Entry(key, label, candidate.getVotes()));
+                shares.put(key, (double) candidate.getVotes() / position.getTotalVotes());
+            }
+        }
+
+        List<ResultSlice> slices = new ArrayList<>();
+        for (Entry entry : topN(entries, TOP_N)) {
+            Double share = shares.get(entry.getKey());
+            if (share != null) {
+                slices.add(new ResultSlice(entry.getKey(), entry.getLabel(), entry.getValue(), share, false));
+            } else {
+                slices.add(new ResultSlice(entry.getKey(), entry.getLabel(), entry.getValue(),
+                        entry.getValue() / totalVotes, byPosition));
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * Keep the largest entries and add up the rest as "Others"
+     *
+     * @param entries The entries in any order
+     * @param limit Maximum number of entries returned, including "Others"
+     * @return The entries, largest first
+     */
+    public static List<Entry> topN(List<Entry> entries, int limit) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingDouble(Entry::getValue).reversed());
+        if (sorted.size() <= limit) {
+            return sorted;
+        }
+
+        List<Entry> top = new ArrayList<>(sorted.subList(0, limit - 1));
+        List<Entry> rest = sorted.subList(limit - 1, sorted.size());
+        double others = 0;
+        for (Entry entry : rest) {
+            others += entry.getValue();
+        }
+        top.add(new Entry(OTHERS_KEY, "Others", others));
+        return top;
+    }
+
+    /**
+     * Show entries in a pie chart, updating the slices already shown. Only change the chart's
+     * data through this method.
+     *
+     * @param chart The chart
+     * @param entries The slices to show
+     */
+    public static void updatePie(PieChart chart, List<Entry> entries) {
+        @SuppressWarnings("unchecked")
+        Map<String, PieChart.Data> slices = (Map<String, PieChart.Data>) chart.getProperties()
+                .computeIfAbsent(PIE_KEYS, key -> new HashMap<String, PieChart.Data>());
+
+        Set<String> keys = new HashSet<>();
+        int changes = 0;
+        for (Entry entry : entries) {
+            keys.add(entry.getKey());
+            PieChart.Data slice = slices.get(entry.getKey());
+            if (slice == null || slice.getPieValue() != entry.getValue()) {
+                changes++;
+            }
+        }
+        for (String key : slices.keySet()) {
+            if (!keys.contains(key)) {
+                changes++;
+            }
+        }
+        if (changes == 0) {
+            relabel(entries, slices);
+            return;
+        }
+        chart.setAnimated(shouldAnimate(chart, changes));
+
+        List<PieChart.Data> removed = new ArrayList<>();
+        slices.entrySet().removeIf(slice -> {
+            if (keys.contains(slice.getKey())) {
+                return false;
+            }
+            removed.add(slice.getValue());
+            return true;
+        });
+        chart.getData().removeAll(removed);
+
+        for (Entry entry : entries) {
+            PieChart.Data slice = slices.get(entry.getKey());
+            if (slice == null) {
+                slice = new PieChart.Data(entry.getLabel(), entry.getValue());
+                slices.put(entry.getKey(), slice);
+                chart.getData().add(slice);
+            } else {
+                slice.setPieValue(entry.getValue());
+                slice.setName(entry.getLabel());
+            }
+        }
+    }
+
+    /**
+     * Show entries as bars, one series per name, updating the bars already shown. Bars are
+     * matched by their category, so labels must be unique within a series.
+     *
+     * @param chart The chart
+     * @param series Entries by series name, in display order
+     */
+    public static void updateBars(XYChart<String, Number> chart, Map<String, List<Entry>> series) {
+        Map<String, XYChart.Series<String, Number>> shown = new LinkedHashMap<>();
+        for (XYChart.Series<String, Number> existing : chart.getData()) {
+            shown.put(existing.getName(), existing);
+        }
+
+        int changes = 0;
+        for (Map.Entry<String, List<Entry>> update : series.entrySet()) {
+            XYChart.Series<String, Number> existing = shown.get(update.getKey());
+            Map<String, XYChart.Data<String, Number>> bars = existing == null ? Map.of() : barsByCategory(existing);
+            for (Entry entry : update.getValue()) {
+                XYChart.Data<String, Number> bar = bars.get(entry.getLabel());
+                if (bar == null || bar.getYValue().doubleValue() != entry.getValue()) {
+                    changes++;
+                }
+            }
+            changes += Math.max(0, bars.size() - update.getValue().size());
+        }
+        for (String name : shown.keySet()) {
+            if (!series.containsKey(name)) {
+                changes += shown.get(name).getData().size();
+            }
+        }
+        if (changes == 0) {
+            return;
+        }
+        chart.setAnimated(shouldAnimate(chart, changes));
+
+        chart.getData().removeIf(existing -> !series.containsKey(existing.getName()));
+        for (Map.Entry<String, List<Entry>> update : series.entrySet()) {
+            XYChart.Series<String, Number> existing = shown.get(update.getKey());
+            if (existing == null) {
+                existing = new XYChart.Series<>();
+                existing.setName(update.getKey());
+                chart.getData().add(existing);
+            }
+
+            Map<String, XYChart.Data<String, Number>> bars = barsByCategory(existing);
+            Set<String> categories = new HashSet<>();
+            for (Entry entry : update.getValue()) {
+                categories.add(entry.getLabel());
+                XYChart.Data<String, Number> bar = bars.get(entry.getLabel());
+                if (bar == null) {
+                    existing.getData().add(new XYChart.Data<>(entry.getLabel(), entry.getValue()));
+                } else if (bar.getYValue().doubleValue() != entry.getValue()) {
+                    bar.setYValue(entry.getValue());
+                }
+            }
+            existing.getData().removeIf(bar -> !categories.contains(bar.getXValue()));
+        }
+    }
+
+    /**
+     * Show ballots over time as one series, updating the points already shown
+     *
+     * @param chart The chart
+     * @param series The turnout series of an election
+     */
+    public static void updateTurnout(XYChart<String, Number> chart, TurnoutBuckets.Series series) {
+        List<Entry> points = new ArrayList<>();
+        for (TurnoutBuckets.Bucket bucket : series.getBuckets()) {
+            String label = series.getGranularity().format(bucket.getStart());
+            points.add(new Entry(label, label, bucket.getBallots()));
+        }
+        updateBars(chart, Map.of("Ballots per " + series.getGranularity(), points));
+        chart.setTitle("Turnout Over Time (ballots per " + series.getGranularity() + ")");
+    }
+
+    private static void relabel(List<Entry> entries, Map<String, PieChart.Data> slices) {
+        for (Entry entry : entries) {
+            PieChart.Data slice = slices.get(entry.getKey());
+            if (!slice.getName().equals(entry.getLabel())) {
+                slice.setName(entry.getLabel());
+            }
+        }
+    }
+
+    private static Map<String, XYChart.Data<String, Number>> barsByCategory(XYChart.Series<String, Number> series) {
+        Map<String, XYChart.Data<String, Number>> bars = new HashMap<>();
+        for (XYChart.Data<String, Number> bar : series.getData()) {
+            bars.put(bar.getXValue(), bar);
+        }
+        return bars;
+    }
+
+    private static boolean shouldAnimate(Chart chart, int changes) {
+        long now = System.currentTimeMillis();
+        Object last = chart.getProperties().put(LAST_UPDATE, now);
+        return changes <= MAX_ANIMATED_CHANGES
+                && (last == null || now - (Long) last >= ANIMATION_INTERVAL_MILLIS);
+    }
+}
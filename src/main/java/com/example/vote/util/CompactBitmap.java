@@ -0,0 +1,390 @@
+package com.example.vote.util;
+
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of non-negative ints in the style of Roaring bitmaps.
+ *
+ * Values are split by their high 16 bits into chunks. A sparse chunk stores its low
+ * 16 bits in a sorted char array; once it holds more than 4096 values it switches to a
+ * 1024-word bitset, which is smaller from that point on. Not thread-safe.
+ */
+public class CompactBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[4];
+    private Chunk[] chunks = new Chunk[4];
+    private int chunkCount = 0;
+    private long cardinality = 0;
+
+    /**
+     * Add a value
+     *
+     * @param value The value, must not be negative
+     * @return true if the value was not present before
+     */
+    public boolean add(int value) {
+        checkValue(value);
+        char high = (char) (value >>> 16);
+        int index = findChunk(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, high, new ArrayChunk());
+        }
+        Chunk chunk = chunks[index];
+        if (!chunk.add((char) value)) {
+            return false;
+        }
+        if (chunk instanceof ArrayChunk && chunk.cardinality() > ARRAY_MAX) {
+            chunks[index] = ((ArrayChunk) chunk).toBitmap();
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Add every value in the inclusive range [from, to]
+     *
+     * @param from First value of the range
+     * @param to Last value of the range
+     */
+    public void addRange(int from, int to) {
+        checkValue(from);
+        if (to < from) {
+            return;
+        }
+        int value = from;
+        while (true) {
+            char high = (char) (value >>> 16);
+            int chunkEnd = Math.min(to, (high << 16) | 0xFFFF);
+            int index = findChunk(high);
+            if (index < 0) {
+                index = -index - 1;
+                insertChunk(index, high, new BitmapChunk());
+            } else if (chunks[index] instanceof ArrayChunk) {
+                chunks[index] = ((ArrayChunk) chunks[index]).toBitmap();
+            }
+            BitmapChunk chunk = (BitmapChunk) chunks[index];
+            cardinality -= chunk.cardinality();
+            chunk.setRange((char) value, (char) chunkEnd);
+            cardinality += chunk.cardinality();
+            if (chunkEnd == to) {
+                break;
+            }
+            value = chunkEnd + 1;
+        }
+    }
+
+    /**
+     * Remove a value
+     *
+     * @param value The value
+     * @return true if the value was present
+     */
+    public boolean remove(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = findChunk((char) (value >>> 16));
+        if (index < 0 || !chunks[index].remove((char) value)) {
+            return false;
+        }
+        cardinality--;
+        if (chunks[index].cardinality() == 0) {
+            System.arraycopy(keys, index + 1, keys, index, chunkCount - index - 1);
+            System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+            chunks[--chunkCount] = null;
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a value is present
+     *
+     * @param value The value
+     * @return true if present
+     */
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = findChunk((char) (value >>> 16));
+        return index >= 0 && chunks[index].contains((char) value);
+    }
+
+    /**
+     * Get the number of values in the bitmap
+     *
+     * @return The cardinality
+     */
+    public long cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Count the values present in both this bitmap and another
+     *
+     * @param other The other bitmap
+     * @return Size of the intersection
+     */
+    public long andCardinality(CompactBitmap other) {
+        long count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += chunks[i].andCardinality(other.chunks[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the values as sorted, inclusive [start, end] ranges
+     *
+     * @return Array of {start, end} pairs
+     */
+    public int[][] toRanges() {
+        int[][] ranges = new int[16][];
+        int count = 0;
+        int start = -1;
+        int previous = -2;
+        for (int c = 0; c < chunkCount; c++) {
+            int base = keys[c] << 16;
+            Chunk chunk = chunks[c];
+            for (int low = chunk.nextValue(0); low >= 0; low = chunk.nextValue(low + 1)) {
+                int value = base | low;
+                if (value != previous + 1) {
+                    if (start >= 0) {
+                        if (count == ranges.length) {
+                            ranges = Arrays.copyOf(ranges, count * 2);
+                        }
+                        ranges[count++] = new int[] {start, previous};
+                    }
+                    start = value;
+                }
+                previous = value;
+            }
+        }
+        if (start >= 0) {
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count + 1);
+            }
+            ranges[count++] = new int[] {start, previous};
+        }
+        return Arrays.copyOf(ranges, count);
+    }
+
+    private int findChunk(char high) {
+        return Arrays.binarySearch(keys, 0, chunkCount, high);
+    }
+
+    private void insertChunk(int index, char high, Chunk chunk) {
+        if (chunkCount == keys.length) {
+            keys = Arrays.copyOf(keys, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        keys[index] = high;
+        chunks[index] = chunk;
+        chunkCount++;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap values cannot be negative: " + value);
+        }
+    }
+
+    /**
+     * Storage for the low 16 bits of one chunk
+     */
+    private interface Chunk {
+        boolean add(char low);
+
+        boolean remove(char low);
+
+        boolean contains(char low);
+
+        int cardinality();
+
+        long andCardinality(Chunk other);
+
+        /**
+         * @return The smallest value >= from, or -1 if there is none
+         */
+        int nextValue(int from);
+    }
+
+    private static final class ArrayChunk implements Chunk {
+        private char[] values = new char[4];
+        private int size = 0;
+
+        @Override
+        public boolean add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(size * 2, ARRAY_MAX + 1));
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = low;
+            size++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return size;
+        }
+
+        @Override
+        public long andCardinality(Chunk other) {
+            long count = 0;
+            for (int i = 0; i < size; i++) {
+                if (other.contains(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(values, 0, size, (char) from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < size ? values[index] : -1;
+        }
+
+        BitmapChunk toBitmap() {
+            BitmapChunk bitmap = new BitmapChunk();
+            for (int i = 0; i < size; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapChunk implements Chunk {
+        private final long[] words = new long[BITMAP_WORDS];
+        private int cardinality = 0;
+
+        @Override
+        public boolean add(char low) {
+            long mask = 1L << low;
+            int word = low >>> 6;
+            if ((words[word] & mask) != 0) {
+                return false;
+            }
+            words[word] |= mask;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        public boolean remove(char low) {
+            long mask = 1L << low;
+            int word = low >>> 6;
+            if ((words[word] & mask) == 0) {
+                return false;
+            }
+            words[word] &= ~mask;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public long andCardinality(Chunk other) {
+            if (other instanceof BitmapChunk) {
+                long[] otherWords = ((BitmapChunk) other).words;
+                long count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    count += Long.bitCount(words[i] & otherWords[i]);
+                }
+                return count;
+            }
+            return other.andCardinality(this);
+        }
+
+        @Override
+        public int nextValue(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int word = from >>> 6;
+            long bits = words[word] & (-1L << from);
+            while (true) {
+                if (bits != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                if (++word == BITMAP_WORDS) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+        }
+
+        void setRange(char from, char to) {
+            int firstWord = from >>> 6;
+            int lastWord = to >>> 6;
+            for (int word = firstWord; word <= lastWord; word++) {
+                long mask = -1L;
+                if (word == firstWord) {
+                    mask &= -1L << from;
+                }
+                if (word == lastWord) {
+                    mask &= -1L >>> (63 - (to & 63));
+                }
+                cardinality += Long.bitCount(mask & ~words[word]);
+                words[word] |= mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.vote.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for RFC 4180 style CSV: comma separated, optionally double-quoted
+ * fields, doubled quotes inside quoted fields, and line breaks inside quoted fields.
+ * Only the current record is held in memory.
+ */
+public class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+    private int lineNumber = 0;
+    private int recordLine = 0;
+
+    /**
+     * @param reader The CSV source; wrapping it in a BufferedReader is not necessary
+     */
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next record
+     *
+     * @return The fields of the record, or null at the end of the input
+     * @throws IOException if the source could not be read
+     */
+    public List<String> readRecord() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        lineNumber++;
+        recordLine = lineNumber;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean afterQuote = false;
+
+        while (true) {
+            if (c < 0) {
+                fields.add(field.toString());
+                return fields;
+            }
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        afterQuote = true;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (ch == '\n') {
+                        lineNumber++;
+                    }
+                    field.append(ch);
+                }
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                afterQuote = false;
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r') {
+                    int next = read();
+                    if (next != '\n' && next >= 0) {
+                        position--;
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (ch == '"' && field.length() == 0 && !afterQuote) {
+                quoted = true;
+            } else {
+                field.append(ch);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * @return The line number the last record started on, starting at 1
+     */
+    public int getLineNumber() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
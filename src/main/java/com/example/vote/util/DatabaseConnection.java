@@ -3,52 +3,109 @@ package com.example.vote.util;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 /**
- * Utility class to manage database connections
+ * Utility class to manage database connections. The backend is MySQL unless the system
+ * property vote.db is set to "embedded", which selects a local file database that needs
+ * no server (see EmbeddedDatabase). Read-only work can be routed to a MySQL read replica
+ * (see ReplicaRouter). Connections are instrumented with per-statement timings
+ * (see InstrumentedConnection).
  */
 public class DatabaseConnection {
     private static final String URL = "jdbc:mysql://localhost:3306/vote";
     private static final String USER = "root";
     private static final String PASSWORD = "";
-    
-    private static Connection connection;
-    
+    private static final int EMBEDDED_FETCH_SIZE = 1000;
+
+    private static final Metrics.Timer CONNECT_TIME = Metrics.timer("vote_db_connect_seconds", "Time to open a database connection");
+    private static final Metrics.Counter CONNECT_FAILURES = Metrics.counter("vote_db_connect_failures_total", "Failed attempts to open a database connection");
+    private static volatile long lastConnectFailure = 0;
+
+    /**
+     * Check if the embedded database backend is selected
+     * @return true for the embedded backend, false for MySQL
+     */
+    public static boolean isEmbedded() {
+        return "embedded".equalsIgnoreCase(System.getProperty("vote.db", "mysql"));
+    }
+
     /**
      * Get the database connection URL
      * @return the JDBC URL string
      */
     public static String getConnectionUrl() {
-        return URL;
+        return isEmbedded() ? EmbeddedDatabase.getConnectionUrl() : URL;
     }
-    
+
     /**
-     * Get a connection to the database
+     * Get a connection to the database. Each call opens a dedicated connection because
+     * background tasks use the database concurrently with the UI; callers must close it.
      * @return Connection object
      * @throws SQLException if a database error occurs
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
+        long start = System.nanoTime();
+        try {
+            Connection conn;
+            if (isEmbedded()) {
+                conn = EmbeddedDatabase.getConnection();
+            } else {
                 Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            } catch (ClassNotFoundException e) {
-                throw new SQLException("MySQL JDBC Driver not found", e);
+                conn = DriverManager.getConnection(URL, USER, PASSWORD);
             }
+            CONNECT_TIME.recordSince(start);
+            return InstrumentedConnection.wrap(conn);
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL JDBC Driver not found", e);
+        } catch (SQLException e) {
+            CONNECT_FAILURES.increment();
+            lastConnectFailure = System.currentTimeMillis();
+            throw e;
         }
-        return connection;
     }
-    
+
     /**
-     * Close the database connection
+     * Get the time since opening a connection to the primary database last failed
+     * @return Milliseconds since the last failure, Long.MAX_VALUE if none failed
      */
-    public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing database connection: " + e.getMessage());
-            }
+    public static long getLastConnectFailureAgeMillis() {
+        long failure = lastConnectFailure;
+        return failure == 0 ? Long.MAX_VALUE : System.currentTimeMillis() - failure;
+    }
+
+    /**
+     * Get a read-only connection for results, reports and counters. It goes to the read replica
+     * while one is configured and in sync, and to the primary otherwise, so data may be as old
+     * as the replica's allowed lag. Use getConnection() to read data the user just wrote.
+     * @return Read-only Connection object
+     * @throws SQLException if a database error occurs
+     */
+    public static Connection getReadConnection() throws SQLException {
+        Connection conn = isEmbedded() ? null : InstrumentedConnection.wrap(ReplicaRouter.getConnection());
+        if (conn == null) {
+            conn = getConnection();
+        }
+        conn.setReadOnly(true);
+        return conn;
+    }
+
+    /**
+     * Make a forward-only statement stream its rows instead of buffering the whole result set
+     * @param stmt The statement to configure before it is executed
+     * @throws SQLException if the fetch size could not be set
+     */
+    public static void streamResults(Statement stmt) throws SQLException {
+        // Connector/J only streams with this sentinel; other drivers reject negative fetch sizes
+        stmt.setFetchSize(isEmbedded() ? EMBEDDED_FETCH_SIZE : Integer.MIN_VALUE);
+    }
+
+    /**
+     * Release the database on application exit
+     */
+    public static void shutdown() {
+        if (isEmbedded()) {
+            EmbeddedDatabase.shutdown();
         }
     }
 }
@@ -0,0 +1,489 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Statistics across all elections: turnout over time, votes per election, how many elections
+ * each user takes part in, and whether first-time voters of an election come back.
+ *
+ * Elections and users are loaded into small sorted indexes first, then the votes table is
+ * read once as a stream of (election, user) pairs packed into a long array. Fork-join tasks
+ * turn the pairs into one voter bitmap per election and then walk the bitmaps by user range.
+ * The report is cached for 5 minutes; pass refresh to compute it again.
+ */
+public class ElectionAnalytics {
+
+    /** Users who voted in this many elections or more share the last histogram bucket */
+    public static final int MAX_PARTICIPATION_BUCKET = 10;
+
+    private static final long CACHE_MILLIS = 5 * 60 * 1000;
+    private static final int SLICE_SIZE = 64 * 1024;
+
+    private static Report cached;
+
+    /**
+     * Turnout and votes of one election
+     */
+    public static class ElectionStats {
+        private final int electionId;
+        private final String title;
+        private final LocalDateTime startDate;
+        private final String status;
+        private final int voters;
+        private final long choices;
+        private final int eligibleVoters;
+        private final double turnoutChange;
+
+        ElectionStats(int electionId, String title, LocalDateTime startDate, String status, int voters,
+                      long choices, int eligibleVoters, double turnoutChange) {
+            this.electionId = electionId;
+            this.title = title;
+            this.startDate = startDate;
+            this.status = status;
+            this.voters = voters;
+            this.choices = choices;
+            this.eligibleVoters = eligibleVoters;
+            this.turnoutChange = turnoutChange;
+        }
+
+        public int getElectionId() {
+            return electionId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public LocalDateTime getStartDate() {
+            return startDate;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        /**
+         * @return Users who cast a ballot
+         */
+        public int getVoters() {
+            return voters;
+        }
+
+        /**
+         * @return Rows in the votes table, i.e. candidates chosen over all ballots
+         */
+        public long getChoices() {
+            return choices;
+        }
+
+        public int getEligibleVoters() {
+            return eligibleVoters;
+        }
+
+        /**
+         * @return Turnout in percent
+         */
+        public double getTurnout() {
+            return eligibleVoters == 0 ? 0 : voters * 100.0 / eligibleVoters;
+        }
+
+        /**
+         * @return Change in turnout from the previous election in percentage points, NaN for the first
+         */
+        public double getTurnoutChange() {
+            return turnoutChange;
+        }
+    }
+
+    /**
+     * Users who voted for the first time in one election
+     */
+    public static class Cohort {
+        private final int electionId;
+        private final String title;
+        private final long newVoters;
+        private final long returned;
+
+        Cohort(int electionId, String title, long newVoters, long returned) {
+            this.electionId = electionId;
+            this.title = title;
+            this.newVoters = newVoters;
+            this.returned = returned;
+        }
+
+        public int getElectionId() {
+            return electionId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public long getNewVoters() {
+            return newVoters;
+        }
+
+        /**
+         * @return First-time voters of this election who voted in a later one
+         */
+        public long getReturned() {
+            return returned;
+        }
+
+        public double getReturnRate() {
+            return newVoters == 0 ? 0 : returned * 100.0 / newVoters;
+        }
+    }
+
+    /**
+     * All statistics from one pass over the votes
+     */
+    public static class Report {
+        private final List<ElectionStats> elections;
+        private final List<Cohort> cohorts;
+        private final long[] participation;
+        private final int votingUsers;
+        private final long rowsScanned;
+        private final long computeMillis;
+        private final LocalDateTime computedAt = LocalDateTime.now();
+        private final long computedAtMillis = System.currentTimeMillis();
+
+        Report(List<ElectionStats> elections, List<Cohort> cohorts, long[] participation, int votingUsers,
+               long rowsScanned, long computeMillis) {
+            this.elections = elections;
+            this.cohorts = cohorts;
+            this.participation = participation;
+            this.votingUsers = votingUsers;
+            this.rowsScanned = rowsScanned;
+            this.computeMillis = computeMillis;
+        }
+
+        /**
+         * @return Elections in order of their start date
+         */
+        public List<ElectionStats> getElections() {
+            return elections;
+        }
+
+        /**
+         * @return First-time voter cohorts in order of the election's start date
+         */
+        public List<Cohort> getCohorts() {
+            return cohorts;
+        }
+
+        /**
+         * @param elections Number of elections, the last bucket includes more
+         * @return Users who voted in that many elections
+         */
+        public long getUsersVotingIn(int elections) {
+            return participation[Math.min(elections, MAX_PARTICIPATION_BUCKET)];
+        }
+
+        /**
+         * @return Users with the voter role
+         */
+        public int getVotingUsers() {
+            return votingUsers;
+        }
+
+        /**
+         * @return Users who voted in at least one election
+         */
+        public long getParticipants() {
+            long participants = 0;
+            for (int i = 1; i < participation.length; i++) {
+                participants += participation[i];
+            }
+            return participants;
+        }
+
+        /**
+         * @return Share of voting users who voted at least once, in percent
+         */
+        public double getParticipationRate() {
+            return votingUsers == 0 ? 0 : Math.min(100, getParticipants() * 100.0 / votingUsers);
+        }
+
+        public long getRowsScanned() {
+            return rowsScanned;
+        }
+
+        public long getComputeMillis() {
+            return computeMillis;
+        }
+
+        public LocalDateTime getComputedAt() {
+            return computedAt;
+        }
+    }
+
+    /**
+     * Get the analytics report
+     *
+     * @param refresh true to compute it again even if a recent report is cached
+     * @return The report
+     * @throws SQLException if the elections, users or votes could not be read
+     */
+    public static synchronized Report get(boolean refresh) throws SQLException {
+        if (!refresh && cached != null && System.currentTimeMillis() - cached.computedAtMillis < CACHE_MILLIS) {
+            return cached;
+        }
+        cached = compute();
+        return cached;
+    }
+
+    private static Report compute() throws SQLException {
+        long start = System.nanoTime();
+        FlightEvents.ResultsEvent event = FlightEvents.beginResults("analytics", 0);
+
+        int[] electionIds;
+        String[] titles;
+        LocalDateTime[] startDates;
+        String[] statuses;
+        int[] userIds;
+        int votingUsers = 0;
+        long[] pairs = new long[SLICE_SIZE];
+        int pairCount = 0;
+
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            // Election index in start order, so bitmap order is chronological
+            List<Object[]> elections = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id, title, start_date, status FROM elections ORDER BY start_date, id");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    elections.add(new Object[] {rs.getInt("id"), rs.getString("title"),
+                            rs.getTimestamp("start_date").toLocalDateTime(), rs.getString("status")});
+                }
+            }
+            electionIds = new int[elections.size()];
+            titles = new String[elections.size()];
+            startDates = new LocalDateTime[elections.size()];
+            statuses = new String[elections.size()];
+            Map<Integer, Integer> electionIndex = new HashMap<>();
+            for (int i = 0; i < elections.size(); i++) {
+                Object[] election = elections.get(i);
+                electionIds[i] = (Integer) election[0];
+                titles[i] = (String) election[1];
+                startDates[i] = (LocalDateTime) election[2];
+                statuses[i] = (String) election[3];
+                electionIndex.put(electionIds[i], i);
+            }
+
+            // User index: sorted IDs, a user's bit is their position in the array
+            int[] ids = new int[1024];
+            int userCount = 0;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id, role FROM users ORDER BY id")) {
+                DatabaseConnection.streamResults(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (userCount == ids.length) {
+                            ids = Arrays.copyOf(ids, ids.length * 2);
+                        }
+                        ids[userCount++] = rs.getInt(1);
+                        if ("user".equals(rs.getString(2))) {
+                            votingUsers++;
+                        }
+                    }
+                }
+            }
+            userIds = Arrays.copyOf(ids, userCount);
+
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT election_id, user_id FROM votes")) {
+                DatabaseConnection.streamResults(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Integer election = electionIndex.get(rs.getInt(1));
+                        int user = Arrays.binarySearch(userIds, rs.getInt(2));
+                        if (election == null || user < 0) {
+                            continue;
+                        }
+                        if (pairCount == pairs.length) {
+                            pairs = Arrays.copyOf(pairs, pairs.length + (pairs.length >> 1));
+                        }
+                        pairs[pairCount++] = ((long) election << 32) | user;
+                    }
+                }
+            }
+        }
+
+        int electionCount = electionIds.length;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Voters voters = pool.invoke(new VoterTask(pairs, electionCount, 0, pairCount));
+        Participation participation = pool.invoke(new ParticipationTask(voters.bitmaps, 0, userIds.length));
+
+        List<ElectionStats> electionStats = new ArrayList<>(electionCount);
+        List<Cohort> cohorts = new ArrayList<>(electionCount);
+        double previousTurnout = Double.NaN;
+        for (int i = 0; i < electionCount; i++) {
+            int electionVoters = voters.bitmaps[i].cardinality();
+            int eligible = VoterRolls.countEligible(electionIds[i]);
+            double turnout = eligible == 0 ? 0 : electionVoters * 100.0 / eligible;
+            ElectionStats stats = new ElectionStats(electionIds[i], titles[i], startDates[i], statuses[i],
+                    electionVoters, voters.choices[i], eligible, turnout - previousTurnout);
+            previousTurnout = turnout;
+            electionStats.add(stats);
+            cohorts.add(new Cohort(electionIds[i], titles[i], participation.newVoters[i], participation.returned[i]));
+        }
+
+        // Users without votes are counted against the voter role, not every account
+        long participants = 0;
+        for (int i = 1; i < participation.histogram.length; i++) {
+            participants += participation.histogram[i];
+        }
+        participation.histogram[0] = Math.max(0, votingUsers - participants);
+
+        event.commit();
+        return new Report(Collections.unmodifiableList(electionStats), Collections.unmodifiableList(cohorts),
+                participation.histogram, votingUsers, pairCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Voter bitmap and number of vote rows per election
+     */
+    private static final class Voters {
+        final BitSet[] bitmaps;
+        final long[] choices;
+
+        Voters(int elections) {
+            bitmaps = new BitSet[elections];
+            for (int i = 0; i < elections; i++) {
+                bitmaps[i] = new BitSet();
+            }
+            choices = new long[elections];
+        }
+    }
+
+    /**
+     * Per-user results added up over a range of users
+     */
+    private static final class Participation {
+        final long[] histogram = new long[MAX_PARTICIPATION_BUCKET + 1];
+        final long[] newVoters;
+        final long[] returned;
+
+        Participation(int elections) {
+            newVoters = new long[elections];
+            returned = new long[elections];
+        }
+    }
+
+    /**
+     * Builds the voter bitmaps from a slice of (election, user) pairs
+     */
+    private static final class VoterTask extends RecursiveTask<Voters> {
+        private final long[] pairs;
+        private final int elections;
+        private final int from;
+        private final int to;
+
+        VoterTask(long[] pairs, int elections, int from, int to) {
+            this.pairs = pairs;
+            this.elections = elections;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Voters compute() {
+            if (to - from <= SLICE_SIZE) {
+                Voters voters = new Voters(elections);
+                for (int i = from; i < to; i++) {
+                    int election = (int) (pairs[i] >>> 32);
+                    voters.bitmaps[election].set((int) pairs[i]);
+                    voters.choices[election]++;
+                }
+                return voters;
+            }
+            int middle = (from + to) >>> 1;
+            VoterTask left = new VoterTask(pairs, elections, from, middle);
+            VoterTask right = new VoterTask(pairs, elections, middle, to);
+            left.fork();
+            Voters voters = right.compute();
+            Voters leftVoters = left.join();
+            for (int i = 0; i < elections; i++) {
+                voters.bitmaps[i].or(leftVoters.bitmaps[i]);
+                voters.choices[i] += leftVoters.choices[i];
+            }
+            return voters;
+        }
+    }
+
+    /**
+     * Counts the elections of each user in a range and the election they first voted in
+     */
+    private static final class ParticipationTask extends RecursiveTask<Participation> {
+        private final BitSet[] bitmaps;
+        private final int from;
+        private final int to;
+
+        ParticipationTask(BitSet[] bitmaps, int from, int to) {
+            this.bitmaps = bitmaps;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Participation compute() {
+            if (to - from <= SLICE_SIZE) {
+                return countSlice();
+            }
+            int middle = (from + to) >>> 1;
+            ParticipationTask left = new ParticipationTask(bitmaps, from, middle);
+            ParticipationTask right = new ParticipationTask(bitmaps, middle, to);
+            left.fork();
+            Participation participation = right.compute();
+            Participation leftParticipation = left.join();
+            for (int i = 0; i < participation.histogram.length; i++) {
+                participation.histogram[i] += leftParticipation.histogram[i];
+            }
+            for (int i = 0; i < bitmaps.length; i++) {
+                participation.newVoters[i] += leftParticipation.newVoters[i];
+                participation.returned[i] += leftParticipation.returned[i];
+            }
+            return participation;
+        }
+
+        private Participation countSlice() {
+            Participation participation = new Participation(bitmaps.length);
+            int[] counts = new int[to - from];
+            int[] first = new int[to - from];
+            Arrays.fill(first, -1);
+
+            // Bitmaps are in start order, so the first election seen for a user is their first vote
+            for (int election = 0; election < bitmaps.length; election++) {
+                BitSet bitmap = bitmaps[election];
+                for (int user = bitmap.nextSetBit(from); user >= 0 && user < to; user = bitmap.nextSetBit(user + 1)) {
+                    if (counts[user - from]++ == 0) {
+                        first[user - from] = election;
+                    }
+                }
+            }
+
+            for (int i = 0; i < counts.length; i++) {
+                participation.histogram[Math.min(counts[i], MAX_PARTICIPATION_BUCKET)]++;
+                if (first[i] >= 0) {
+                    participation.newVoters[first[i]]++;
+                    if (counts[i] > 1) {
+                        participation.returned[first[i]]++;
+                    }
+                }
+            }
+            return participation;
+        }
+    }
+}
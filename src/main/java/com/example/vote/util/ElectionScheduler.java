@@ -0,0 +1,333 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives the election lifecycle: flips elections from pending to active at their
+ * start date and from active to completed at their end date, and keeps the set of
+ * currently open elections in memory so dashboards don't have to scan the elections table.
+ */
+public class ElectionScheduler {
+
+    // Other kiosks may edit elections, so the schedule is rebuilt from the database periodically
+    private static final long RESYNC_SECONDS = 300;
+    private static final long RETRY_SECONDS = 10;
+
+    private static final Map<Integer, OpenElection> openElections = new ConcurrentHashMap<>();
+    private static final Map<Integer, Transition> transitions = new ConcurrentHashMap<>();
+
+    private static TimingWheel wheel;
+    private static volatile boolean loaded = false;
+
+    /**
+     * An election that is currently accepting votes
+     */
+    public static class OpenElection {
+        private final int id;
+        private final String title;
+        private final LocalDateTime startDate;
+        private final LocalDateTime endDate;
+
+        public OpenElection(int id, String title, LocalDateTime startDate, LocalDateTime endDate) {
+            this.id = id;
+            this.title = title;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public LocalDateTime getStartDate() {
+            return startDate;
+        }
+
+        public LocalDateTime getEndDate() {
+            return endDate;
+        }
+    }
+
+    /**
+     * One scheduled status change of an election. It only runs while it is still the
+     * election's current transition, so a task firing just as the election is rescheduled
+     * cannot undo the newer schedule.
+     */
+    private static class Transition implements Runnable {
+        private final int electionId;
+        private final Runnable action;
+        private volatile TimingWheel.Timeout timeout;
+        private volatile boolean cancelled = false;
+
+        Transition(int electionId, Runnable action) {
+            this.electionId = electionId;
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            if (!cancelled && transitions.remove(electionId, this)) {
+                action.run();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            TimingWheel.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * Start the scheduler. The initial load runs on the scheduler thread.
+     */
+    public static synchronized void start() {
+        if (wheel != null) {
+            return;
+        }
+        // 100ms ticks, 512 buckets: one revolution is ~51s, longer delays count rounds
+        wheel = new TimingWheel("election-scheduler", 100, TimeUnit.MILLISECONDS, 512);
+        wheel.schedule(ElectionScheduler::resync, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the scheduler and drop pending transitions
+     */
+    public static synchronized void shutdown() {
+        if (wheel != null) {
+            wheel.stop();
+            wheel = null;
+        }
+        transitions.clear();
+    }
+
+    /**
+     * Get the elections that are currently open for voting, ordered by start date
+     *
+     * @return Snapshot of open elections
+     * @throws SQLException if the schedule could not be loaded from the database
+     */
+    public static List<OpenElection> getOpenElections() throws SQLException {
+        List<OpenElection> result = new ArrayList<>(currentOpenElections().values());
+        result.sort(Comparator.comparing(OpenElection::getStartDate).thenComparing(OpenElection::getId));
+        return result;
+    }
+
+    /**
+     * Count the elections that are currently open for voting
+     *
+     * @return Number of open elections
+     * @throws SQLException if the schedule could not be loaded from the database
+     */
+    public static int countOpenElections() throws SQLException {
+        return currentOpenElections().size();
+    }
+
+    /**
+     * Check whether an election is currently open for voting
+     *
+     * @param electionId The election ID
+     * @return true if the election is open
+     * @throws SQLException if the schedule could not be loaded from the database
+     */
+    public static boolean isOpen(int electionId) throws SQLException {
+        return currentOpenElections().containsKey(electionId);
+    }
+
+    /**
+     * (Re)schedule an election after it was created or edited
+     *
+     * @param electionId The election ID
+     * @param title The election title
+     * @param startDate When voting opens
+     * @param endDate When voting closes
+     * @param status The current status
+     */
+    public static void track(int electionId, String title, LocalDateTime startDate,
+                             LocalDateTime endDate, String status) {
+        cancelTransition(electionId);
+
+        if (!"pending".equalsIgnoreCase(status) && !"active".equalsIgnoreCase(status)) {
+            // Completed or cancelled elections have no further transitions
+            openElections.remove(electionId);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long start = toMillis(startDate);
+        long end = toMillis(endDate);
+
+        if (now >= end) {
+            openElections.remove(electionId);
+            scheduleTransition(electionId, now, () -> close(electionId));
+        } else if (now >= start) {
+            openElections.put(electionId, new OpenElection(electionId, title, startDate, endDate));
+            if ("pending".equalsIgnoreCase(status)) {
+                updateStatus(electionId, "active", "pending");
+            }
+            scheduleTransition(electionId, end, () -> close(electionId));
+        } else {
+            openElections.remove(electionId);
+            scheduleTransition(electionId, start, () -> open(electionId, title, startDate, endDate));
+        }
+    }
+
+    /**
+     * Stop tracking an election, e.g. after it was deleted
+     *
+     * @param electionId The election ID
+     */
+    public static void remove(int electionId) {
+        cancelTransition(electionId);
+        openElections.remove(electionId);
+    }
+
+    private static void open(int electionId, String title, LocalDateTime startDate, LocalDateTime endDate) {
+        updateStatus(electionId, "active", "pending");
+        openElections.put(electionId, new OpenElection(electionId, title, startDate, endDate));
+        scheduleTransition(electionId, toMillis(endDate), () -> close(electionId));
+    }
+
+    private static void close(int electionId) {
+        openElections.remove(electionId);
+        if (updateStatus(electionId, "completed", "pending", "active")) {
+            try {
+                ResultsSnapshots.freeze(electionId);
+            } catch (SQLException e) {
+                // Frozen on first view instead
+                System.err.println("Failed to freeze results of election " + electionId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rebuild the schedule from the elections table
+     */
+    private static void resync() {
+        String sql = "SELECT id, title, start_date, end_date, status FROM elections " +
+                     "WHERE status IN ('pending', 'active')";
+
+        long nextResyncSeconds = RETRY_SECONDS;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+
+            Set<Integer> seen = new HashSet<>();
+            while (rs.next()) {
+                int id = rs.getInt("id");
+                seen.add(id);
+                track(id, rs.getString("title"),
+                        rs.getTimestamp("start_date").toLocalDateTime(),
+                        rs.getTimestamp("end_date").toLocalDateTime(),
+                        rs.getString("status"));
+            }
+
+            // Elections that were deleted, completed or cancelled elsewhere
+            openElections.keySet().retainAll(seen);
+            loaded = true;
+            nextResyncSeconds = RESYNC_SECONDS;
+
+        } catch (SQLException e) {
+            System.err.println("Failed to load election schedule: " + e.getMessage());
+        } finally {
+            TimingWheel current = wheel;
+            if (current != null) {
+                current.schedule(ElectionScheduler::resync, nextResyncSeconds, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static boolean updateStatus(int electionId, String newStatus, String... fromStatuses) {
+        String placeholders = String.join(", ", Collections.nCopies(fromStatuses.length, "?"));
+        String sql = "UPDATE elections SET status = ? WHERE id = ? AND status IN (" + placeholders + ")";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, newStatus);
+            stmt.setInt(2, electionId);
+            for (int i = 0; i < fromStatuses.length; i++) {
+                stmt.setString(i + 3, fromStatuses[i]);
+            }
+            return stmt.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            System.err.println("Failed to set election " + electionId + " to " + newStatus + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void scheduleTransition(int electionId, long atMillis, Runnable task) {
+        TimingWheel current = wheel;
+        if (current != null) {
+            Transition transition = new Transition(electionId, task);
+            Transition previous = transitions.put(electionId, transition);
+            if (previous != null) {
+                previous.cancel();
+            }
+            transition.timeout = current.scheduleAt(transition, atMillis);
+        }
+    }
+
+    private static void cancelTransition(int electionId) {
+        Transition transition = transitions.remove(electionId);
+        if (transition != null) {
+            transition.cancel();
+        }
+    }
+
+    /**
+     * Get the open elections without waiting for the scheduler. Until its first load has
+     * finished they are read from the database, so callers on the FX thread never block on it.
+     */
+    private static Map<Integer, OpenElection> currentOpenElections() throws SQLException {
+        start();
+        if (loaded) {
+            return openElections;
+        }
+
+        String sql = "SELECT id, title, start_date, end_date FROM elections " +
+                     "WHERE status IN ('pending', 'active') AND start_date <= ? AND end_date > ?";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        Map<Integer, OpenElection> result = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, now);
+            stmt.setTimestamp(2, now);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    result.put(id, new OpenElection(id, rs.getString("title"),
+                            rs.getTimestamp("start_date").toLocalDateTime(),
+                            rs.getTimestamp("end_date").toLocalDateTime()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return Timestamp.valueOf(dateTime).getTime();
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the votes of an election in one streaming pass over the votes table and groups
+ * the candidate totals by position, so multi-position elections don't need a grouped
+ * query per position.
+ */
+public class ElectionTally {
+
+    /** Position name used for candidates without a position */
+    public static final String GENERAL_POSITION = "General";
+
+    /**
+     * Votes for one candidate
+     */
+    public static class CandidateTally {
+        private final int candidateId;
+        private final String name;
+        private final String position;
+        private final long votes;
+
+        public CandidateTally(int candidateId, String name, String position, long votes) {
+            this.candidateId = candidateId;
+            this.name = name;
+            this.position = position;
+            this.votes = votes;
+        }
+
+        public int getCandidateId() {
+            return candidateId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPosition() {
+            return position;
+        }
+
+        public long getVotes() {
+            return votes;
+        }
+    }
+
+    /**
+     * Candidate totals for one position, most votes first
+     */
+    public static class PositionTally {
+        private final String position;
+        private final List<CandidateTally> candidates;
+        private final long totalVotes;
+
+        public PositionTally(String position, List<CandidateTally> candidates) {
+            this.position = position;
+            this.candidates = Collections.unmodifiableList(candidates);
+            long total = 0;
+            for (CandidateTally candidate : candidates) {
+                total += candidate.getVotes();
+            }
+            this.totalVotes = total;
+        }
+
+        public String getPosition() {
+            return position;
+        }
+
+        public List<CandidateTally> getCandidates() {
+            return candidates;
+        }
+
+        public long getTotalVotes() {
+            return totalVotes;
+        }
+    }
+
+    /**
+     * Count the votes of an election
+     *
+     * @param conn The database connection
+     * @param electionId The election ID
+     * @param groupByPosition true to rank candidates per position, false to rank them all together
+     * @return One tally per position in ballot order, or a single tally if not grouped
+     * @throws SQLException if the votes could not be read
+     */
+    public static List<PositionTally> tally(Connection conn, int electionId, boolean groupByPosition) throws SQLException {
+        List<CandidateTally> candidates = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id, name, position FROM candidates WHERE election_id = ? ORDER BY id")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String position = rs.getString("position");
+                    if (position == null || position.trim().isEmpty()) {
+                        position = GENERAL_POSITION;
+                    }
+                    candidates.add(new CandidateTally(rs.getInt("id"), rs.getString("name"), position, 0));
+                }
+            }
+        }
+
+        // Candidates are ordered by ID, so a binary search maps a vote to its counter
+        int[] candidateIds = new int[candidates.size()];
+        for (int i = 0; i < candidateIds.length; i++) {
+            candidateIds[i] = candidates.get(i).getCandidateId();
+        }
+        long[] counts = new long[candidateIds.length];
+
+        String sql = "SELECT candidate_id FROM votes WHERE election_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Stream rows instead of buffering the whole result set
+            DatabaseConnection.streamResults(stmt);
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int index = Arrays.binarySearch(candidateIds, rs.getInt(1));
+                    if (index >= 0) {
+                        counts[index]++;
+                    }
+                }
+            }
+        }
+
+        Map<String, List<CandidateTally>> byPosition = new LinkedHashMap<>();
+        for (int i = 0; i < candidateIds.length; i++) {
+            CandidateTally candidate = candidates.get(i);
+            String group = groupByPosition ? candidate.getPosition() : "";
+            byPosition.computeIfAbsent(group, key -> new ArrayList<>())
+                    .add(new CandidateTally(candidate.getCandidateId(), candidate.getName(),
+                            candidate.getPosition(), counts[i]));
+        }
+
+        List<PositionTally> positions = new ArrayList<>();
+        for (Map.Entry<String, List<CandidateTally>> entry : byPosition.entrySet()) {
+            List<CandidateTally> ranked = entry.getValue();
+            ranked.sort((a, b) -> Long.compare(b.getVotes(), a.getVotes()));
+            positions.add(new PositionTally(entry.getKey(), ranked));
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reuse of election slates: cloning an election together with its candidates and voter
+ * roll, and bulk import of candidates from CSV. Copies are made with INSERT ... SELECT so
+ * the rows never leave the database.
+ */
+public class ElectionTemplates {
+
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Outcome of a candidate import
+     */
+    public static class ImportResult {
+        private final int imported;
+        private final List<String> errors;
+
+        public ImportResult(int imported, List<String> errors) {
+            this.imported = imported;
+            this.errors = errors;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Create a pending copy of an election with the same description, voting method,
+     * candidates and voter roll. Votes are not copied.
+     *
+     * @param sourceElectionId The election to copy
+     * @param title Title of the new election
+     * @param startDate Start of the new election
+     * @param endDate End of the new election
+     * @return The ID of the new election
+     * @throws SQLException if the election could not be copied; nothing is created in that case
+     */
+    public static int cloneElection(int sourceElectionId, String title, LocalDateTime startDate,
+                                    LocalDateTime endDate) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int electionId;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO elections (title, description, start_date, end_date, status, voting_method, created_by) " +
+                        "SELECT ?, description, ?, ?, 'pending', voting_method, created_by FROM elections WHERE id = ?",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, title);
+                    stmt.setTimestamp(2, Timestamp.valueOf(startDate));
+                    stmt.setTimestamp(3, Timestamp.valueOf(endDate));
+                    stmt.setInt(4, sourceElectionId);
+                    if (stmt.executeUpdate() != 1) {
+                        throw new SQLException("Election " + sourceElectionId + " does not exist");
+                    }
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("No ID returned for the cloned election");
+                        }
+                        electionId = keys.getInt(1);
+                    }
+                }
+
+                // ORDER BY keeps the ballot order of the source, which follows candidate IDs
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO candidates (election_id, name, profile, photo_url, position) " +
+                        "SELECT ?, name, profile, photo_url, position FROM candidates WHERE election_id = ? ORDER BY id")) {
+                    stmt.setInt(1, electionId);
+                    stmt.setInt(2, sourceElectionId);
+                    stmt.executeUpdate();
+                }
+
+                boolean copiedRoll;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO election_voter_rolls (election_id, first_user_id, last_user_id) " +
+                        "SELECT ?, first_user_id, last_user_id FROM election_voter_rolls WHERE election_id = ?")) {
+                    stmt.setInt(1, electionId);
+                    stmt.setInt(2, sourceElectionId);
+                    copiedRoll = stmt.executeUpdate() > 0;
+                }
+
+                conn.commit();
+                // Only now can a reload see the copied roll
+                if (copiedRoll) {
+                    VoterRolls.invalidateRolls();
+                }
+                return electionId;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Add candidates to an election from CSV with a header row containing name and position,
+     * and optionally profile and photo_url. Rows without a name or position are skipped.
+     *
+     * @param electionId The election to add the candidates to
+     * @param source The CSV to import
+     * @return The number of imported candidates and the skipped rows
+     * @throws IOException if the source could not be read or has no valid header
+     * @throws SQLException if the candidates could not be stored; nothing is imported in that case
+     */
+    public static ImportResult importCandidates(int electionId, Reader source) throws IOException, SQLException {
+        List<String> errors = new ArrayList<>();
+        int imported = 0;
+
+        try (CsvReader csv = new CsvReader(source);
+             Connection conn = DatabaseConnection.getConnection()) {
+
+            List<String> header = csv.readRecord();
+            if (header == null) {
+                throw new IOException("The file is empty");
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            if (!columns.containsKey("name") || !columns.containsKey("position")) {
+                throw new IOException("The header row needs 'name' and 'position' columns");
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO candidates (election_id, name, profile, photo_url, position) VALUES (?, ?, ?, ?, ?)")) {
+                int pending = 0;
+                List<String> record;
+                while ((record = csv.readRecord()) != null) {
+                    if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                        continue;
+                    }
+                    String name = field(record, columns, "name");
+                    String position = field(record, columns, "position");
+                    if (name.isEmpty() || position.isEmpty()) {
+                        errors.add("Line " + csv.getLineNumber() + ": name and position are required");
+                        continue;
+                    }
+                    if (name.length() > 100 || position.length() > 100) {
+                        errors.add("Line " + csv.getLineNumber() + ": name or position is longer than 100 characters");
+                        continue;
+                    }
+                    String profile = field(record, columns, "profile");
+                    String photoUrl = field(record, columns, "photo_url");
+
+                    stmt.setInt(1, electionId);
+                    stmt.setString(2, name);
+                    stmt.setString(3, profile.isEmpty() ? null : profile);
+                    stmt.setString(4, photoUrl.isEmpty() ? null : photoUrl);
+                    stmt.setString(5, position);
+                    stmt.addBatch();
+                    imported++;
+                    if (++pending == BATCH_SIZE) {
+                        stmt.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    stmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        return new ImportResult(imported, errors);
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= record.size() ? "" : record.get(index).trim();
+    }
+}
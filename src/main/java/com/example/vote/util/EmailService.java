@@ -79,7 +79,15 @@ public class EmailService {
             message.setText(emailContent);
             
             // Send message
-            Transport.send(message);
+            FlightEvents.EmailEvent sendEvent = new FlightEvents.EmailEvent();
+            sendEvent.recipientDomain = recipientEmail.substring(recipientEmail.lastIndexOf('@') + 1);
+            sendEvent.begin();
+            try {
+                Transport.send(message);
+                sendEvent.succeeded = true;
+            } finally {
+                sendEvent.commit();
+            }
             
             return true;
         } catch (MessagingException e) {
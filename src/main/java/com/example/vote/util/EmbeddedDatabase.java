@@ -0,0 +1,184 @@
+package com.example.vote.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * File-backed H2 database for single-kiosk installations that don't run a MySQL server.
+ * H2 runs in MySQL compatibility mode, so the application's SQL works unchanged. On first
+ * use the schema and seed data are created from the bundled database.sql.
+ */
+public class EmbeddedDatabase {
+
+    private static final String SCHEMA_RESOURCE = "/com/example/vote/db/database.sql";
+
+    private static boolean bootstrapped = false;
+
+    /**
+     * Get the database file path without extension. Set the system property vote.db.path to
+     * move it; the default is .vote/db/vote in the user's home.
+     *
+     * @return The database path
+     */
+    public static Path getPath() {
+        String configured = System.getProperty("vote.db.path");
+        if (configured != null && !configured.isEmpty()) {
+            return Paths.get(configured).toAbsolutePath();
+        }
+        return Paths.get(System.getProperty("user.home"), ".vote", "db", "vote");
+    }
+
+    /**
+     * Get the JDBC URL of the embedded database
+     *
+     * @return the JDBC URL string
+     */
+    public static String getConnectionUrl() {
+        // DB_CLOSE_DELAY keeps the database open between the short-lived connections the app uses
+        return "jdbc:h2:file:" + getPath() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Open a connection, creating the schema on first use
+     *
+     * @return Connection object
+     * @throws SQLException if the database could not be opened or created
+     */
+    public static Connection getConnection() throws SQLException {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("H2 JDBC Driver not found", e);
+        }
+        Connection conn = DriverManager.getConnection(getConnectionUrl(), "sa", "");
+        try {
+            bootstrap(conn);
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    /**
+     * Close the database files; the next connection reopens them
+     */
+    public static synchronized void shutdown() {
+        if (!bootstrapped) {
+            return;
+        }
+        try (Connection conn = DriverManager.getConnection(getConnectionUrl(), "sa", "");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } catch (SQLException e) {
+            System.err.println("Failed to shut down embedded database: " + e.getMessage());
+        }
+        bootstrapped = false;
+    }
+
+    private static synchronized void bootstrap(Connection conn) throws SQLException {
+        if (bootstrapped) {
+            return;
+        }
+        try (ResultSet rs = conn.getMetaData().getTables(null, "public", "users", null)) {
+            if (rs.next()) {
+                bootstrapped = true;
+                return;
+            }
+        }
+
+        List<String> statements;
+        try {
+            statements = readSchema();
+        } catch (IOException e) {
+            throw new SQLException("Could not read the bundled database schema", e);
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                String upper = sql.toUpperCase(Locale.ROOT);
+                // The database itself is the file; there is nothing to create or switch to
+                if (upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")) {
+                    continue;
+                }
+                stmt.execute(sql);
+            }
+            hashSeedPasswords(conn);
+        } catch (SQLException e) {
+            // Don't leave a half-created schema behind; the next start tries again
+            try (Statement cleanup = conn.createStatement()) {
+                cleanup.execute("DROP ALL OBJECTS");
+            } catch (SQLException cleanupError) {
+                System.err.println("Failed to clean up embedded database: " + cleanupError.getMessage());
+            }
+            throw e;
+        }
+        bootstrapped = true;
+    }
+
+    /**
+     * The seed users in database.sql have plain text passwords; login expects BCrypt hashes
+     */
+    private static void hashSeedPasswords(Connection conn) throws SQLException {
+        List<Object[]> seeds = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, password FROM users")) {
+            while (rs.next()) {
+                if (!PasswordHash.isHash(rs.getString("password"))) {
+                    seeds.add(new Object[] {rs.getInt("id"), rs.getString("password")});
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE users SET password = ? WHERE id = ?")) {
+            for (Object[] seed : seeds) {
+                stmt.setString(1, PasswordHash.hashPassword((String) seed[1]));
+                stmt.setInt(2, (Integer) seed[0]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Split database.sql into statements: comment lines are dropped and statements end with
+     * a semicolon at the end of a line
+     */
+    private static List<String> readSchema() throws IOException {
+        InputStream in = EmbeddedDatabase.class.getResourceAsStream(SCHEMA_RESOURCE);
+        if (in == null) {
+            throw new IOException("Resource not found: " + SCHEMA_RESOURCE);
+        }
+        List<String> statements = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            StringBuilder statement = new StringBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                statement.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    String sql = statement.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    statement.setLength(0);
+                }
+            }
+        }
+        return statements;
+    }
+}
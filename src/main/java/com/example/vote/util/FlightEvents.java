@@ -0,0 +1,229 @@
+package com.example.vote.util;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Java Flight Recorder events for user actions and the vote path. They cost next to nothing
+ * unless a recording is running. With -Dvote.jfr=true the application keeps a continuous
+ * recording using the bundled settings /com/example/vote/jfr/vote.jfc, holding the last
+ * 6 hours and written to ~/.vote/jfr/vote.jfr on exit. Summarize a recording with
+ * FlightRecordingSummary.
+ */
+public class FlightEvents {
+
+    private static final String CATEGORY = "Voting System";
+
+    private static final String SETTINGS = "/com/example/vote/jfr/vote.jfc";
+    private static final Duration MAX_AGE = Duration.ofHours(6);
+    private static final long MAX_SIZE = 250L * 1024 * 1024;
+
+    private static Recording recording;
+
+    @Name("com.example.vote.Login")
+    @Label("Login")
+    @Category({CATEGORY, "User Actions"})
+    @Description("Checking a username and password")
+    @StackTrace(false)
+    public static class LoginEvent extends Event {
+        @Label("Username")
+        public String username;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    @Name("com.example.vote.Navigation")
+    @Label("Screen Navigation")
+    @Category({CATEGORY, "User Actions"})
+    @Description("Loading the FXML of a screen or dialog")
+    @StackTrace(false)
+    public static class NavigationEvent extends Event {
+        @Label("Screen")
+        public String screen;
+    }
+
+    @Name("com.example.vote.VotePhase")
+    @Label("Vote Phase")
+    @Category({CATEGORY, "Vote Path"})
+    @Description("One phase of recording a ballot: duplicate check, insert, counter update or commit")
+    @StackTrace(false)
+    public static class VotePhaseEvent extends Event {
+        @Label("Phase")
+        public String phase;
+
+        @Label("Election ID")
+        public int electionId;
+    }
+
+    @Name("com.example.vote.VoteSubmission")
+    @Label("Vote Submission")
+    @Category({CATEGORY, "Vote Path"})
+    @Description("Recording a confirmed ballot, from opening the connection to the outcome")
+    @StackTrace(false)
+    public static class VoteSubmissionEvent extends Event {
+        @Label("Election ID")
+        public int electionId;
+
+        @Label("Choices")
+        public int choices;
+
+        @Label("Outcome")
+        public String outcome;
+    }
+
+    @Name("com.example.vote.Results")
+    @Label("Result Generation")
+    @Category({CATEGORY, "Results"})
+    @Description("Computing election results for a screen, report or tabulation")
+    @StackTrace(false)
+    public static class ResultsEvent extends Event {
+        @Label("Kind")
+        public String kind;
+
+        @Label("Election ID")
+        public int electionId;
+    }
+
+    @Name("com.example.vote.EmailSend")
+    @Label("Email Send")
+    @Category({CATEGORY, "Email"})
+    @Description("Sending an email over SMTP")
+    @StackTrace(false)
+    public static class EmailEvent extends Event {
+        @Label("Recipient Domain")
+        public String recipientDomain;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    /**
+     * Start the continuous recording if -Dvote.jfr=true
+     */
+    public static synchronized void startRecording() {
+        if (recording != null || !Boolean.getBoolean("vote.jfr")) {
+            return;
+        }
+        try (Reader settings = new InputStreamReader(FlightEvents.class.getResourceAsStream(SETTINGS), StandardCharsets.UTF_8)) {
+            Path directory = Paths.get(System.getProperty("user.home"), ".vote", "jfr");
+            Files.createDirectories(directory);
+
+            recording = new Recording(Configuration.create(settings));
+            recording.setName("vote");
+            recording.setToDisk(true);
+            recording.setMaxAge(MAX_AGE);
+            recording.setMaxSize(MAX_SIZE);
+            recording.setDestination(directory.resolve("vote.jfr"));
+            recording.setDumpOnExit(true);
+            recording.start();
+        } catch (IOException | ParseException e) {
+            System.err.println("Failed to start flight recording: " + e.getMessage());
+            recording = null;
+        }
+    }
+
+    /**
+     * Stop the continuous recording and write it to its destination
+     */
+    public static synchronized void stopRecording() {
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Start timing a phase of recording a ballot; call commit() on the result when it ends
+     *
+     * @param phase The phase name
+     * @param electionId The election ID
+     * @return The started event
+     */
+    public static VotePhaseEvent beginVotePhase(String phase, int electionId) {
+        VotePhaseEvent event = new VotePhaseEvent();
+        event.phase = phase;
+        event.electionId = electionId;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Start timing result generation; call commit() on the result when it ends
+     *
+     * @param kind What is generated, e.g. "report"
+     * @param electionId The election ID
+     * @return The started event
+     */
+    public static ResultsEvent beginResults(String kind, int electionId) {
+        ResultsEvent event = new ResultsEvent();
+        event.kind = kind;
+        event.electionId = electionId;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Load a screen with FXMLLoader.load, recorded as a navigation event
+     *
+     * @param location The FXML resource
+     * @return The loaded root node
+     * @throws IOException if the FXML could not be loaded
+     */
+    public static Parent loadScreen(URL location) throws IOException {
+        NavigationEvent event = new NavigationEvent();
+        event.begin();
+        try {
+            return FXMLLoader.load(location);
+        } finally {
+            event.screen = screenName(location);
+            event.commit();
+        }
+    }
+
+    /**
+     * Load a screen with a configured FXMLLoader, recorded as a navigation event
+     *
+     * @param loader The loader, with its location set
+     * @return The loaded root node
+     * @throws IOException if the FXML could not be loaded
+     */
+    public static <T> T loadScreen(FXMLLoader loader) throws IOException {
+        NavigationEvent event = new NavigationEvent();
+        event.begin();
+        try {
+            return loader.load();
+        } finally {
+            event.screen = screenName(loader.getLocation());
+            event.commit();
+        }
+    }
+
+    private static String screenName(URL location) {
+        if (location == null) {
+            return "(unknown)";
+        }
+        String path = location.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
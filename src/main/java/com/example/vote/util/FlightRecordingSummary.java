@@ -0,0 +1,86 @@
+package com.example.vote.util;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarizes the application's events in a flight recording: count and latency percentiles
+ * per event type, broken down by phase, screen or kind. Run it with the recording file:
+ *
+ * java -cp target/classes com.example.vote.util.FlightRecordingSummary ~/.vote/jfr/vote.jfr
+ */
+public class FlightRecordingSummary {
+
+    private static final String EVENT_PREFIX = "com.example.vote.";
+
+    /**
+     * Summarize a recording
+     *
+     * @param recordingFile The .jfr file
+     * @return Latencies in microseconds per event type and detail, sorted by name
+     * @throws IOException if the recording could not be read
+     */
+    public static Map<String, LatencyHistogram> summarize(Path recordingFile) throws IOException {
+        Map<String, LatencyHistogram> summary = new TreeMap<>();
+        try (RecordingFile recording = new RecordingFile(recordingFile)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String type = event.getEventType().getName();
+                if (!type.startsWith(EVENT_PREFIX)) {
+                    continue;
+                }
+                String key = type.substring(EVENT_PREFIX.length());
+                String detail = detailOf(event);
+                if (detail != null) {
+                    key += " [" + detail + "]";
+                }
+                summary.computeIfAbsent(key, k -> new LatencyHistogram()).record(event.getDuration().toNanos() / 1000);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Print a summary as a table
+     *
+     * @param summary The summary from summarize
+     * @param out Where to print it
+     */
+    public static void print(Map<String, LatencyHistogram> summary, PrintStream out) {
+        out.printf("%-50s %8s %10s %10s %10s %10s %10s%n", "Event", "Count", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms");
+        for (Map.Entry<String, LatencyHistogram> entry : summary.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            out.printf("%-50s %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", entry.getKey(), histogram.getCount(),
+                    histogram.getMean() / 1000, histogram.getPercentile(50) / 1000.0,
+                    histogram.getPercentile(95) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                    histogram.getMax() / 1000.0);
+        }
+    }
+
+    private static String detailOf(RecordedEvent event) {
+        for (String field : new String[] {"phase", "screen", "kind", "outcome"}) {
+            if (event.hasField(field)) {
+                return event.getString(field);
+            }
+        }
+        if (event.hasField("succeeded")) {
+            return event.getBoolean("succeeded") ? "succeeded" : "failed";
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: FlightRecordingSummary <recording.jfr>");
+            System.exit(2);
+        }
+        print(summarize(Paths.get(args[0])), System.out);
+    }
+}
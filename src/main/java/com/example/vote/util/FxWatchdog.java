@@ -0,0 +1,135 @@
+package com.example.vote.util;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects stalls of the JavaFX Application Thread. A watchdog thread posts a ping to the FX
+ * thread every 100 ms and measures how long it waits to run. When a ping has waited longer
+ * than -Dvote.fx.stallMillis (default 250), the FX thread's stack is captured and logged with
+ * the controller method it is stuck in; the stall's full duration is logged and recorded in
+ * Metrics when the thread responds again.
+ *
+ * Only one ping is outstanding at a time, so the cost is at most ten tiny tasks per second.
+ */
+public class FxWatchdog {
+
+    private static final long PING_MILLIS = 100;
+    private static final String CONTROLLER_PACKAGE = "com.example.vote.controller.";
+    private static final String APPLICATION_PACKAGE = "com.example.vote.";
+
+    private static final Metrics.Timer PING_DELAY = Metrics.timer("vote_fx_ping_seconds", "Delay before the FX thread ran a watchdog ping");
+    private static final Metrics.Timer STALL_TIME = Metrics.timer("vote_fx_stall_seconds", "Duration of FX thread stalls");
+    private static final Metrics.Counter STALLS = Metrics.counter("vote_fx_stalls_total", "FX thread stalls longer than the threshold");
+
+    private static ScheduledExecutorService watchdog;
+    private static Thread fxThread;
+    private static volatile long pingSentAt;
+    private static volatile String stalledIn;
+
+    /**
+     * Start watching. Must be called on the JavaFX Application Thread.
+     */
+    public static synchronized void start() {
+        if (watchdog != null) {
+            return;
+        }
+        if (!Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("FxWatchdog must be started on the JavaFX Application Thread");
+        }
+        fxThread = Thread.currentThread();
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fx-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(FxWatchdog::check, PING_MILLIS, PING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop watching
+     */
+    public static synchronized void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+    }
+
+    private static long stallThresholdNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(Long.getLong("vote.fx.stallMillis", 250));
+    }
+
+    /**
+     * Runs on the watchdog thread: send a ping, or inspect the FX thread if the last one is overdue
+     */
+    private static void check() {
+        long sent = pingSentAt;
+        if (sent == 0) {
+            pingSentAt = System.nanoTime();
+            Platform.runLater(FxWatchdog::pong);
+            return;
+        }
+        long waited = System.nanoTime() - sent;
+        if (stalledIn == null && waited >= stallThresholdNanos()) {
+            StackTraceElement[] stack = fxThread.getStackTrace();
+            stalledIn = attribute(stack);
+            StringBuilder message = new StringBuilder("FX thread stalled for ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(waited)).append(" ms in ").append(stalledIn).append('\n');
+            for (StackTraceElement frame : stack) {
+                message.append("\tat ").append(frame).append('\n');
+            }
+            System.err.print(message);
+        }
+    }
+
+    /**
+     * Runs on the FX thread: the ping got through
+     */
+    private static void pong() {
+        long sent = pingSentAt;
+        long delay = System.nanoTime() - sent;
+        PING_DELAY.recordSince(sent);
+        String method = stalledIn;
+        // The watchdog may not have looked yet if the stall ended just past the threshold
+        if (method != null || delay >= stallThresholdNanos()) {
+            STALLS.increment();
+            STALL_TIME.recordSince(sent);
+            System.err.println("FX thread responsive again after " + TimeUnit.NANOSECONDS.toMillis(delay)
+                    + " ms stall" + (method != null ? " in " + method : ""));
+            stalledIn = null;
+        }
+        pingSentAt = 0;
+    }
+
+    /**
+     * Find the frame to blame: the innermost controller method, else the innermost application method
+     *
+     * @param stack The FX thread's stack, innermost frame first
+     * @return Class and method name of the frame
+     */
+    static String attribute(StackTraceElement[] stack) {
+        StackTraceElement application = null;
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith(CONTROLLER_PACKAGE)) {
+                return describe(frame);
+            }
+            if (application == null && frame.getClassName().startsWith(APPLICATION_PACKAGE)) {
+                application = frame;
+            }
+        }
+        if (application != null) {
+            return describe(application);
+        }
+        return stack.length > 0 ? describe(stack[0]) : "(unknown)";
+    }
+
+    private static String describe(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName()
+                + (frame.getLineNumber() > 0 ? ":" + frame.getLineNumber() : "");
+    }
+}
@@ -0,0 +1,357 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Periodic health probes of the database and the local disk. Every 10 seconds one connection
+ * measures the round trip of a trivial query and, on MySQL, reads connection usage and the
+ * number of transactions waiting for InnoDB locks. Replication lag comes from ReplicaRouter and
+ * free space from the disk holding the backup directory (-Dvote.backup.dir, default ~/.vote).
+ *
+ * The last 5 minutes of samples are kept, and getHealth() scores them together with the
+ * application's own signals, so a slowly degrading database shows before voting slows down.
+ */
+public class HealthMonitor {
+
+    private static final long PROBE_SECONDS = 10;
+    private static final int WINDOW_SIZE = 30;
+    private static final int RECENT_SAMPLES = 6;
+    private static final double SLOW_ROUND_TRIP_MILLIS = 50;
+    private static final double VERY_SLOW_ROUND_TRIP_MILLIS = 250;
+    private static final long LOW_DISK_BYTES = 5L * 1024 * 1024 * 1024;
+    private static final long CRITICAL_DISK_BYTES = 1024L * 1024 * 1024;
+
+    private static final Deque<Sample> window = new ArrayDeque<>();
+    private static ScheduledExecutorService prober;
+    private static volatile Path backupDirectory;
+
+    static {
+        Metrics.gauge("vote_health_score", "Health score shown on the admin dashboard, 0 to 1",
+                () -> getHealth().getScore());
+        Metrics.gauge("vote_db_round_trip_ms", "Round trip of the last health probe query",
+                () -> latestOr(sample -> sample.roundTripMillis));
+        Metrics.gauge("vote_db_connections_used_ratio", "Server connections in use relative to max_connections",
+                () -> latestOr(Sample::getConnectionUsage));
+        Metrics.gauge("vote_db_lock_waits", "Transactions waiting for InnoDB row locks",
+                () -> latestOr(sample -> sample.lockWaits));
+        Metrics.gauge("vote_backup_disk_free_bytes", "Usable space on the disk holding the backup directory",
+                () -> latestOr(sample -> sample.diskFreeBytes));
+    }
+
+    /**
+     * Result of one probe
+     */
+    public static class Sample {
+        private final long time = System.currentTimeMillis();
+        private boolean reachable;
+        private String error;
+        private double roundTripMillis = -1;
+        private int connectionsUsed = -1;
+        private int maxConnections = -1;
+        private int lockWaits = -1;
+        private long replicaLagSeconds = -1;
+        private long diskFreeBytes = -1;
+
+        public long getTime() {
+            return time;
+        }
+
+        public boolean isReachable() {
+            return reachable;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return Milliseconds for SELECT 1, or -1 if the database was unreachable
+         */
+        public double getRoundTripMillis() {
+            return roundTripMillis;
+        }
+
+        /**
+         * @return Connections open on the server, or -1 if unknown (e.g. embedded database)
+         */
+        public int getConnectionsUsed() {
+            return connectionsUsed;
+        }
+
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        /**
+         * @return Share of max_connections in use, or -1 if unknown
+         */
+        public double getConnectionUsage() {
+            return connectionsUsed < 0 || maxConnections <= 0 ? -1 : (double) connectionsUsed / maxConnections;
+        }
+
+        /**
+         * @return Transactions waiting for a lock, or -1 if unknown
+         */
+        public int getLockWaits() {
+            return lockWaits;
+        }
+
+        /**
+         * @return Replication lag, or -1 if no replica is configured or the lag is unknown
+         */
+        public long getReplicaLagSeconds() {
+            return replicaLagSeconds;
+        }
+
+        /**
+         * @return Usable bytes on the backup disk, or -1 if unknown
+         */
+        public long getDiskFreeBytes() {
+            return diskFreeBytes;
+        }
+    }
+
+    /**
+     * Score between 0 and 1 with the reasons it is below 1
+     */
+    public static class Health {
+        private final double score;
+        private final List<String> problems;
+
+        public Health(double score, List<String> problems) {
+            this.score = score;
+            this.problems = problems;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public List<String> getProblems() {
+            return problems;
+        }
+    }
+
+    /**
+     * Start probing in the background
+     */
+    public static synchronized void start() {
+        if (prober != null) {
+            return;
+        }
+        prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(HealthMonitor::probeNow, 0, PROBE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop probing
+     */
+    public static synchronized void shutdown() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+
+    /**
+     * Use a directory chosen for backups for the disk space probe
+     *
+     * @param directory The backup directory
+     */
+    public static void setBackupDirectory(Path directory) {
+        backupDirectory = directory;
+    }
+
+    /**
+     * Run all probes now and add the result to the window
+     *
+     * @return The result
+     */
+    public static Sample probeNow() {
+        Sample sample = new Sample();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            long start = System.nanoTime();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT 1")) {
+                rs.next();
+            }
+            sample.roundTripMillis = (System.nanoTime() - start) / 1e6;
+            sample.reachable = true;
+
+            if (!DatabaseConnection.isEmbedded()) {
+                sample.connectionsUsed = queryInt(conn, "SHOW GLOBAL STATUS LIKE 'Threads_connected'", 2);
+                sample.maxConnections = queryInt(conn, "SHOW VARIABLES LIKE 'max_connections'", 2);
+                sample.lockWaits = queryInt(conn,
+                        "SELECT COUNT(*) FROM information_schema.innodb_trx WHERE trx_state = 'LOCK WAIT'", 1);
+            }
+        } catch (SQLException e) {
+            sample.error = e.getMessage();
+        }
+
+        if (ReplicaRouter.isConfigured()) {
+            sample.replicaLagSeconds = ReplicaRouter.getLagSeconds();
+        }
+
+        try {
+            Path directory = getBackupDirectory();
+            Files.createDirectories(directory);
+            sample.diskFreeBytes = Files.getFileStore(directory).getUsableSpace();
+        } catch (IOException e) {
+            System.err.println("Failed to check backup disk space: " + e.getMessage());
+        }
+
+        synchronized (window) {
+            window.addLast(sample);
+            if (window.size() > WINDOW_SIZE) {
+                window.removeFirst();
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * @return The samples of the last 5 minutes, oldest first
+     */
+    public static List<Sample> getWindow() {
+        synchronized (window) {
+            return new ArrayList<>(window);
+        }
+    }
+
+    /**
+     * Rate the state of the system from the probe window and the application's own signals
+     *
+     * @return Health score and the problems that lowered it
+     */
+    public static Health getHealth() {
+        List<Sample> samples = getWindow();
+        double score = 1.0;
+        List<String> problems = new ArrayList<>();
+
+        Sample latest = samples.isEmpty() ? null : samples.get(samples.size() - 1);
+        // Connections opened by the application may fail between probes; a later successful probe clears it
+        long failureAge = DatabaseConnection.getLastConnectFailureAgeMillis();
+        boolean recentFailure = failureAge < TimeUnit.MINUTES.toMillis(1)
+                && (latest == null || latest.time < System.currentTimeMillis() - failureAge);
+        if ((latest != null && !latest.reachable) || recentFailure) {
+            score -= 0.5;
+            problems.add("database unreachable");
+        } else {
+            long failures = samples.stream().filter(sample -> !sample.reachable).count();
+            if (failures > 0) {
+                score -= 0.1;
+                problems.add(failures + " failed probes in 5 minutes");
+            }
+        }
+
+        double roundTrip = recentMedianRoundTrip(samples);
+        if (roundTrip >= VERY_SLOW_ROUND_TRIP_MILLIS) {
+            score -= 0.25;
+            problems.add(String.format("database round trip %.0f ms", roundTrip));
+        } else if (roundTrip >= SLOW_ROUND_TRIP_MILLIS) {
+            score -= 0.1;
+            problems.add(String.format("database round trip %.0f ms", roundTrip));
+        }
+
+        if (latest != null && latest.getConnectionUsage() >= 0.8) {
+            score -= latest.getConnectionUsage() >= 0.95 ? 0.3 : 0.15;
+            problems.add(latest.connectionsUsed + " of " + latest.maxConnections + " connections in use");
+        }
+
+        if (latest != null && latest.lockWaits > 0) {
+            boolean persistent = samples.size() >= 3 && samples.subList(samples.size() - 3, samples.size())
+                    .stream().allMatch(sample -> sample.lockWaits > 0);
+            score -= persistent ? 0.2 : 0.05;
+            problems.add(latest.lockWaits + " transactions waiting for locks");
+        }
+
+        if (ReplicaRouter.isConfigured() && !ReplicaRouter.isHealthy()) {
+            score -= 0.1;
+            problems.add("replica " + ReplicaRouter.getStatus());
+        }
+
+        if (latest != null && latest.diskFreeBytes >= 0 && latest.diskFreeBytes < LOW_DISK_BYTES) {
+            score -= latest.diskFreeBytes < CRITICAL_DISK_BYTES ? 0.3 : 0.1;
+            problems.add(String.format("%.1f GB free for backups", latest.diskFreeBytes / (1024.0 * 1024 * 1024)));
+        }
+
+        int pending = OfflineVoteQueue.getPendingCount();
+        if (pending > 0) {
+            score -= 0.2;
+            problems.add(pending + " votes queued offline");
+        }
+        double commitMillis = Metrics.VOTE_COMMIT.getRecentMeanMicros() / 1000;
+        if (commitMillis > 1000) {
+            score -= 0.2;
+            problems.add(String.format("vote commits take %.0f ms", commitMillis));
+        }
+        if (PasswordHash.getInFlight() > Runtime.getRuntime().availableProcessors()) {
+            score -= 0.1;
+            problems.add("password hashing backlog");
+        }
+
+        return new Health(Math.max(0, score), problems);
+    }
+
+    private static Path getBackupDirectory() {
+        Path directory = backupDirectory;
+        if (directory != null) {
+            return directory;
+        }
+        return Paths.get(System.getProperty("vote.backup.dir",
+                Paths.get(System.getProperty("user.home"), ".vote").toString()));
+    }
+
+    /**
+     * Median round trip of the last minute, so one slow probe does not flip the score
+     */
+    private static double recentMedianRoundTrip(List<Sample> samples) {
+        double[] recent = samples.subList(Math.max(0, samples.size() - RECENT_SAMPLES), samples.size()).stream()
+                .filter(sample -> sample.reachable)
+                .mapToDouble(sample -> sample.roundTripMillis)
+                .toArray();
+        if (recent.length == 0) {
+            return 0;
+        }
+        Arrays.sort(recent);
+        return recent[recent.length / 2];
+    }
+
+    private static double latestOr(ToDoubleFunction<Sample> value) {
+        synchronized (window) {
+            return window.isEmpty() ? -1 : value.applyAsDouble(window.peekLast());
+        }
+    }
+
+    private static int queryInt(Connection conn, String sql, int column) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(column) : -1;
+        } catch (SQLException e) {
+            // Missing privileges on performance tables only lose this signal
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.vote.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps JDBC connections so every statement execution is timed and recorded in SqlStatistics.
+ * Prepared statements are keyed by the SQL they were prepared with, plain statements by the SQL
+ * passed to execute. Rows are counted from update counts and from ResultSet.next() calls.
+ *
+ * Set the system property vote.db.instrument to false to hand out the driver's connections as is.
+ */
+public class InstrumentedConnection {
+
+    private static final AtomicInteger openConnections = new AtomicInteger();
+    private static final Metrics.Counter OPENED = Metrics.counter("vote_db_connections_opened_total", "Database connections opened");
+
+    static {
+        Metrics.gauge("vote_db_connections_open", "Database connections currently open", openConnections::get);
+    }
+
+    /**
+     * @return Number of instrumented connections that are open
+     */
+    public static int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    /**
+     * Wrap a connection, unless instrumentation is disabled
+     *
+     * @param conn The driver's connection
+     * @return The instrumented connection
+     */
+    public static Connection wrap(Connection conn) {
+        if (conn == null || !Boolean.parseBoolean(System.getProperty("vote.db.instrument", "true"))) {
+            return conn;
+        }
+        return (Connection) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(conn));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+            openConnections.incrementAndGet();
+            OPENED.increment();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close") && closed.compareAndSet(false, true)) {
+                openConnections.decrementAndGet();
+            }
+            Object result = InstrumentedConnection.invoke(conn, method, args);
+            if (name.equals("prepareStatement")) {
+                return wrapStatement((Statement) result, PreparedStatement.class, (String) args[0], proxy);
+            } else if (name.equals("prepareCall")) {
+                return wrapStatement((Statement) result, CallableStatement.class, (String) args[0], proxy);
+            } else if (name.equals("createStatement")) {
+                return wrapStatement((Statement) result, Statement.class, null, proxy);
+            }
+            return result;
+        }
+    }
+
+    private static Statement wrapStatement(Statement stmt, Class<? extends Statement> type, String sql, Object connection) {
+        return (Statement) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[] {type}, new StatementHandler(stmt, sql, (Connection) connection));
+    }
+
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement stmt;
+        private final SqlStatistics.StatementStats preparedStats;
+        private final Connection connection;
+        private SqlStatistics.StatementStats lastStats;
+
+        StatementHandler(Statement stmt, String sql, Connection connection) {
+            this.stmt = stmt;
+            this.preparedStats = sql != null ? SqlStatistics.forSql(sql) : null;
+            this.connection = connection;
+            this.lastStats = preparedStats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            if (!name.startsWith("execute")) {
+                Object result = InstrumentedConnection.invoke(stmt, method, args);
+                if (name.equals("getResultSet") && result != null && lastStats != null) {
+                    return wrapResultSet((ResultSet) result, lastStats);
+                }
+                return result;
+            }
+
+            SqlStatistics.StatementStats stats = preparedStats;
+            if (stats == null) {
+                // Plain statements carry their SQL in the call; executeBatch has none
+                stats = SqlStatistics.forSql(args != null && args.length > 0 ? (String) args[0] : "(batch)");
+            }
+            lastStats = stats;
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = InstrumentedConnection.invoke(stmt, method, args);
+            } catch (Throwable e) {
+                stats.record(System.nanoTime() - start, true);
+                throw e;
+            }
+            stats.record(System.nanoTime() - start, false);
+
+            if (result instanceof ResultSet) {
+                return wrapResultSet((ResultSet) result, stats);
+            } else if (result instanceof Integer || result instanceof Long) {
+                if (!name.equals("execute")) {
+                    stats.addRows(Math.max(0, ((Number) result).longValue()));
+                }
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    stats.addRows(Math.max(0, count));
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    stats.addRows(Math.max(0, count));
+                }
+            }
+            return result;
+        }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet rs, SqlStatistics.StatementStats stats) {
+        return (ResultSet) Proxy.newProxyInstance(InstrumentedConnection.class.getClassLoader(),
+                new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+                    Object result = invoke(rs, method, args);
+                    if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                        stats.addRows(1);
+                    }
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared results of elections that are still open. Each election has a vote version that
+ * this station advances whenever it commits votes or changes candidates; results computed
+ * at the current version are served from memory. When the version has moved on, the first
+ * reader recomputes and every reader arriving meanwhile waits for that one query.
+ *
+ * Votes committed at other stations do not advance the local version, so cached results
+ * are also recomputed once they are older than -Dvote.results.maxAgeMillis (default 5000).
+ * Completed elections use ResultsSnapshots instead.
+ */
+public class LiveResults {
+
+    private static final long MAX_AGE_MILLIS = Long.getLong("vote.results.maxAgeMillis", 5000);
+
+    private static final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+    private static final Map<Integer, Results> cache = new ConcurrentHashMap<>();
+    private static final Map<Integer, CompletableFuture<Results>> running = new ConcurrentHashMap<>();
+
+    private static final Metrics.Counter HITS = Metrics.counter("vote_cache_live_results_hits_total", "Results of open elections answered from the cache");
+    private static final Metrics.Counter MISSES = Metrics.counter("vote_cache_live_results_misses_total", "Results of open elections counted from the votes");
+    private static final Metrics.Counter COALESCED = Metrics.counter("vote_cache_live_results_coalesced_total", "Results requests that waited for a count already running");
+
+    static {
+        Metrics.hitRatio("vote_cache_live_results_hit_ratio", "Share of results of open elections answered from the cache", HITS, MISSES);
+    }
+
+    /**
+     * Results of one election at one vote version
+     */
+    public static class Results {
+        private final List<ElectionTally.PositionTally> positions;
+        private final int voters;
+        private final int eligibleVoters;
+        private final long version;
+        private final long computedAt;
+
+        Results(List<ElectionTally.PositionTally> positions, int voters, int eligibleVoters, long version) {
+            this.positions = positions;
+            this.voters = voters;
+            this.eligibleVoters = eligibleVoters;
+            this.version = version;
+            this.computedAt = System.currentTimeMillis();
+        }
+
+        /**
+         * @return Candidate totals grouped like ElectionTally.tally, most votes first
+         */
+        public List<ElectionTally.PositionTally> getPositions() {
+            return positions;
+        }
+
+        public long getTotalVotes() {
+            long total = 0;
+            for (ElectionTally.PositionTally position : positions) {
+                total += position.getTotalVotes();
+            }
+            return total;
+        }
+
+        public int getVoters() {
+            return voters;
+        }
+
+        public int getEligibleVoters() {
+            return eligibleVoters;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        private boolean isCurrent(long currentVersion) {
+            return version == currentVersion && System.currentTimeMillis() - computedAt < MAX_AGE_MILLIS;
+        }
+    }
+
+    /**
+     * Get the current results of an election
+     *
+     * @param electionId The election ID
+     * @param multiPosition true to rank candidates within each position
+     * @return The results
+     * @throws SQLException if the votes could not be counted
+     */
+    public static Results get(int electionId, boolean multiPosition) throws SQLException {
+        // Read the version before counting, so a vote committed during the count makes it stale
+        long version = getVersion(electionId);
+        Results cached = cache.get(electionId);
+        if (cached != null && cached.isCurrent(version)) {
+            HITS.increment();
+            return cached;
+        }
+
+        CompletableFuture<Results> count = new CompletableFuture<>();
+        CompletableFuture<Results> existing = running.putIfAbsent(electionId, count);
+        if (existing != null) {
+            COALESCED.increment();
+            return await(existing);
+        }
+
+        MISSES.increment();
+        try {
+            Results results = count(electionId, multiPosition, version);
+            // A slower count of an older version must not replace a newer one
+            cache.merge(electionId, results, (old, fresh) -> fresh.version >= old.version ? fresh : old);
+            count.complete(results);
+            return results;
+        } catch (SQLException | RuntimeException e) {
+            count.completeExceptionally(e);
+            throw e;
+        } finally {
+            running.remove(electionId, count);
+        }
+    }
+
+    /**
+     * Advance an election's vote version after committing votes or changing its candidates
+     *
+     * @param electionId The election ID
+     */
+    public static void bump(int electionId) {
+        versions.computeIfAbsent(electionId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Get an election's vote version
+     *
+     * @param electionId The election ID
+     * @return The number of changes this station has seen
+     */
+    public static long getVersion(int electionId) {
+        AtomicLong version = versions.get(electionId);
+        return version == null ? 0 : version.get();
+    }
+
+    private static Results count(int electionId, boolean multiPosition, long version) throws SQLException {
+        List<ElectionTally.PositionTally> positions;
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            positions = ElectionTally.tally(conn, electionId, multiPosition);
+        }
+        return new Results(positions, VoterParticipation.countVoters(electionId),
+                VoterRolls.countEligible(electionId), version);
+    }
+
+    private static Results await(CompletableFuture<Results> count) throws SQLException {
+        try {
+            return count.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for election results", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Failed to count election results", cause);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.vote.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits failed logins per username when the enable_ip_blocking setting is on. Failures are
+ * counted in a sliding window of -Dvote.login.windowSeconds (default 300) split into slots; a
+ * username with -Dvote.login.maxUserFailures (default 5) failures in the window is refused
+ * before its password is checked, until enough failures have aged out.
+ *
+ * With -Dvote.login.blockStation=true the whole station is also refused after
+ * -Dvote.login.maxAddressFailures (default 30) failures in the window. This is off by default:
+ * every voter shares the station's address, so a few mistyped or deliberately wrong logins
+ * would lock all of them out.
+ *
+ * Counting is lock-free: each slot is one long holding its slot number and count, updated by
+ * compare-and-set. Usernames and addresses without recent failures are dropped by a timing wheel.
+ *
+ * The application runs on the voting station itself, so the address is that of the station,
+ * or -Dvote.station.address if set.
+ */
+public class LoginThrottle {
+
+    static final long WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(Math.max(1, Long.getLong("vote.login.windowSeconds", 300)));
+    private static final int MAX_USER_FAILURES = Math.max(1, Integer.getInteger("vote.login.maxUserFailures", 5));
+    private static final int MAX_ADDRESS_FAILURES = Math.max(1, Integer.getInteger("vote.login.maxAddressFailures", 30));
+    private static final boolean BLOCK_STATION = Boolean.getBoolean("vote.login.blockStation");
+    static final int SLOTS = 10;
+    static final long SLOT_MILLIS = Math.max(1, WINDOW_MILLIS / SLOTS);
+
+    // Low bits of a slot hold its count, high bits the slot number it was counted in
+    static final int COUNT_BITS = 20;
+    static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static final String ADDRESS = stationAddress();
+
+    private static final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = true;
+    private static TimingWheel wheel;
+
+    private static final Metrics.Counter BLOCKED_USERS = Metrics.counter("vote_login_blocked_user_total", "Logins refused because the username had too many recent failures");
+    private static final Metrics.Counter BLOCKED_ADDRESSES = Metrics.counter("vote_login_blocked_address_total", "Logins refused because the station address had too many recent failures");
+
+    static {
+        Metrics.gauge("vote_login_throttled_keys", "Usernames and addresses with failed logins in the current window", windows::size);
+    }
+
+    /**
+     * Failed logins of one username or address over the last window
+     */
+    static class Window {
+        private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+        private final AtomicLong lastFailureMillis = new AtomicLong();
+
+        void add(long now) {
+            long slot = now / SLOT_MILLIS;
+            int index = (int) (slot % SLOTS);
+            while (true) {
+                long current = slots.get(index);
+                long next;
+                if (current >>> COUNT_BITS != slot) {
+                    // The slot still holds an older window's failures; start it over
+                    next = slot << COUNT_BITS | 1;
+                } else if ((current & COUNT_MASK) == COUNT_MASK) {
+                    break;
+                } else {
+                    next = current + 1;
+                }
+                if (slots.compareAndSet(index, current, next)) {
+                    break;
+                }
+            }
+            lastFailureMillis.accumulateAndGet(now, Math::max);
+        }
+
+        int count(long now) {
+            long slot = now / SLOT_MILLIS;
+            int total = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                long value = slots.get(i);
+                if (slot - (value >>> COUNT_BITS) < SLOTS) {
+                    total += (int) (value & COUNT_MASK);
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Start expiring idle windows and read the enable_ip_blocking setting
+     */
+    public static synchronized void start() {
+        if (wheel != null) {
+            return;
+        }
+        // 1s ticks, 512 buckets: one revolution is ~8.5 minutes, longer windows count rounds
+        wheel = new TimingWheel("login-throttle", 1, TimeUnit.SECONDS, 512);
+        wheel.schedule(LoginThrottle::loadSetting, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop expiring windows and forget all failures
+     */
+    public static synchronized void shutdown() {
+        if (wheel != null) {
+            wheel.stop();
+            wheel = null;
+        }
+        windows.clear();
+    }
+
+    /**
+     * Turn throttling on or off, e.g. after the enable_ip_blocking setting was saved
+     *
+     * @param enable true to refuse logins after too many failures
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+        if (!enable) {
+            windows.clear();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Check whether a login must be refused without checking the password
+     *
+     * @param username The username entered
+     * @return true if the username, or this station if it is blocked as a whole, has too many recent failures
+     */
+    public static boolean isBlocked(String username) {
+        if (!enabled) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (failures(userKey(username), now) >= MAX_USER_FAILURES) {
+            BLOCKED_USERS.increment();
+            return true;
+        }
+        if (BLOCK_STATION && failures(addressKey(), now) >= MAX_ADDRESS_FAILURES) {
+            BLOCKED_ADDRESSES.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Count a wrong username or password
+     *
+     * @param username The username entered
+     */
+    public static void recordFailure(String username) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        window(userKey(username)).add(now);
+        if (BLOCK_STATION) {
+            window(addressKey()).add(now);
+        }
+    }
+
+    /**
+     * Forget the failures of a username after it logged in. Failures of the station address
+     * are kept, so one known account cannot be used to keep guessing others.
+     *
+     * @param username The username that logged in
+     */
+    public static void recordSuccess(String username) {
+        windows.remove(userKey(username));
+    }
+
+    private static int failures(String key, long now) {
+        Window window = windows.get(key);
+        return window == null ? 0 : window.count(now);
+    }
+
+    private static Window window(String key) {
+        Window window = windows.get(key);
+        if (window != null) {
+            return window;
+        }
+        Window created = new Window();
+        window = windows.putIfAbsent(key, created);
+        if (window != null) {
+            return window;
+        }
+        scheduleExpiry(key, created, System.currentTimeMillis() + WINDOW_MILLIS);
+        return created;
+    }
+
+    private static void scheduleExpiry(String key, Window window, long atMillis) {
+        TimingWheel current = wheel;
+        if (current != null) {
+            current.scheduleAt(() -> expire(key, window), atMillis);
+        }
+    }
+
+    /**
+     * Drop a window once its last failure has aged out, otherwise check again when it will have.
+     * A failure counted while the window is dropped is lost, which only happens to keys that had
+     * no failures for a whole window.
+     */
+    private static void expire(String key, Window window) {
+        long expiresAt = window.lastFailureMillis.get() + WINDOW_MILLIS;
+        if (expiresAt <= System.currentTimeMillis()) {
+            windows.remove(key, window);
+        } else if (windows.get(key) == window) {
+            scheduleExpiry(key, window, expiresAt);
+        }
+    }
+
+    private static void loadSetting() {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT setting_value FROM application_settings WHERE setting_key = 'enable_ip_blocking'")) {
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    setEnabled(Boolean.parseBoolean(rs.getString(1)));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to load login throttling setting, keeping it on: " + e.getMessage());
+        }
+    }
+
+    private static String userKey(String username) {
+        return "user:" + username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String addressKey() {
+        return "address:" + ADDRESS;
+    }
+
+    private static String stationAddress() {
+        String address = System.getProperty("vote.station.address");
+        if (address != null && !address.isBlank()) {
+            return address.trim();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostAddress();
+        } catch (UnknownHostException e) {
+            return "local";
+        }
+    }
+}
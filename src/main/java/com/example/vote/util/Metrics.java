@@ -0,0 +1,453 @@
+package com.example.vote.util;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Application metrics: counters, gauges and latency timers registered by name. They are
+ * published as attributes of the MBean com.example.vote:type=Metrics and, every 15 seconds,
+ * in the Prometheus text format to ~/.vote/metrics/vote.prom (-Dvote.metrics.file). Setting
+ * -Dvote.metrics.port also serves them over HTTP at http://localhost:PORT/metrics.
+ */
+public class Metrics {
+
+    private static final long SAMPLE_SECONDS = 5;
+    private static final int EXPORT_EVERY_SAMPLES = 3;
+    private static final String OBJECT_NAME = "com.example.vote:type=Metrics";
+
+    private static final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public static final Counter VOTES = counter("vote_votes_total", "Ballots committed to the database");
+    public static final Timer VOTE_COMMIT = timer("vote_commit_seconds", "Time to record and commit a ballot");
+
+    private static ScheduledExecutorService sampler;
+    private static HttpServer httpServer;
+    private static int samples;
+
+    /**
+     * A named metric
+     */
+    public abstract static class Metric {
+        private final String name;
+        private final String help;
+
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        void sample(long nanosSinceLastSample) {
+        }
+    }
+
+    /**
+     * A monotonically increasing count. Its rate over the last sample interval is kept as well.
+     */
+    public static class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+        private long lastCount;
+        private volatile double ratePerSecond;
+
+        Counter(String name, String help) {
+            super(name, help);
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        /**
+         * @return Increments per second over the last sample interval
+         */
+        public double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        @Override
+        void sample(long nanosSinceLastSample) {
+            long current = get();
+            ratePerSecond = (current - lastCount) * 1e9 / nanosSinceLastSample;
+            lastCount = current;
+        }
+    }
+
+    /**
+     * A value read when the metrics are published
+     */
+    public static class Gauge extends Metric {
+        private final DoubleSupplier value;
+
+        Gauge(String name, String help, DoubleSupplier value) {
+            super(name, help);
+            this.value = value;
+        }
+
+        public double get() {
+            try {
+                return value.getAsDouble();
+            } catch (RuntimeException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Latency distribution in microseconds. The mean over the last sample interval is kept as well.
+     */
+    public static class Timer extends Metric {
+        private final LatencyHistogram micros = new LatencyHistogram();
+        private long lastCount;
+        private long lastTotal;
+        private volatile double recentMeanMicros;
+
+        Timer(String name, String help) {
+            super(name, help);
+        }
+
+        /**
+         * Record the time elapsed since a System.nanoTime() reading
+         *
+         * @param startNanos The reading taken when the operation started
+         */
+        public void recordSince(long startNanos) {
+            micros.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        }
+
+        public LatencyHistogram getHistogram() {
+            return micros;
+        }
+
+        /**
+         * @return Mean latency over the last sample interval in microseconds, 0 if nothing was recorded
+         */
+        public double getRecentMeanMicros() {
+            return recentMeanMicros;
+        }
+
+        @Override
+        void sample(long nanosSinceLastSample) {
+            long count = micros.getCount();
+            long total = micros.getTotal();
+            recentMeanMicros = count > lastCount ? (double) (total - lastTotal) / (count - lastCount) : 0;
+            lastCount = count;
+            lastTotal = total;
+        }
+    }
+
+    /**
+     * Get or register a counter
+     *
+     * @param name Metric name, e.g. vote_votes_total
+     * @param help One line description
+     * @return The counter
+     */
+    public static Counter counter(String name, String help) {
+        return (Counter) metrics.computeIfAbsent(name, key -> new Counter(name, help));
+    }
+
+    /**
+     * Get or register a timer
+     *
+     * @param name Metric name, e.g. vote_commit_seconds
+     * @param help One line description
+     * @return The timer
+     */
+    public static Timer timer(String name, String help) {
+        return (Timer) metrics.computeIfAbsent(name, key -> new Timer(name, help));
+    }
+
+    /**
+     * Register a gauge, replacing an earlier one with the same name
+     *
+     * @param name Metric name
+     * @param help One line description
+     * @param value Reads the current value
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        metrics.put(name, new Gauge(name, help, value));
+    }
+
+    /**
+     * Register a gauge with the hit ratio of a cache
+     *
+     * @param name Metric name
+     * @param help One line description
+     * @param hits Counter of cache hits
+     * @param misses Counter of cache misses
+     */
+    public static void hitRatio(String name, String help, Counter hits, Counter misses) {
+        gauge(name, help, () -> {
+            long total = hits.get() + misses.get();
+            return total == 0 ? 1.0 : (double) hits.get() / total;
+        });
+    }
+
+    /**
+     * Register the gauges, the MBean, and start sampling and exporting
+     */
+    public static synchronized void start() {
+        if (sampler != null) {
+            return;
+        }
+        gauge("vote_votes_per_second", "Ballots committed per second over the last 5 seconds",
+                VOTES::getRatePerSecond);
+        gauge("vote_offline_votes_pending", "Votes queued at this station while the database is unreachable",
+                OfflineVoteQueue::getPendingCount);
+        gauge("vote_bcrypt_in_flight", "Password hashes being computed or waiting for a CPU",
+                PasswordHash::getInFlight);
+        gauge("vote_replica_healthy", "1 if reads are served by the read replica",
+                () -> ReplicaRouter.isConfigured() && ReplicaRouter.isHealthy() ? 1 : 0);
+        gauge("vote_replica_lag_seconds", "Replication lag of the read replica",
+                ReplicaRouter::getLagSeconds);
+        registerMBean();
+
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] lastSample = {System.nanoTime()};
+        sampler.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            for (Metric metric : metrics.values()) {
+                metric.sample(now - lastSample[0]);
+            }
+            lastSample[0] = now;
+            if (++samples % EXPORT_EVERY_SAMPLES == 0) {
+                writeFile();
+            }
+        }, SAMPLE_SECONDS, SAMPLE_SECONDS, TimeUnit.SECONDS);
+
+        startHttpServer();
+    }
+
+    /**
+     * Write the metrics one last time and stop exporting
+     */
+    public static synchronized void shutdown() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            sampler = null;
+            writeFile();
+        }
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+    }
+
+    /**
+     * Format all metrics in the Prometheus text exposition format
+     *
+     * @return The metrics text
+     */
+    public static String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        for (Metric metric : metrics.values()) {
+            text.append("# HELP ").append(metric.getName()).append(' ').append(metric.getHelp()).append('\n');
+            if (metric instanceof Counter) {
+                text.append("# TYPE ").append(metric.getName()).append(" counter\n");
+                text.append(metric.getName()).append(' ').append(((Counter) metric).get()).append('\n');
+            } else if (metric instanceof Gauge) {
+                text.append("# TYPE ").append(metric.getName()).append(" gauge\n");
+                text.append(metric.getName()).append(' ').append(formatDouble(((Gauge) metric).get())).append('\n');
+            } else if (metric instanceof Timer) {
+                LatencyHistogram histogram = ((Timer) metric).getHistogram();
+                text.append("# TYPE ").append(metric.getName()).append(" summary\n");
+                for (double quantile : new double[] {0.5, 0.95, 0.99}) {
+                    text.append(metric.getName()).append("{quantile=\"").append(quantile).append("\"} ")
+                            .append(formatDouble(histogram.getPercentile(quantile * 100) / 1e6)).append('\n');
+                }
+                text.append(metric.getName()).append("_sum ").append(formatDouble(histogram.getTotal() / 1e6)).append('\n');
+                text.append(metric.getName()).append("_count ").append(histogram.getCount()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static String formatDouble(double value) {
+        return Double.isNaN(value) ? "NaN" : Double.toString(value);
+    }
+
+    private static void writeFile() {
+        Path file = Paths.get(System.getProperty("vote.metrics.file",
+                Paths.get(System.getProperty("user.home"), ".vote", "metrics", "vote.prom").toString()));
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // Write to a temporary file first so collectors never read a partial file
+            Path temp = Files.createTempFile(directory, "vote", ".prom.tmp");
+            Files.write(temp, toPrometheusText().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write metrics file: " + e.getMessage());
+        }
+    }
+
+    private static void startHttpServer() {
+        Integer port = Integer.getInteger("vote.metrics.port");
+        if (port == null) {
+            return;
+        }
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            httpServer.createContext("/metrics", exchange -> {
+                byte[] body = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            httpServer.start();
+        } catch (IOException e) {
+            System.err.println("Failed to start metrics endpoint on port " + port + ": " + e.getMessage());
+            httpServer = null;
+        }
+    }
+
+    private static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(), name);
+            }
+        } catch (JMException e) {
+            System.err.println("Failed to register metrics MBean: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes every metric as a read-only attribute; timers as _count, _p50_ms, _p99_ms and _max_ms
+     */
+    private static class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Metric metric : metrics.values()) {
+                if (metric instanceof Counter) {
+                    if (attribute.equals(metric.getName())) {
+                        return ((Counter) metric).get();
+                    }
+                } else if (metric instanceof Gauge) {
+                    if (attribute.equals(metric.getName())) {
+                        return ((Gauge) metric).get();
+                    }
+                } else if (metric instanceof Timer && attribute.startsWith(metric.getName() + "_")) {
+                    LatencyHistogram histogram = ((Timer) metric).getHistogram();
+                    switch (attribute.substring(metric.getName().length() + 1)) {
+                        case "count":
+                            return histogram.getCount();
+                        case "p50_ms":
+                            return histogram.getPercentile(50) / 1000.0;
+                        case "p99_ms":
+                            return histogram.getPercentile(99) / 1000.0;
+                        case "max_ms":
+                            return histogram.getMax() / 1000.0;
+                        default:
+                            break;
+                    }
+                }
+            }
+            throw new AttributeNotFoundException(attribute);
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    list.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Unknown attributes are left out, as the DynamicMBean contract allows
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName() + " is read-only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            // The MBean has no operations
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Metric metric : metrics.values()) {
+                if (metric instanceof Counter) {
+                    attributes.add(attribute(metric.getName(), "long", metric.getHelp()));
+                } else if (metric instanceof Gauge) {
+                    attributes.add(attribute(metric.getName(), "double", metric.getHelp()));
+                } else if (metric instanceof Timer) {
+                    attributes.add(attribute(metric.getName() + "_count", "long", metric.getHelp()));
+                    for (String suffix : new String[] {"_p50_ms", "_p99_ms", "_max_ms"}) {
+                        attributes.add(attribute(metric.getName() + suffix, "double", metric.getHelp()));
+                    }
+                }
+            }
+            return new MBeanInfo(Metrics.class.getName(), "Voting system metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+
+        private MBeanAttributeInfo attribute(String name, String type, String description) {
+            return new MBeanAttributeInfo(name, type, description, true, false, false);
+        }
+    }
+}
@@ -0,0 +1,524 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Store-and-forward queue for votes cast while the database is unreachable.
+ *
+ * Ballots are appended to a local log file and forced to disk before the voter is told the
+ * vote was saved. A background thread forwards them to the database in batches once it is
+ * reachable again. Rows are inserted with INSERT IGNORE, so a ballot that was committed
+ * before the connection dropped, or cast at another kiosk in the meantime, is detected by
+ * the unique_vote key and not counted twice. Ballots whose queued time is at or after the
+ * election's end date are dropped when forwarded. The forwarded position is kept in a separate
+ * offset file; the log is truncated once everything has been forwarded.
+ *
+ * One vote per user and election is enforced locally from the queued ballots, and the
+ * queued ballots are replayed into VoterParticipation on startup.
+ *
+ * Only the submission of a ballot falls back to the queue. Logging in, the dashboards,
+ * loading an election's ballot and the voter roll check still need the database, so during
+ * an outage only voters who already have the ballot open can vote; everyone else sees a
+ * database error until the connection is back.
+ */
+public class OfflineVoteQueue {
+
+    private static final String QUEUE_FILE = "offline-votes.queue";
+    private static final String OFFSET_FILE = "offline-votes.offset";
+    private static final long FORWARD_SECONDS = 10;
+    private static final int BATCH_SIZE = 200;
+    private static final int HEADER_SIZE = 8;
+
+    private static final Metrics.Counter QUEUED = Metrics.counter("vote_offline_votes_queued_total", "Ballots queued at this station while the database was unreachable");
+
+    private static final Set<Long> queuedVoters = ConcurrentHashMap.newKeySet();
+    private static ScheduledExecutorService forwarder;
+    private static FileChannel queue;
+    private static long forwardedOffset;
+    private static int pendingCount;
+
+    /**
+     * A ballot waiting to be forwarded
+     */
+    private static final class QueuedBallot {
+        final int electionId;
+        final int userId;
+        final long timestamp;
+        final byte[] ranking;
+        final int[] candidateIds;
+        final String[] positions;
+        long endOffset;
+
+        QueuedBallot(int electionId, int userId, long timestamp, byte[] ranking, int[] candidateIds, String[] positions) {
+            this.electionId = electionId;
+            this.userId = userId;
+            this.timestamp = timestamp;
+            this.ranking = ranking;
+            this.candidateIds = candidateIds;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * Open the queue and start forwarding queued ballots in the background
+     */
+    public static synchronized void start() {
+        if (forwarder != null) {
+            return;
+        }
+        try {
+            open();
+        } catch (IOException e) {
+            System.err.println("Failed to open offline vote queue: " + e.getMessage());
+        }
+        forwarder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offline-vote-forwarder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        forwarder.scheduleWithFixedDelay(OfflineVoteQueue::forward, 0, FORWARD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop forwarding; queued ballots stay on disk for the next start
+     */
+    public static synchronized void shutdown() {
+        if (forwarder != null) {
+            forwarder.shutdownNow();
+            forwarder = null;
+        }
+        if (queue != null) {
+            try {
+                queue.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close offline vote queue: " + e.getMessage());
+            }
+            queue = null;
+        }
+    }
+
+    /**
+     * Get the directory holding the queue. Set the system property vote.offline.dir to
+     * move it; the default is .vote/offline in the user's home.
+     *
+     * @return The queue directory
+     */
+    public static Path getDirectory() {
+        String configured = System.getProperty("vote.offline.dir");
+        if (configured != null && !configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".vote", "offline");
+    }
+
+    /**
+     * Check whether a failure means the database could not be reached, as opposed to the
+     * statement being rejected
+     *
+     * @param e The exception thrown by JDBC
+     * @return true for connection failures
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof SQLRecoverableException || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        // SQLState class 08 is "connection exception"
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+
+    /**
+     * Queue a ballot durably
+     *
+     * @param electionId The election ID
+     * @param userId The voter's user ID
+     * @param candidateIds The chosen candidates
+     * @param positions The position of each choice, '' for single-position ballots
+     * @param ranking The packed ranking of a ranked ballot, or null
+     * @return false if a ballot of this user for this election is already queued
+     * @throws IOException if the ballot could not be written to disk
+     */
+    public static synchronized boolean enqueue(int electionId, int userId, int[] candidateIds, String[] positions,
+                                               byte[] ranking) throws IOException {
+        if (queue == null) {
+            open();
+        }
+        if (queuedVoters.contains(key(electionId, userId))) {
+            return false;
+        }
+
+        int size = 4 + 4 + 8 + 2 + (ranking == null ? 0 : ranking.length) + 2;
+        byte[][] encodedPositions = new byte[positions.length][];
+        for (int i = 0; i < positions.length; i++) {
+            encodedPositions[i] = positions[i].getBytes(StandardCharsets.UTF_8);
+            size += 4 + 2 + encodedPositions[i].length;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(size);
+        payload.putInt(electionId);
+        payload.putInt(userId);
+        payload.putLong(System.currentTimeMillis());
+        payload.putShort((short) (ranking == null ? -1 : ranking.length));
+        if (ranking != null) {
+            payload.put(ranking);
+        }
+        payload.putShort((short) candidateIds.length);
+        for (int i = 0; i < candidateIds.length; i++) {
+            payload.putInt(candidateIds[i]);
+            payload.putShort((short) encodedPositions[i].length);
+            payload.put(encodedPositions[i]);
+        }
+        payload.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + size);
+        record.putInt(size);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        record.flip();
+
+        long end = queue.size();
+        while (record.hasRemaining()) {
+            end += queue.write(record, end);
+        }
+        // The voter is told the vote is saved, so it must survive a power loss
+        queue.force(false);
+
+        queuedVoters.add(key(electionId, userId));
+        pendingCount++;
+        QUEUED.increment();
+        return true;
+    }
+
+    /**
+     * Check whether a ballot of a user is waiting to be forwarded
+     *
+     * @param electionId The election ID
+     * @param userId The user ID
+     * @return true if a ballot is queued
+     */
+    public static boolean hasQueuedVote(int electionId, int userId) {
+        return queuedVoters.contains(key(electionId, userId));
+    }
+
+    /**
+     * Get the users with a ballot for an election waiting to be forwarded
+     *
+     * @param electionId The election ID
+     * @return The user IDs
+     */
+    public static List<Integer> getQueuedVoters(int electionId) {
+        List<Integer> userIds = new ArrayList<>();
+        for (long voter : queuedVoters) {
+            if ((int) (voter >>> 32) == electionId) {
+                userIds.add((int) voter);
+            }
+        }
+        return userIds;
+    }
+
+    /**
+     * @return Number of ballots waiting to be forwarded
+     */
+    public static synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    private static long key(int electionId, int userId) {
+        return ((long) electionId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static synchronized void open() throws IOException {
+        if (queue != null) {
+            return;
+        }
+        Path directory = getDirectory();
+        Files.createDirectories(directory);
+        queue = FileChannel.open(directory.resolve(QUEUE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        Path offsetFile = directory.resolve(OFFSET_FILE);
+        forwardedOffset = 0;
+        if (Files.isRegularFile(offsetFile) && Files.size(offsetFile) >= 8) {
+            forwardedOffset = ByteBuffer.wrap(Files.readAllBytes(offsetFile)).getLong();
+        }
+        if (forwardedOffset > queue.size()) {
+            // The log was emptied after everything was forwarded but the offset wasn't reset yet
+            forwardedOffset = 0;
+        }
+
+        // Rebuild the local one-vote-per-user state; a record torn by a crash ends the log
+        List<QueuedBallot> pending = read(forwardedOffset, Integer.MAX_VALUE);
+        long validEnd = pending.isEmpty() ? forwardedOffset : pending.get(pending.size() - 1).endOffset;
+        if (validEnd < queue.size()) {
+            System.err.println("Offline vote queue: discarding " + (queue.size() - validEnd) + " bytes of a torn record");
+            queue.truncate(validEnd);
+        }
+        for (QueuedBallot ballot : pending) {
+            queuedVoters.add(key(ballot.electionId, ballot.userId));
+            VoterParticipation.recordVote(ballot.electionId, ballot.userId);
+        }
+        pendingCount = pending.size();
+    }
+
+    /**
+     * Read up to max complete records starting at an offset
+     */
+    private static List<QueuedBallot> read(long offset, int max) throws IOException {
+        List<QueuedBallot> ballots = new ArrayList<>();
+        long size = queue.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (ballots.size() < max && offset + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, offset);
+            int length = header.getInt(0);
+            int checksum = header.getInt(4);
+            if (length <= 0 || offset + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, offset + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            int electionId = payload.getInt();
+            int userId = payload.getInt();
+            long timestamp = payload.getLong();
+            byte[] ranking = null;
+            short rankingLength = payload.getShort();
+            if (rankingLength >= 0) {
+                ranking = new byte[rankingLength];
+                payload.get(ranking);
+            }
+            int choices = payload.getShort();
+            int[] candidateIds = new int[choices];
+            String[] positions = new String[choices];
+            for (int i = 0; i < choices; i++) {
+                candidateIds[i] = payload.getInt();
+                byte[] position = new byte[payload.getShort()];
+                payload.get(position);
+                positions[i] = new String(position, StandardCharsets.UTF_8);
+            }
+
+            QueuedBallot ballot = new QueuedBallot(electionId, userId, timestamp, ranking, candidateIds, positions);
+            offset += HEADER_SIZE + length;
+            ballot.endOffset = offset;
+            ballots.add(ballot);
+        }
+        return ballots;
+    }
+
+    private static void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = queue.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of offline vote queue");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Forward queued ballots to the database until the queue is empty or the database fails
+     */
+    private static void forward() {
+        try {
+            while (true) {
+                List<QueuedBallot> batch;
+                synchronized (OfflineVoteQueue.class) {
+                    if (queue == null || pendingCount == 0) {
+                        return;
+                    }
+                    batch = read(forwardedOffset, BATCH_SIZE);
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    forwardBatch(conn, batch);
+                }
+
+                synchronized (OfflineVoteQueue.class) {
+                    forwardedOffset = batch.get(batch.size() - 1).endOffset;
+                    pendingCount -= batch.size();
+                    for (QueuedBallot ballot : batch) {
+                        queuedVoters.remove(key(ballot.electionId, ballot.userId));
+                    }
+                    saveOffset();
+                }
+            }
+        } catch (SQLException e) {
+            if (!isConnectionFailure(e)) {
+                e.printStackTrace();
+            }
+            // Still offline or rejected; retry on the next run
+        } catch (IOException e) {
+            System.err.println("Failed to forward offline votes: " + e.getMessage());
+        }
+    }
+
+    private static void forwardBatch(Connection conn, List<QueuedBallot> queued) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            List<QueuedBallot> batch = dropLateBallots(conn, queued);
+            int[] inserted;
+            // INSERT IGNORE skips rows that hit unique_vote: already forwarded, or voted elsewhere meanwhile
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT IGNORE INTO votes (election_id, user_id, candidate_id, ranking, position, voted_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (QueuedBallot ballot : batch) {
+                    for (int i = 0; i < ballot.candidateIds.length; i++) {
+                        stmt.setInt(1, ballot.electionId);
+                        stmt.setInt(2, ballot.userId);
+                        stmt.setInt(3, ballot.candidateIds[i]);
+                        if (ballot.ranking != null) {
+                            stmt.setBytes(4, ballot.ranking);
+                        } else {
+                            stmt.setNull(4, Types.VARBINARY);
+                        }
+                        stmt.setString(5, ballot.positions[i]);
+                        stmt.setTimestamp(6, new Timestamp(ballot.timestamp));
+                        stmt.addBatch();
+                    }
+                }
+                inserted = stmt.executeBatch();
+            }
+
+            int row = 0;
+            List<int[]> counted = new ArrayList<>(batch.size());
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE candidates SET votes = votes + 1 WHERE id = ?")) {
+                for (QueuedBallot ballot : batch) {
+                    int[] countedIds = new int[ballot.candidateIds.length];
+                    int count = 0;
+                    for (int candidateId : ballot.candidateIds) {
+                        if (inserted[row++] > 0) {
+                            stmt.setInt(1, candidateId);
+                            stmt.addBatch();
+                            countedIds[count++] = candidateId;
+                        }
+                    }
+                    counted.add(Arrays.copyOf(countedIds, count));
+                    if (count == 0) {
+                        System.err.println("Offline vote of user " + ballot.userId + " in election "
+                                + ballot.electionId + " discarded: a vote was already recorded");
+                    }
+                }
+                stmt.executeBatch();
+            }
+
+            conn.commit();
+
+            Set<Integer> changedElections = new HashSet<>();
+            for (int i = 0; i < batch.size(); i++) {
+                QueuedBallot ballot = batch.get(i);
+                if (counted.get(i).length > 0) {
+                    changedElections.add(ballot.electionId);
+                    Metrics.VOTES.increment();
+                    LiveResults.bump(ballot.electionId);
+                    TurnoutBuckets.recordBallot(ballot.electionId, ballot.userId);
+                    try {
+                        VoteJournal.append(ballot.electionId, ballot.userId, counted.get(i));
+                    } catch (IOException e) {
+                        System.err.println("Failed to write vote journal: " + e.getMessage());
+                    }
+                }
+            }
+
+            // Votes queued before an election closed change its final results
+            for (int electionId : changedElections) {
+                try {
+                    ResultsSnapshots.invalidate(electionId);
+                } catch (SQLException e) {
+                    System.err.println("Failed to invalidate results of election " + electionId + ": " + e.getMessage());
+                }
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Leave out ballots queued at or after their election closed; the station may have been
+     * cut off from the schedule when they were cast
+     */
+    private static List<QueuedBallot> dropLateBallots(Connection conn, List<QueuedBallot> queued) throws SQLException {
+        Map<Integer, Timestamp> endDates = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT end_date FROM elections WHERE id = ?")) {
+            for (QueuedBallot ballot : queued) {
+                if (endDates.containsKey(ballot.electionId)) {
+                    continue;
+                }
+                stmt.setInt(1, ballot.electionId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    endDates.put(ballot.electionId, rs.next() ? rs.getTimestamp("end_date") : null);
+                }
+            }
+        }
+
+        List<QueuedBallot> accepted = new ArrayList<>(queued.size());
+        for (QueuedBallot ballot : queued) {
+            Timestamp endDate = endDates.get(ballot.electionId);
+            if (endDate == null) {
+                System.err.println("Offline vote of user " + ballot.userId + " in election "
+                        + ballot.electionId + " discarded: the election no longer exists");
+            } else if (ballot.timestamp >= endDate.getTime()) {
+                System.err.println("Offline vote of user " + ballot.userId + " in election "
+                        + ballot.electionId + " discarded: it was cast after the election closed at " + endDate);
+            } else {
+                accepted.add(ballot);
+            }
+        }
+        return accepted;
+    }
+
+    private static void saveOffset() throws IOException {
+        Path directory = getDirectory();
+        if (pendingCount == 0) {
+            // Everything is forwarded; start over with an empty log
+            queue.truncate(0);
+            queue.force(true);
+            forwardedOffset = 0;
+        }
+        ByteBuffer offset = ByteBuffer.allocate(8).putLong(0, forwardedOffset);
+        Files.write(directory.resolve(OFFSET_FILE), offset.array(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.SYNC);
+    }
+}
@@ -2,6 +2,8 @@ package com.example.vote.util;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Utility class for password hashing and verification
  */
@@ -10,6 +12,13 @@ public class PasswordHash {
     // Defines how computationally intensive the hashing will be (recommended: 10-12)
     private static final int WORKLOAD = 12;
 
+    // Used for bulk imports; imported hashes are upgraded to WORKLOAD on the user's first login.
+    // Users who never log in keep the lower workload.
+    public static final int IMPORT_WORKLOAD = 10;
+
+    // Hashes being computed; more than there are cores means callers are waiting for a CPU
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
     /**
      * Hash a password using BCrypt
      * 
@@ -17,15 +26,31 @@ public class PasswordHash {
      * @return The hashed password
      */
     public static String hashPassword(String passwordPlaintext) {
+        return hashPassword(passwordPlaintext, WORKLOAD);
+    }
+
+    /**
+     * Hash a password using BCrypt with a specific workload factor
+     *
+     * @param passwordPlaintext The plain text password to hash
+     * @param workload The log2 number of BCrypt rounds
+     * @return The hashed password
+     */
+    public static String hashPassword(String passwordPlaintext, int workload) {
         if (passwordPlaintext == null || passwordPlaintext.isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty");
         }
 
         // Generate a salt with specified workload factor
-        String salt = BCrypt.gensalt(WORKLOAD);
+        String salt = BCrypt.gensalt(workload);
         
         // Hash the password
-        return BCrypt.hashpw(passwordPlaintext, salt);
+        inFlight.incrementAndGet();
+        try {
+            return BCrypt.hashpw(passwordPlaintext, salt);
+        } finally {
+            inFlight.decrementAndGet();
+        }
     }
 
     /**
@@ -41,12 +66,61 @@ public class PasswordHash {
             return false;
         }
 
+        inFlight.incrementAndGet();
         try {
             // BCrypt.checkpw will hash the plaintext and compare it with storedHash
             return BCrypt.checkpw(passwordPlaintext, storedHash);
         } catch (IllegalArgumentException e) {
             // In case the stored hash is not a valid BCrypt hash
             return false;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return Number of password hashes being computed right now
+     */
+    public static int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Check whether a stored hash was made with a lower workload than the current one
+     *
+     * @param storedHash The stored hash
+     * @return true if the password should be hashed again after a successful login
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (!isHash(storedHash)) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(storedHash.substring(4, 6)) < WORKLOAD;
+        } catch (NumberFormatException e) {
+            return false;
         }
     }
+
+    /**
+     * Check whether a value already is a BCrypt hash, e.g. a password column exported from another system
+     *
+     * @param value The value to check
+     * @return true if the value has the shape of a BCrypt hash
+     */
+    public static boolean isHash(String value) {
+        return value != null && value.length() == 60 && value.startsWith("$2a$") && value.charAt(6) == '$';
+    }
+
+    /**
+     * Check whether a value is a BCrypt hash of a revision this library cannot verify, such as
+     * $2b$ or $2y$. Storing one would lock the user out, and hashing it again as if it were the
+     * password would too.
+     *
+     * @param value The value to check
+     * @return true if the value has the shape of a BCrypt hash other than $2a$
+     */
+    public static boolean isUnsupportedHash(String value) {
+        return value != null && !isHash(value) && value.matches("\\$2[abxy]?\\$\\d\\d\\$[./A-Za-z0-9]{53}");
+    }
 }
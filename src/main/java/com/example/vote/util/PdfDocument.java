@@ -0,0 +1,291 @@
+package com.example.vote.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal PDF 1.4 writer for reports: text in the standard Helvetica fonts, filled
+ * rectangles, lines and pie slices. Each page is compressed and written to the file as
+ * soon as the next page starts, so only one page is held in memory.
+ */
+public class PdfDocument implements Closeable {
+
+    public static final float PAGE_WIDTH = 595;
+    public static final float PAGE_HEIGHT = 842;
+
+    private static final int CATALOG = 1;
+    private static final int PAGES = 2;
+    private static final int FONT_REGULAR = 3;
+    private static final int FONT_BOLD = 4;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Integer> pageIds = new ArrayList<>();
+    private long position = 0;
+    private Page currentPage;
+
+    /**
+     * Create a PDF file, replacing any existing file
+     *
+     * @param file The file to write
+     * @throws IOException if the file could not be created
+     */
+    public PdfDocument(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        // Object numbers are 1-based; the first four are reserved for the fixed objects
+        for (int i = 0; i <= FONT_BOLD; i++) {
+            offsets.add(0L);
+        }
+        // The binary comment marks the file as binary for transfer tools
+        write("%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        writeObject(FONT_REGULAR, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+        writeObject(FONT_BOLD, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+    }
+
+    /**
+     * Start a new A4 page; the previous page is written out
+     *
+     * @return The page to draw on
+     * @throws IOException if the previous page could not be written
+     */
+    public Page newPage() throws IOException {
+        finishPage();
+        currentPage = new Page();
+        return currentPage;
+    }
+
+    /**
+     * Estimate the width of a string in Helvetica
+     *
+     * @param text The text
+     * @param size The font size
+     * @return Approximate width in points
+     */
+    public static float textWidth(String text, float size) {
+        // Average Helvetica glyph width is a little over half the font size
+        return text.length() * size * 0.52f;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finishPage();
+
+            StringBuilder kids = new StringBuilder();
+            for (int pageId : pageIds) {
+                kids.append(pageId).append(" 0 R ");
+            }
+            writeObject(PAGES, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageIds.size() + " >>");
+            writeObject(CATALOG, "<< /Type /Catalog /Pages " + PAGES + " 0 R >>");
+
+            long xref = position;
+            StringBuilder table = new StringBuilder("xref\n0 " + offsets.size() + "\n0000000000 65535 f \n");
+            for (int i = 1; i < offsets.size(); i++) {
+                table.append(String.format("%010d 00000 n \n", offsets.get(i)));
+            }
+            table.append("trailer\n<< /Size ").append(offsets.size()).append(" /Root ").append(CATALOG)
+                 .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+            write(table.toString());
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void finishPage() throws IOException {
+        if (currentPage == null) {
+            return;
+        }
+        byte[] content = deflate(currentPage.content.toString().getBytes(StandardCharsets.ISO_8859_1));
+        int contentId = nextObjectId();
+        writeStreamObject(contentId, "<< /Length " + content.length + " /Filter /FlateDecode >>", content);
+
+        int pageId = nextObjectId();
+        writeObject(pageId, "<< /Type /Page /Parent " + PAGES + " 0 R /MediaBox [0 0 " + fmt(PAGE_WIDTH) + " "
+                + fmt(PAGE_HEIGHT) + "] /Resources << /Font << /F1 " + FONT_REGULAR + " 0 R /F2 " + FONT_BOLD
+                + " 0 R >> >> /Contents " + contentId + " 0 R >>");
+        pageIds.add(pageId);
+        currentPage = null;
+    }
+
+    private int nextObjectId() {
+        offsets.add(0L);
+        return offsets.size() - 1;
+    }
+
+    private void writeObject(int id, String body) throws IOException {
+        offsets.set(id, position);
+        write(id + " 0 obj\n" + body + "\nendobj\n");
+    }
+
+    private void writeStreamObject(int id, String dictionary, byte[] data) throws IOException {
+        offsets.set(id, position);
+        write(id + " 0 obj\n" + dictionary + "\nstream\n");
+        write(data);
+        write("\nendstream\nendobj\n");
+    }
+
+    private void write(String text) throws IOException {
+        write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void write(byte[] data) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int length = Math.min(buffer.remaining(), data.length - offset);
+            buffer.put(data, offset, length);
+            offset += length;
+        }
+        position += data.length;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            out.write(chunk, 0, length);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static String fmt(float value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Drawing surface of one page. Coordinates are in points from the bottom left corner.
+     */
+    public static class Page {
+        private final StringBuilder content = new StringBuilder();
+
+        /**
+         * Draw a line of text
+         *
+         * @param x Left edge
+         * @param y Baseline
+         * @param size Font size
+         * @param bold true for Helvetica-Bold
+         * @param text The text; characters outside Latin-1 are replaced with '?'
+         */
+        public void text(float x, float y, float size, boolean bold, String text) {
+            content.append("BT /").append(bold ? "F2 " : "F1 ").append(fmt(size)).append(" Tf ")
+                   .append(fmt(x)).append(' ').append(fmt(y)).append(" Td (");
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '(' || c == ')' || c == '\\') {
+                    content.append('\\').append(c);
+                } else if (c < 32 || c > 255) {
+                    content.append('?');
+                } else {
+                    content.append(c);
+                }
+            }
+            content.append(") Tj ET\n");
+        }
+
+        /**
+         * Set the fill colour for shapes and text
+         *
+         * @param r Red, 0-1
+         * @param g Green, 0-1
+         * @param b Blue, 0-1
+         */
+        public void fillColor(double r, double g, double b) {
+            content.append(fmt((float) r)).append(' ').append(fmt((float) g)).append(' ')
+                   .append(fmt((float) b)).append(" rg\n");
+        }
+
+        /**
+         * Set the stroke colour for lines
+         *
+         * @param r Red, 0-1
+         * @param g Green, 0-1
+         * @param b Blue, 0-1
+         */
+        public void strokeColor(double r, double g, double b) {
+            content.append(fmt((float) r)).append(' ').append(fmt((float) g)).append(' ')
+                   .append(fmt((float) b)).append(" RG\n");
+        }
+
+        /**
+         * Fill a rectangle with the fill colour
+         */
+        public void fillRect(float x, float y, float width, float height) {
+            content.append(fmt(x)).append(' ').append(fmt(y)).append(' ').append(fmt(width)).append(' ')
+                   .append(fmt(height)).append(" re f\n");
+        }
+
+        /**
+         * Draw a line with the stroke colour
+         */
+        public void line(float x1, float y1, float x2, float y2, float width) {
+            content.append(fmt(width)).append(" w ").append(fmt(x1)).append(' ').append(fmt(y1)).append(" m ")
+                   .append(fmt(x2)).append(' ').append(fmt(y2)).append(" l S\n");
+        }
+
+        /**
+         * Fill a pie slice with the fill colour
+         *
+         * @param cx Centre x
+         * @param cy Centre y
+         * @param radius Radius
+         * @param startDegrees Start angle, counter-clockwise from 3 o'clock
+         * @param sweepDegrees Size of the slice
+         */
+        public void pieSlice(float cx, float cy, float radius, double startDegrees, double sweepDegrees) {
+            if (sweepDegrees <= 0) {
+                return;
+            }
+            content.append(fmt(cx)).append(' ').append(fmt(cy)).append(" m ");
+            double start = Math.toRadians(startDegrees);
+            content.append(fmt((float) (cx + radius * Math.cos(start)))).append(' ')
+                   .append(fmt((float) (cy + radius * Math.sin(start)))).append(" l ");
+
+            // Approximate the arc with cubic Bezier curves of at most 90 degrees each
+            int segments = (int) Math.ceil(sweepDegrees / 90.0);
+            double step = Math.toRadians(sweepDegrees) / segments;
+            double k = 4.0 / 3.0 * Math.tan(step / 4);
+            for (int i = 0; i < segments; i++) {
+                double a1 = start + i * step;
+                double a2 = a1 + step;
+                float x1 = (float) (cx + radius * (Math.cos(a1) - k * Math.sin(a1)));
+                float y1 = (float) (cy + radius * (Math.sin(a1) + k * Math.cos(a1)));
+                float x2 = (float) (cx + radius * (Math.cos(a2) + k * Math.sin(a2)));
+                float y2 = (float) (cy + radius * (Math.sin(a2) - k * Math.cos(a2)));
+                float x3 = (float) (cx + radius * Math.cos(a2));
+                float y3 = (float) (cy + radius * Math.sin(a2));
+                content.append(fmt(x1)).append(' ').append(fmt(y1)).append(' ').append(fmt(x2)).append(' ')
+                       .append(fmt(y2)).append(' ').append(fmt(x3)).append(' ').append(fmt(y3)).append(" c ");
+            }
+            content.append("h f\n");
+        }
+    }
+}
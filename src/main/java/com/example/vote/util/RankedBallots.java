@@ -0,0 +1,224 @@
+package com.example.vote.util;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ranked ballots of one election, packed into primitive arrays.
+ *
+ * Every ballot is a run of candidate indexes (most preferred first) in one shared short
+ * array, with a second array holding where each ballot starts. Ten million ballots with
+ * three preferences each take about 100 MB, with no object per ballot.
+ *
+ * In the votes table a ranking is stored in votes.ranking as big-endian int candidate IDs;
+ * votes.candidate_id holds the first preference.
+ */
+public class RankedBallots {
+
+    /** Longest ranking that fits in the votes.ranking column */
+    public static final int MAX_RANKS = 256;
+
+    private final int[] candidateIds;
+    private short[] choices = new short[1024];
+    private int[] offsets = new int[257];
+    private int size = 0;
+
+    /**
+     * Create an empty ballot set
+     *
+     * @param candidateIds IDs of the candidates standing in the election
+     */
+    public RankedBallots(int[] candidateIds) {
+        if (candidateIds.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many candidates: " + candidateIds.length);
+        }
+        this.candidateIds = candidateIds.clone();
+        Arrays.sort(this.candidateIds);
+    }
+
+    /**
+     * Load every ballot cast in an election. Single-choice votes count as a ranking of one.
+     *
+     * @param conn The database connection
+     * @param electionId The election ID
+     * @return The ballots
+     * @throws SQLException if the ballots could not be loaded
+     */
+    public static RankedBallots load(Connection conn, int electionId) throws SQLException {
+        int[] candidateIds;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM candidates WHERE election_id = ?")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                candidateIds = new int[16];
+                int count = 0;
+                while (rs.next()) {
+                    if (count == candidateIds.length) {
+                        candidateIds = Arrays.copyOf(candidateIds, count * 2);
+                    }
+                    candidateIds[count++] = rs.getInt(1);
+                }
+                candidateIds = Arrays.copyOf(candidateIds, count);
+            }
+        }
+
+        RankedBallots ballots = new RankedBallots(candidateIds);
+        String sql = "SELECT candidate_id, ranking FROM votes WHERE election_id = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // Stream rows instead of buffering the whole result set
+            DatabaseConnection.streamResults(stmt);
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    byte[] ranking = rs.getBytes("ranking");
+                    if (ranking != null) {
+                        ballots.addPacked(ranking);
+                    } else {
+                        ballots.add(rs.getInt("candidate_id"));
+                    }
+                }
+            }
+        }
+        return ballots;
+    }
+
+    /**
+     * Pack a ranking for the votes.ranking column
+     *
+     * @param rankedCandidateIds Candidate IDs, most preferred first
+     * @return The packed ranking
+     */
+    public static byte[] pack(List<Integer> rankedCandidateIds) {
+        if (rankedCandidateIds.size() > MAX_RANKS) {
+            throw new IllegalArgumentException("A ballot can rank at most " + MAX_RANKS + " candidates");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(rankedCandidateIds.size() * Integer.BYTES);
+        for (int candidateId : rankedCandidateIds) {
+            buffer.putInt(candidateId);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Unpack a ranking read from the votes.ranking column
+     *
+     * @param ranking The packed ranking
+     * @return Candidate IDs, most preferred first
+     */
+    public static int[] unpack(byte[] ranking) {
+        ByteBuffer buffer = ByteBuffer.wrap(ranking);
+        int[] candidateIdsInOrder = new int[ranking.length / Integer.BYTES];
+        for (int i = 0; i < candidateIdsInOrder.length; i++) {
+            candidateIdsInOrder[i] = buffer.getInt();
+        }
+        return candidateIdsInOrder;
+    }
+
+    /**
+     * Add a ballot. Unknown candidates and repeated preferences are skipped; a ballot left
+     * with no preferences is still counted, as exhausted from the first round.
+     *
+     * @param rankedCandidateIds Candidate IDs, most preferred first
+     */
+    public void add(int... rankedCandidateIds) {
+        int start = offsets[size];
+        ensureChoiceCapacity(start + rankedCandidateIds.length);
+        int end = start;
+        for (int candidateId : rankedCandidateIds) {
+            end = appendChoice(start, end, candidateId);
+        }
+        finishBallot(end);
+    }
+
+    /**
+     * Add a ballot straight from its packed form
+     *
+     * @param ranking The packed ranking from votes.ranking
+     */
+    public void addPacked(byte[] ranking) {
+        int start = offsets[size];
+        int ranks = ranking.length / Integer.BYTES;
+        ensureChoiceCapacity(start + ranks);
+        int end = start;
+        for (int i = 0; i < ranks; i++) {
+            int p = i * Integer.BYTES;
+            int candidateId = (ranking[p] << 24) | ((ranking[p + 1] & 0xFF) << 16)
+                    | ((ranking[p + 2] & 0xFF) << 8) | (ranking[p + 3] & 0xFF);
+            end = appendChoice(start, end, candidateId);
+        }
+        finishBallot(end);
+    }
+
+    /**
+     * @return Number of ballots
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of candidates
+     */
+    public int getCandidateCount() {
+        return candidateIds.length;
+    }
+
+    /**
+     * Get the candidate ID behind a candidate index
+     *
+     * @param index The candidate index used in the packed ballots
+     * @return The candidate ID
+     */
+    public int getCandidateId(int index) {
+        return candidateIds[index];
+    }
+
+    /**
+     * Get the candidate index used in the packed ballots
+     *
+     * @param candidateId The candidate ID
+     * @return The index, or a negative value if the candidate is unknown
+     */
+    public int indexOf(int candidateId) {
+        return Arrays.binarySearch(candidateIds, candidateId);
+    }
+
+    short[] choices() {
+        return choices;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    private int appendChoice(int start, int end, int candidateId) {
+        int index = indexOf(candidateId);
+        if (index < 0) {
+            return end;
+        }
+        for (int i = start; i < end; i++) {
+            if (choices[i] == index) {
+                return end;
+            }
+        }
+        choices[end] = (short) index;
+        return end + 1;
+    }
+
+    private void finishBallot(int end) {
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[++size] = end;
+    }
+
+    private void ensureChoiceCapacity(int capacity) {
+        if (capacity > choices.length) {
+            choices = Arrays.copyOf(choices, Math.max(capacity, choices.length * 2));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.vote.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Instant-runoff tabulation. Each round counts every ballot for its highest ranked
+ * candidate still standing; a candidate with a majority of the continuing ballots wins,
+ * otherwise the last placed candidate is eliminated and the next round is counted.
+ *
+ * Counting runs in parallel on the common fork-join pool over slices of the packed ballot
+ * arrays. Each ballot keeps a cursor to its current preference, so a round only moves the
+ * cursors of ballots whose candidate was just eliminated.
+ */
+public class RankedChoiceTabulator {
+
+    // Ballots per leaf task; large enough that task overhead is negligible
+    private static final int SLICE_SIZE = 1 << 15;
+
+    /**
+     * One counting round
+     */
+    public static class Round {
+        private final int number;
+        private final long[] tallies;
+        private final long exhausted;
+        private final int eliminatedCandidateId;
+
+        Round(int number, long[] tallies, long exhausted, int eliminatedCandidateId) {
+            this.number = number;
+            this.tallies = tallies;
+            this.exhausted = exhausted;
+            this.eliminatedCandidateId = eliminatedCandidateId;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * @return Votes per candidate index; eliminated candidates count zero
+         */
+        public long[] getTallies() {
+            return tallies.clone();
+        }
+
+        /**
+         * @return Ballots with no remaining preference
+         */
+        public long getExhausted() {
+            return exhausted;
+        }
+
+        /**
+         * @return The candidate eliminated after this round, or -1 if none was
+         */
+        public int getEliminatedCandidateId() {
+            return eliminatedCandidateId;
+        }
+    }
+
+    /**
+     * Outcome of a tabulation
+     */
+    public static class Result {
+        private final int[] candidateIds;
+        private final List<Round> rounds;
+        private final int winnerId;
+        private final int ballotCount;
+
+        Result(int[] candidateIds, List<Round> rounds, int winnerId, int ballotCount) {
+            this.candidateIds = candidateIds;
+            this.rounds = Collections.unmodifiableList(rounds);
+            this.winnerId = winnerId;
+            this.ballotCount = ballotCount;
+        }
+
+        /**
+         * @return Candidate IDs in candidate index order
+         */
+        public int[] getCandidateIds() {
+            return candidateIds.clone();
+        }
+
+        public List<Round> getRounds() {
+            return rounds;
+        }
+
+        /**
+         * @return The winning candidate ID, or -1 if the final candidates tied
+         */
+        public int getWinnerId() {
+            return winnerId;
+        }
+
+        public int getBallotCount() {
+            return ballotCount;
+        }
+    }
+
+    /**
+     * Run the elimination rounds
+     *
+     * @param ballots The ballots of the election
+     * @return The rounds and the winner
+     */
+    public static Result tabulate(RankedBallots ballots) {
+        int candidates = ballots.getCandidateCount();
+        int[] candidateIds = new int[candidates];
+        for (int i = 0; i < candidates; i++) {
+            candidateIds[i] = ballots.getCandidateId(i);
+        }
+
+        int[] cursors = new int[ballots.size()];
+        System.arraycopy(ballots.offsets(), 0, cursors, 0, cursors.length);
+        boolean[] eliminated = new boolean[candidates];
+        int remaining = candidates;
+
+        List<Round> rounds = new ArrayList<>();
+        while (true) {
+            long[] counts = ForkJoinPool.commonPool().invoke(
+                    new CountTask(ballots.choices(), ballots.offsets(), cursors, eliminated, 0, cursors.length));
+            long[] tallies = new long[candidates];
+            System.arraycopy(counts, 0, tallies, 0, candidates);
+            long exhausted = counts[candidates];
+            long continuing = ballots.size() - exhausted;
+
+            int leader = -1;
+            int last = -1;
+            for (int i = 0; i < candidates; i++) {
+                if (eliminated[i]) {
+                    continue;
+                }
+                if (leader < 0 || tallies[i] > tallies[leader]) {
+                    leader = i;
+                }
+                if (last < 0 || tallies[i] < tallies[last]
+                        || (tallies[i] == tallies[last] && trailedEarlier(rounds, i, last))) {
+                    last = i;
+                }
+            }
+
+            if (leader < 0) {
+                // No candidates at all
+                rounds.add(new Round(rounds.size() + 1, tallies, exhausted, -1));
+                return new Result(candidateIds, rounds, -1, ballots.size());
+            }
+            if (tallies[leader] * 2 > continuing || remaining == 1) {
+                rounds.add(new Round(rounds.size() + 1, tallies, exhausted, -1));
+                return new Result(candidateIds, rounds, candidateIds[leader], ballots.size());
+            }
+            if (tallies[leader] == tallies[last] && !trailedEarlier(rounds, last, leader)) {
+                // Every remaining candidate is level and earlier rounds don't separate them
+                rounds.add(new Round(rounds.size() + 1, tallies, exhausted, -1));
+                return new Result(candidateIds, rounds, -1, ballots.size());
+            }
+
+            eliminated[last] = true;
+            remaining--;
+            rounds.add(new Round(rounds.size() + 1, tallies, exhausted, candidateIds[last]));
+        }
+    }
+
+    /**
+     * Break a last-place tie by looking back for the latest round where the two differed
+     */
+    private static boolean trailedEarlier(List<Round> rounds, int candidate, int other) {
+        for (int r = rounds.size() - 1; r >= 0; r--) {
+            long[] tallies = rounds.get(r).tallies;
+            if (tallies[candidate] != tallies[other]) {
+                return tallies[candidate] < tallies[other];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a slice of ballots. The result holds one slot per candidate index plus a final
+     * slot for exhausted ballots.
+     */
+    private static final class CountTask extends RecursiveTask<long[]> {
+        private final short[] choices;
+        private final int[] offsets;
+        private final int[] cursors;
+        private final boolean[] eliminated;
+        private final int from;
+        private final int to;
+
+        CountTask(short[] choices, int[] offsets, int[] cursors, boolean[] eliminated, int from, int to) {
+            this.choices = choices;
+            this.offsets = offsets;
+            this.cursors = cursors;
+            this.eliminated = eliminated;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= SLICE_SIZE) {
+                return countSlice();
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(choices, offsets, cursors, eliminated, from, middle);
+            CountTask right = new CountTask(choices, offsets, cursors, eliminated, middle, to);
+            left.fork();
+            long[] counts = right.compute();
+            long[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+
+        private long[] countSlice() {
+            int exhaustedSlot = eliminated.length;
+            long[] counts = new long[exhaustedSlot + 1];
+            for (int ballot = from; ballot < to; ballot++) {
+                int cursor = cursors[ballot];
+                int end = offsets[ballot + 1];
+                // Skip past preferences for eliminated candidates
+                while (cursor < end && eliminated[choices[cursor]]) {
+                    cursor++;
+                }
+                cursors[ballot] = cursor;
+                counts[cursor < end ? choices[cursor] : exhaustedSlot]++;
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes read-only work to a MySQL read replica while the replica keeps up with the primary.
+ *
+ * The replica is configured with the system properties vote.db.replica.url and, if they
+ * differ from the primary, vote.db.replica.user and vote.db.replica.password. A monitor
+ * thread reads the replica's replication status every few seconds; when replication is
+ * stopped, the replica lags more than vote.db.replica.maxLagSeconds (default 5) or cannot be
+ * reached, reads fall back to the primary until the replica has caught up again.
+ */
+public class ReplicaRouter {
+
+    private static final long CHECK_SECONDS = 5;
+    private static final long DEFAULT_MAX_LAG_SECONDS = 5;
+
+    private static ScheduledExecutorService monitor;
+    private static volatile boolean healthy = false;
+    private static volatile long lagSeconds = -1;
+    private static volatile String status = "not configured";
+
+    /**
+     * Start monitoring the replica, if one is configured
+     */
+    public static synchronized void start() {
+        if (monitor != null || !isConfigured()) {
+            return;
+        }
+        status = "checking";
+        monitor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        monitor.scheduleWithFixedDelay(ReplicaRouter::checkReplica, 0, CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop monitoring; reads go to the primary afterwards
+     */
+    public static synchronized void shutdown() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+            monitor = null;
+        }
+        healthy = false;
+    }
+
+    /**
+     * @return true if a replica URL is configured
+     */
+    public static boolean isConfigured() {
+        String url = System.getProperty("vote.db.replica.url");
+        return url != null && !url.isEmpty();
+    }
+
+    /**
+     * @return true if reads currently go to the replica
+     */
+    public static boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * @return The last measured replication lag in seconds, or -1 if unknown
+     */
+    public static long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    /**
+     * @return A short description of the replica state for display
+     */
+    public static String getStatus() {
+        return status;
+    }
+
+    /**
+     * Open a connection to the replica if it is healthy
+     *
+     * @return A replica connection, or null if reads should go to the primary
+     */
+    static Connection getConnection() {
+        if (!healthy) {
+            return null;
+        }
+        try {
+            return openReplica();
+        } catch (SQLException e) {
+            markUnhealthy("unreachable: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Connection openReplica() throws SQLException {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL JDBC Driver not found", e);
+        }
+        return DriverManager.getConnection(System.getProperty("vote.db.replica.url"),
+                System.getProperty("vote.db.replica.user", "root"),
+                System.getProperty("vote.db.replica.password", ""));
+    }
+
+    private static void checkReplica() {
+        long maxLag = Long.getLong("vote.db.replica.maxLagSeconds", DEFAULT_MAX_LAG_SECONDS);
+        try (Connection conn = openReplica();
+             Statement stmt = conn.createStatement()) {
+
+            Long lag = readLag(stmt);
+            if (lag == null) {
+                lagSeconds = -1;
+                markUnhealthy("replication is not running");
+            } else if (lag > maxLag) {
+                lagSeconds = lag;
+                markUnhealthy("lagging " + lag + "s behind the primary");
+            } else {
+                lagSeconds = lag;
+                if (!healthy) {
+                    System.err.println("Read replica is in sync, routing reads to it");
+                }
+                healthy = true;
+                status = "in sync, " + lag + "s behind";
+            }
+        } catch (SQLException e) {
+            lagSeconds = -1;
+            markUnhealthy("unreachable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the replication delay; null if this server is not replicating
+     */
+    private static Long readLag(Statement stmt) throws SQLException {
+        ResultSet rs;
+        String column;
+        try {
+            // MySQL 8.0.22 and newer
+            rs = stmt.executeQuery("SHOW REPLICA STATUS");
+            column = "Seconds_Behind_Source";
+        } catch (SQLException e) {
+            rs = stmt.executeQuery("SHOW SLAVE STATUS");
+            column = "Seconds_Behind_Master";
+        }
+        try {
+            if (!rs.next()) {
+                return null;
+            }
+            long lag = rs.getLong(column);
+            // NULL while the SQL or IO thread is stopped
+            return rs.wasNull() ? null : lag;
+        } finally {
+            rs.close();
+        }
+    }
+
+    private static void markUnhealthy(String reason) {
+        if (healthy) {
+            System.err.println("Read replica " + reason + ", routing reads to the primary");
+        }
+        healthy = false;
+        status = reason;
+    }
+}
@@ -0,0 +1,417 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exports election reports: a PDF summary with results tables and charts, and the raw
+ * vote rows as CSV. Both write through a buffered FileChannel and stream their input,
+ * so memory use does not grow with the number of votes.
+ */
+public class ReportExporter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private static final float MARGIN = 50;
+    private static final float CONTENT_WIDTH = PdfDocument.PAGE_WIDTH - 2 * MARGIN;
+
+    // Same palette as the default JavaFX chart colours
+    private static final double[][] PALETTE = {
+            {0.953, 0.384, 0.176}, {0.984, 0.655, 0.106}, {0.341, 0.718, 0.341}, {0.255, 0.663, 0.788},
+            {0.259, 0.345, 0.788}, {0.604, 0.259, 0.784}, {0.784, 0.255, 0.392}, {0.533, 0.533, 0.533}
+    };
+
+    /**
+     * Receives export progress
+     */
+    public interface Progress {
+        void update(long done, long total);
+    }
+
+    /**
+     * The report header and results to export
+     */
+    public static class ReportSummary {
+        private final String title;
+        private final String description;
+        private final String dates;
+        private final String status;
+        private final String createdBy;
+        private final String turnout;
+        private final List<ElectionTally.PositionTally> positions;
+
+        public ReportSummary(String title, String description, String dates, String status, String createdBy,
+                             String turnout, List<ElectionTally.PositionTally> positions) {
+            this.title = title;
+            this.description = description;
+            this.dates = dates;
+            this.status = status;
+            this.createdBy = createdBy;
+            this.turnout = turnout;
+            this.positions = positions;
+        }
+    }
+
+    /**
+     * Write the report as a PDF
+     *
+     * @param report The report to export
+     * @param file The file to write
+     * @param progress Receives progress as completed sections out of the total
+     * @throws IOException if the file could not be written
+     */
+    public static void exportPdf(ReportSummary report, Path file, Progress progress) throws IOException {
+        long totalVotes = 0;
+        for (ElectionTally.PositionTally position : report.positions) {
+            totalVotes += position.getTotalVotes();
+        }
+        boolean byPosition = report.positions.size() > 1;
+
+        try (PdfDocument pdf = new PdfDocument(file)) {
+            PdfLayout layout = new PdfLayout(pdf);
+
+            // Header
+            layout.line(20, true, "Election Report: " + report.title);
+            layout.rule();
+            layout.field("Description", report.description);
+            layout.field("Dates", report.dates);
+            layout.field("Status", report.status);
+            layout.field("Created By", report.createdBy);
+            layout.field("Total Votes", String.valueOf(totalVotes));
+            layout.field("Voter Turnout", report.turnout);
+            layout.field("Generated", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
+            progress.update(1, 4);
+
+            // Results tables, one per position
+            for (ElectionTally.PositionTally position : report.positions) {
+                layout.gap(14);
+                layout.line(14, true, byPosition ? "Results: " + position.getPosition() : "Results");
+                layout.tableRow(true, "Rank", "Candidate", "Position", "Votes", "Percentage");
+                int rank = 1;
+                for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                    String percentage = position.getTotalVotes() > 0
+                            ? String.format("%.1f%%", candidate.getVotes() * 100.0 / position.getTotalVotes())
+                            : "0%";
+                    layout.tableRow(false, String.valueOf(rank++), candidate.getName(), candidate.getPosition(),
+                            String.valueOf(candidate.getVotes()), percentage);
+                }
+            }
+            progress.update(2, 4);
+
+            drawPieChart(layout, report.positions, totalVotes, byPosition);
+            progress.update(3, 4);
+
+            drawBarChart(layout, report.positions, byPosition);
+            progress.update(4, 4);
+        }
+    }
+
+    /**
+     * Write every vote of an election as a CSV row. Voter identities are left out so the
+     * export can't be used to tie a ballot to a voter.
+     *
+     * @param electionId The election ID
+     * @param file The file to write
+     * @param progress Receives progress as rows written out of the total
+     * @return Number of rows written
+     * @throws SQLException if the votes could not be read
+     * @throws IOException if the file could not be written or the export was interrupted
+     */
+    public static long exportVotesCsv(int electionId, Path file, Progress progress) throws SQLException, IOException {
+        String sql = "SELECT v.id, v.voted_at, v.candidate_id, c.name, c.position, v.position AS ballot_position, v.ranking " +
+                     "FROM votes v LEFT JOIN candidates c ON c.id = v.candidate_id " +
+                     "WHERE v.election_id = ? ORDER BY v.id";
+
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            // Count first; a streaming result set blocks other statements on its connection
+            long total;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM votes WHERE election_id = ?")) {
+                stmt.setInt(1, electionId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    total = rs.next() ? rs.getLong(1) : 0;
+                }
+            }
+            progress.update(0, total);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            put(channel, buffer, "vote_id,voted_at,candidate_id,candidate_name,candidate_position,ballot_position,ranking\n");
+
+            long rows = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Stream rows instead of buffering the whole result set
+                DatabaseConnection.streamResults(stmt);
+                stmt.setInt(1, electionId);
+
+                StringBuilder line = new StringBuilder(256);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        line.setLength(0);
+                        Timestamp votedAt = rs.getTimestamp("voted_at");
+                        byte[] ranking = rs.getBytes("ranking");
+
+                        line.append(rs.getLong("id")).append(',');
+                        line.append(votedAt != null ? votedAt.toLocalDateTime().toString() : "").append(',');
+                        line.append(rs.getInt("candidate_id")).append(',');
+                        appendCsv(line, rs.getString("name")).append(',');
+                        appendCsv(line, rs.getString("position")).append(',');
+                        appendCsv(line, rs.getString("ballot_position")).append(',');
+                        if (ranking != null) {
+                            int[] ranked = RankedBallots.unpack(ranking);
+                            for (int i = 0; i < ranked.length; i++) {
+                                line.append(i == 0 ? "" : ">").append(ranked[i]);
+                            }
+                        }
+                        line.append('\n');
+                        put(channel, buffer, line);
+
+                        if (++rows % PROGRESS_INTERVAL == 0) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new InterruptedIOException("Export cancelled after " + rows + " rows");
+                            }
+                            progress.update(rows, Math.max(total, rows));
+                        }
+                    }
+                }
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            progress.update(rows, rows);
+            return rows;
+        }
+    }
+
+    private static void put(FileChannel channel, ByteBuffer buffer, CharSequence text) throws IOException {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void drawPieChart(PdfLayout layout, List<ElectionTally.PositionTally> positions,
+                                     long totalVotes, boolean byPosition) throws IOException {
+        // The same slices and shares as the on-screen chart
+        List<ChartData.ResultSlice> slices = ChartData.resultSlices(positions, byPosition);
+
+        float radius = 90;
+        float legendHeight = slices.size() * 14;
+        layout.gap(14);
+        layout.ensureSpace(20 + Math.max(2 * radius, legendHeight) + 10);
+        layout.line(14, true, "Vote Distribution");
+
+        PdfDocument.Page page = layout.page;
+        float top = layout.y;
+        float cx = MARGIN + radius;
+        float cy = top - radius;
+
+        if (totalVotes == 0) {
+            page.text(MARGIN, top - 14, 10, false, "No votes have been cast yet.");
+            layout.y = top - 24;
+            return;
+        }
+
+        double angle = 90;
+        float legendX = MARGIN + 2 * radius + 44;
+        float legendWidth = MARGIN + CONTENT_WIDTH - legendX;
+        float legendY = top - 10;
+        for (int i = 0; i < slices.size(); i++) {
+            ChartData.ResultSlice slice = slices.get(i);
+            double[] colour = PALETTE[i % PALETTE.length];
+            double sweep = 360.0 * slice.getValue() / totalVotes;
+
+            page.fillColor(colour[0], colour[1], colour[2]);
+            // Slices go clockwise from 12 o'clock, like the JavaFX pie chart
+            page.pieSlice(cx, cy, radius, angle - sweep, sweep);
+            angle -= sweep;
+
+            page.fillRect(legendX - 14, legendY - 1, 8, 8);
+            page.fillColor(0, 0, 0);
+            String votes = " (" + (long) slice.getValue() + ") (" + slice.formatShare() + ")";
+            page.text(legendX, legendY, 9, false,
+                    truncate(slice.getLabel(), legendWidth - PdfDocument.textWidth(votes, 9), 9) + votes);
+            legendY -= 14;
+        }
+        page.fillColor(0, 0, 0);
+        layout.y = Math.min(cy - radius, legendY) - 10;
+    }
+
+    private static void drawBarChart(PdfLayout layout, List<ElectionTally.PositionTally> positions,
+                                     boolean byPosition) throws IOException {
+        long maxVotes = 0;
+        for (ElectionTally.PositionTally position : positions) {
+            for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                maxVotes = Math.max(maxVotes, candidate.getVotes());
+            }
+        }
+
+        float labelWidth = 150;
+        float barArea = CONTENT_WIDTH - labelWidth - 50;
+        layout.gap(14);
+        layout.ensureSpace(40);
+        layout.line(14, true, "Votes by Candidate");
+
+        for (int p = 0; p < positions.size(); p++) {
+            ElectionTally.PositionTally position = positions.get(p);
+            double[] colour = PALETTE[p % PALETTE.length];
+            if (byPosition) {
+                layout.ensureSpace(30);
+                layout.line(10, true, position.getPosition());
+            }
+            for (ElectionTally.CandidateTally candidate : position.getCandidates()) {
+                layout.ensureSpace(16);
+                PdfDocument.Page page = layout.page;
+                float y = layout.y - 12;
+                float width = maxVotes == 0 ? 0 : barArea * candidate.getVotes() / maxVotes;
+
+                page.fillColor(0, 0, 0);
+                page.text(MARGIN, y + 2, 9, false, truncate(candidate.getName(), labelWidth, 9));
+                page.fillColor(colour[0], colour[1], colour[2]);
+                page.fillRect(MARGIN + labelWidth, y, Math.max(width, 0.5f), 10);
+                page.fillColor(0, 0, 0);
+                page.text(MARGIN + labelWidth + width + 5, y + 2, 9, false, String.valueOf(candidate.getVotes()));
+                layout.y -= 16;
+            }
+        }
+    }
+
+    private static String truncate(String text, float width, float size) {
+        if (PdfDocument.textWidth(text, size) <= width) {
+            return text;
+        }
+        int length = Math.max(1, (int) (width / (size * 0.52f)) - 3);
+        return text.substring(0, Math.min(length, text.length())) + "...";
+    }
+
+    /**
+     * Flows lines down the page and starts new pages as needed
+     */
+    private static final class PdfLayout {
+        private static final float[] COLUMNS = {0, 40, 220, 360, 420};
+
+        private final PdfDocument pdf;
+        private PdfDocument.Page page;
+        private float y;
+
+        PdfLayout(PdfDocument pdf) throws IOException {
+            this.pdf = pdf;
+            newPage();
+        }
+
+        void ensureSpace(float height) throws IOException {
+            if (y - height < MARGIN) {
+                newPage();
+            }
+        }
+
+        void gap(float height) {
+            y -= height;
+        }
+
+        void line(float size, boolean bold, String text) throws IOException {
+            ensureSpace(size + 6);
+            y -= size + 4;
+            page.text(MARGIN, y, size, bold, text);
+        }
+
+        void rule() throws IOException {
+            ensureSpace(10);
+            y -= 6;
+            page.strokeColor(0.6, 0.6, 0.6);
+            page.line(MARGIN, y, MARGIN + CONTENT_WIDTH, y, 0.5f);
+            y -= 4;
+        }
+
+        void field(String label, String value) throws IOException {
+            List<String> lines = wrap(value == null || value.isEmpty() ? "N/A" : value, CONTENT_WIDTH - 100, 10);
+            ensureSpace(lines.size() * 14 + 4);
+            y -= 14;
+            page.text(MARGIN, y, 10, true, label + ":");
+            for (int i = 0; i < lines.size(); i++) {
+                if (i > 0) {
+                    y -= 14;
+                }
+                page.text(MARGIN + 100, y, 10, false, lines.get(i));
+            }
+        }
+
+        void tableRow(boolean header, String... cells) throws IOException {
+            ensureSpace(16);
+            y -= 14;
+            for (int i = 0; i < cells.length; i++) {
+                float next = i + 1 < COLUMNS.length ? COLUMNS[i + 1] : CONTENT_WIDTH;
+                page.text(MARGIN + COLUMNS[i], y, 9, header, truncate(cells[i] == null ? "" : cells[i],
+                        next - COLUMNS[i] - 6, 9));
+            }
+            if (header) {
+                page.strokeColor(0.6, 0.6, 0.6);
+                page.line(MARGIN, y - 4, MARGIN + CONTENT_WIDTH, y - 4, 0.5f);
+                y -= 4;
+            }
+        }
+
+        private void newPage() throws IOException {
+            page = pdf.newPage();
+            y = PdfDocument.PAGE_HEIGHT - MARGIN;
+        }
+
+        private static List<String> wrap(String text, float width, float size) {
+            int maxChars = Math.max(10, (int) (width / (size * 0.52f)));
+            List<String> lines = new ArrayList<>();
+            for (String paragraph : text.split("\\R")) {
+                StringBuilder current = new StringBuilder();
+                for (String word : paragraph.split(" ")) {
+                    if (current.length() > 0 && current.length() + 1 + word.length() > maxChars) {
+                        lines.add(current.toString());
+                        current.setLength(0);
+                    }
+                    if (current.length() > 0) {
+                        current.append(' ');
+                    }
+                    current.append(word);
+                }
+                lines.add(current.toString());
+            }
+            return lines;
+        }
+    }
+}
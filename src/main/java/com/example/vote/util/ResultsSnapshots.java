@@ -0,0 +1,416 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Frozen final results of completed elections. When an election closes, its tally and turnout
+ * are written to the election_result_snapshots table; views of a completed election then read
+ * the snapshot (one primary key range scan, cached in memory afterwards) instead of counting
+ * votes again. Elections completed before snapshots existed, or by hand, are frozen on first view.
+ * Ranked-choice elections also freeze their instant-runoff rounds in election_round_snapshots,
+ * so the outcome shown never changes and the ballots are not tabulated again.
+ *
+ * Another station may freeze an election again or drop its snapshot, so a cached snapshot is
+ * checked against the stored frozen_at once it is older than CHECK_MILLIS. Freezing and
+ * dropping lock the election's row, so two stations freezing at once take turns.
+ */
+public class ResultsSnapshots {
+
+    private static final long CHECK_MILLIS = 5000;
+
+    private static final Map<Integer, CachedSnapshot> cache = new ConcurrentHashMap<>();
+
+    private static final class CachedSnapshot {
+        private final Snapshot snapshot;
+        private volatile long checkedAt;
+
+        CachedSnapshot(Snapshot snapshot, long checkedAt) {
+            this.snapshot = snapshot;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    /**
+     * Final results of one election
+     */
+    public static class Snapshot {
+        private final List<ElectionTally.PositionTally> positions;
+        private final int voters;
+        private final int eligibleVoters;
+        private final LocalDateTime frozenAt;
+        private final RankedChoiceTabulator.Result rounds;
+
+        public Snapshot(List<ElectionTally.PositionTally> positions, int voters, int eligibleVoters, LocalDateTime frozenAt,
+                        RankedChoiceTabulator.Result rounds) {
+            this.positions = positions;
+            this.voters = voters;
+            this.eligibleVoters = eligibleVoters;
+            this.frozenAt = frozenAt;
+            this.rounds = rounds;
+        }
+
+        /**
+         * @return Candidate totals grouped like ElectionTally.tally, most votes first
+         */
+        public List<ElectionTally.PositionTally> getPositions() {
+            return positions;
+        }
+
+        public long getTotalVotes() {
+            long total = 0;
+            for (ElectionTally.PositionTally position : positions) {
+                total += position.getTotalVotes();
+            }
+            return total;
+        }
+
+        public int getVoters() {
+            return voters;
+        }
+
+        public int getEligibleVoters() {
+            return eligibleVoters;
+        }
+
+        public LocalDateTime getFrozenAt() {
+            return frozenAt;
+        }
+
+        /**
+         * @return The instant-runoff rounds and winner, or null if the election is not ranked-choice
+         */
+        public RankedChoiceTabulator.Result getRounds() {
+            return rounds;
+        }
+    }
+
+    /**
+     * Get the final results of a completed election, freezing them if that has not happened yet
+     *
+     * @param electionId The election ID
+     * @return The snapshot
+     * @throws SQLException if the snapshot could not be read or written
+     */
+    public static Snapshot getOrFreeze(int electionId) throws SQLException {
+        long now = System.currentTimeMillis();
+        CachedSnapshot cached = cache.get(electionId);
+        if (cached != null && now - cached.checkedAt < CHECK_MILLIS) {
+            return cached.snapshot;
+        }
+
+        Snapshot snapshot;
+        try (Connection conn = DatabaseConnection.getReadConnection()) {
+            if (cached != null && cached.snapshot.getFrozenAt().equals(frozenAt(conn, electionId))) {
+                cached.checkedAt = now;
+                return cached.snapshot;
+            }
+            snapshot = load(conn, electionId);
+        }
+        if (snapshot == null) {
+            return freeze(electionId);
+        }
+        cache.put(electionId, new CachedSnapshot(snapshot, now));
+        return snapshot;
+    }
+
+    /**
+     * Count an election's votes and store them as its final results, replacing an earlier snapshot
+     *
+     * @param electionId The election ID
+     * @return The snapshot
+     * @throws SQLException if the votes could not be counted or the snapshot could not be stored
+     */
+    public static Snapshot freeze(int electionId) throws SQLException {
+        Snapshot snapshot;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Count and store while holding the election's row, so a concurrent freeze or
+                // invalidate at another station waits instead of interleaving its delete and insert
+                String votingMethod = lockElection(conn, electionId);
+                if (votingMethod == null) {
+                    throw new SQLException("Election " + electionId + " not found");
+                }
+                boolean multiPosition = "multi_position".equalsIgnoreCase(votingMethod);
+
+                // Count from the primary; participation bitmaps may not have caught up with other kiosks yet
+                List<ElectionTally.PositionTally> positions = ElectionTally.tally(conn, electionId, multiPosition);
+                int voters;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT COUNT(DISTINCT user_id) FROM votes WHERE election_id = ?")) {
+                    stmt.setInt(1, electionId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        voters = rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+                RankedChoiceTabulator.Result rounds = null;
+                if ("ranked".equalsIgnoreCase(votingMethod)) {
+                    rounds = RankedChoiceTabulator.tabulate(RankedBallots.load(conn, electionId));
+                }
+                // Whole seconds, so the cached value compares equal to the stored frozen_at
+                snapshot = new Snapshot(positions, voters, VoterRolls.countEligible(electionId),
+                        LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS), rounds);
+
+                delete(conn, electionId);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO election_result_snapshots (election_id, position_order, position_rank, " +
+                        "position_group, candidate_id, candidate_name, candidate_position, votes, percentage, " +
+                        "voters, eligible_voters, frozen_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                    Timestamp frozenAt = Timestamp.valueOf(snapshot.getFrozenAt());
+                    for (int order = 0; order < positions.size(); order++) {
+                        ElectionTally.PositionTally position = positions.get(order);
+                        List<ElectionTally.CandidateTally> candidates = position.getCandidates();
+                        for (int rank = 0; rank < candidates.size(); rank++) {
+                            ElectionTally.CandidateTally candidate = candidates.get(rank);
+                            double percentage = position.getTotalVotes() == 0
+                                    ? 0 : candidate.getVotes() * 100.0 / position.getTotalVotes();
+                            stmt.setInt(1, electionId);
+                            stmt.setInt(2, order);
+                            stmt.setInt(3, rank + 1);
+                            stmt.setString(4, position.getPosition());
+                            stmt.setInt(5, candidate.getCandidateId());
+                            stmt.setString(6, candidate.getName());
+                            stmt.setString(7, candidate.getPosition());
+                            stmt.setLong(8, candidate.getVotes());
+                            stmt.setDouble(9, Math.round(percentage * 100) / 100.0);
+                            stmt.setInt(10, voters);
+                            stmt.setInt(11, snapshot.getEligibleVoters());
+                            stmt.setTimestamp(12, frozenAt);
+                            stmt.addBatch();
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+                if (rounds != null) {
+                    insertRounds(conn, electionId, rounds);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        cache.put(electionId, new CachedSnapshot(snapshot, System.currentTimeMillis()));
+        return snapshot;
+    }
+
+    /**
+     * Drop the snapshot of an election whose results changed, e.g. it was reopened or votes
+     * queued offline arrived after it closed. It is frozen again on next view.
+     *
+     * @param electionId The election ID
+     * @throws SQLException if the snapshot could not be deleted
+     */
+    public static void invalidate(int electionId) throws SQLException {
+        cache.remove(electionId);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Waits for a freeze in progress, which may not have counted the new votes
+                lockElection(conn, electionId);
+                delete(conn, electionId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Lock an election's row until the transaction ends
+     *
+     * @return The election's voting method, or null if it does not exist
+     */
+    private static String lockElection(Connection conn, int electionId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT voting_method FROM elections WHERE id = ? FOR UPDATE")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Get when an election's stored snapshot was frozen
+     *
+     * @return The freeze time, or null if the election has no snapshot
+     */
+    private static LocalDateTime frozenAt(Connection conn, int electionId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT MAX(frozen_at) FROM election_result_snapshots WHERE election_id = ?")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                Timestamp frozenAt = rs.next() ? rs.getTimestamp(1) : null;
+                return frozenAt == null ? null : frozenAt.toLocalDateTime();
+            }
+        }
+    }
+
+    private static void delete(Connection conn, int electionId) throws SQLException {
+        for (String table : List.of("election_result_snapshots", "election_round_snapshots")) {
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE election_id = ?")) {
+                stmt.setInt(1, electionId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static void insertRounds(Connection conn, int electionId, RankedChoiceTabulator.Result result) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO election_round_snapshots (election_id, round_number, candidate_order, candidate_id, " +
+                "votes, exhausted, eliminated_candidate_id, winner_id, ballots) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int[] candidateIds = result.getCandidateIds();
+            for (RankedChoiceTabulator.Round round : result.getRounds()) {
+                long[] tallies = round.getTallies();
+                for (int i = 0; i < candidateIds.length; i++) {
+                    stmt.setInt(1, electionId);
+                    stmt.setInt(2, round.getNumber());
+                    stmt.setInt(3, i);
+                    stmt.setInt(4, candidateIds[i]);
+                    stmt.setLong(5, tallies[i]);
+                    stmt.setLong(6, round.getExhausted());
+                    stmt.setInt(7, round.getEliminatedCandidateId());
+                    stmt.setInt(8, result.getWinnerId());
+                    stmt.setInt(9, result.getBallotCount());
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static String votingMethod(Connection conn, int electionId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT voting_method FROM elections WHERE id = ?")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Read the frozen rounds of a ranked-choice election
+     *
+     * @return The rounds, or null if none were frozen
+     */
+    private static RankedChoiceTabulator.Result loadRounds(Connection conn, int electionId) throws SQLException {
+        String sql = "SELECT round_number, candidate_order, candidate_id, votes, exhausted, eliminated_candidate_id, " +
+                     "winner_id, ballots FROM election_round_snapshots " +
+                     "WHERE election_id = ? ORDER BY round_number, candidate_order";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<Integer> candidateIds = new ArrayList<>();
+                List<RankedChoiceTabulator.Round> rounds = new ArrayList<>();
+                List<Long> tallies = new ArrayList<>();
+                int number = 0;
+                long exhausted = 0;
+                int eliminatedId = -1;
+                int winnerId = -1;
+                int ballots = 0;
+
+                while (rs.next()) {
+                    if (rs.getInt("round_number") != number) {
+                        if (number != 0) {
+                            rounds.add(new RankedChoiceTabulator.Round(number, toArray(tallies), exhausted, eliminatedId));
+                            tallies.clear();
+                        }
+                        number = rs.getInt("round_number");
+                        exhausted = rs.getLong("exhausted");
+                        eliminatedId = rs.getInt("eliminated_candidate_id");
+                    }
+                    if (rounds.isEmpty()) {
+                        candidateIds.add(rs.getInt("candidate_id"));
+                    }
+                    tallies.add(rs.getLong("votes"));
+                    winnerId = rs.getInt("winner_id");
+                    ballots = rs.getInt("ballots");
+                }
+
+                if (number == 0) {
+                    return null;
+                }
+                rounds.add(new RankedChoiceTabulator.Round(number, toArray(tallies), exhausted, eliminatedId));
+                int[] ids = new int[candidateIds.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = candidateIds.get(i);
+                }
+                return new RankedChoiceTabulator.Result(ids, rounds, winnerId, ballots);
+            }
+        }
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static Snapshot load(Connection conn, int electionId) throws SQLException {
+        String sql = "SELECT position_order, position_group, candidate_id, candidate_name, candidate_position, " +
+                     "votes, voters, eligible_voters, frozen_at FROM election_result_snapshots " +
+                     "WHERE election_id = ? ORDER BY position_order, position_rank";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<ElectionTally.PositionTally> positions = new ArrayList<>();
+                List<ElectionTally.CandidateTally> candidates = new ArrayList<>();
+                String group = null;
+                int order = -1;
+                int voters = 0;
+                int eligibleVoters = 0;
+                LocalDateTime frozenAt = null;
+
+                while (rs.next()) {
+                    if (rs.getInt("position_order") != order) {
+                        if (group != null) {
+                            positions.add(new ElectionTally.PositionTally(group, candidates));
+                            candidates = new ArrayList<>();
+                        }
+                        order = rs.getInt("position_order");
+                        group = rs.getString("position_group");
+                    }
+                    candidates.add(new ElectionTally.CandidateTally(rs.getInt("candidate_id"),
+                            rs.getString("candidate_name"), rs.getString("candidate_position"), rs.getLong("votes")));
+                    voters = rs.getInt("voters");
+                    eligibleVoters = rs.getInt("eligible_voters");
+                    frozenAt = rs.getTimestamp("frozen_at").toLocalDateTime();
+                }
+
+                if (group == null) {
+                    return null;
+                }
+                positions.add(new ElectionTally.PositionTally(group, candidates));
+
+                RankedChoiceTabulator.Result rounds = null;
+                if ("ranked".equalsIgnoreCase(votingMethod(conn, electionId))) {
+                    rounds = loadRounds(conn, electionId);
+                    if (rounds == null) {
+                        // Frozen before rounds were stored; freeze again with them
+                        return null;
+                    }
+                }
+                return new Snapshot(positions, voters, eligibleVoters, frozenAt, rounds);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.vote.util;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-statement execution statistics collected by InstrumentedConnection. Statements are
+ * grouped by their normalized SQL (literals replaced with ?, whitespace collapsed), and each
+ * group keeps its execution count, rows, errors and a latency histogram in microseconds.
+ *
+ * Executions slower than the system property vote.db.slowQueryMillis (default 200) are
+ * logged to stderr and kept in a short list of recent slow queries.
+ */
+public class SqlStatistics {
+
+    private static final int MAX_STATEMENTS = 2000;
+    private static final int MAX_SLOW_QUERIES = 100;
+    private static final String OVERFLOW_SQL = "(other statements)";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private static final Deque<SlowQuery> slowQueries = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger slowQueryCount = new AtomicInteger();
+
+    /**
+     * Statistics of one normalized statement
+     */
+    public static class StatementStats {
+        private final String sql;
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latencyMicros = new LatencyHistogram();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getExecutions() {
+            return latencyMicros.getCount();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        /**
+         * @return Latencies in microseconds
+         */
+        public LatencyHistogram getLatency() {
+            return latencyMicros;
+        }
+
+        void addRows(long count) {
+            rows.add(count);
+        }
+
+        void record(long nanos, boolean failed) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            latencyMicros.record(micros);
+            if (failed) {
+                errors.increment();
+            }
+            if (micros >= slowQueryThresholdMicros()) {
+                logSlowQuery(this, micros, failed);
+            }
+        }
+    }
+
+    /**
+     * One execution that exceeded the slow query threshold
+     */
+    public static class SlowQuery {
+        private final LocalDateTime time;
+        private final String sql;
+        private final long millis;
+        private final boolean failed;
+
+        public SlowQuery(LocalDateTime time, String sql, long millis, boolean failed) {
+            this.time = time;
+            this.sql = sql;
+            this.millis = millis;
+            this.failed = failed;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * Get the statistics of a statement, creating them on first use
+     *
+     * @param sql The SQL as sent to the driver
+     * @return The statistics of its normalized form
+     */
+    public static StatementStats forSql(String sql) {
+        String normalized = normalize(sql);
+        StatementStats stats = statements.get(normalized);
+        if (stats != null) {
+            return stats;
+        }
+        // Statements built with inline literals normalize to one entry; this only guards against the rest
+        if (statements.size() >= MAX_STATEMENTS) {
+            return statements.computeIfAbsent(OVERFLOW_SQL, StatementStats::new);
+        }
+        return statements.computeIfAbsent(normalized, StatementStats::new);
+    }
+
+    /**
+     * Get the statements that took the most time in total
+     *
+     * @param limit Maximum number of statements
+     * @return Statements sorted by total time, slowest first
+     */
+    public static List<StatementStats> getTopStatements(int limit) {
+        List<StatementStats> top = new ArrayList<>(statements.values());
+        top.sort(Comparator.comparingLong((StatementStats stats) -> stats.getLatency().getTotal()).reversed());
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    /**
+     * @return Recent slow queries, newest first
+     */
+    public static List<SlowQuery> getSlowQueries() {
+        return new ArrayList<>(slowQueries);
+    }
+
+    /**
+     * Forget all statistics and slow queries
+     */
+    public static void reset() {
+        statements.clear();
+        slowQueries.clear();
+        slowQueryCount.set(0);
+    }
+
+    /**
+     * Normalize SQL so executions that differ only in literals are grouped together
+     *
+     * @param sql The SQL
+     * @return The normalized SQL
+     */
+    static String normalize(String sql) {
+        if (sql == null) {
+            return "(unknown)";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return IN_LIST.matcher(normalized).replaceAll("IN (?)");
+    }
+
+    private static long slowQueryThresholdMicros() {
+        return Long.getLong("vote.db.slowQueryMillis", 200) * 1000;
+    }
+
+    private static void logSlowQuery(StatementStats stats, long micros, boolean failed) {
+        long millis = micros / 1000;
+        System.err.println("Slow query (" + millis + " ms" + (failed ? ", failed" : "") + "): " + stats.getSql());
+        slowQueries.addFirst(new SlowQuery(LocalDateTime.now(), stats.getSql(), millis, failed));
+        if (slowQueryCount.incrementAndGet() > MAX_SLOW_QUERIES) {
+            slowQueries.pollLast();
+            slowQueryCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.vote.util;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import java.time.Instant;
+
+/**
+ * Utility class to measure cold start time from JVM launch to the first rendered login screen.
+ *
+ * Controlled through system properties:
+ *   vote.startup.exit=true      exit as soon as the login screen is interactive (benchmark / CDS training runs)
+ *   vote.startup.budgetMs=N     exit with status 1 when startup took longer than N milliseconds
+ */
+public class StartupTimer {
+
+    private static final String EXIT_PROPERTY = "vote.startup.exit";
+    private static final String BUDGET_PROPERTY = "vote.startup.budgetMs";
+
+    // Fallback reference point if the process start time is not available on this platform
+    private static final long CLASS_LOAD_MILLIS = System.currentTimeMillis();
+
+    private static long elapsedMillis = -1;
+
+    /**
+     * Get the time the JVM process was started, in epoch milliseconds
+     *
+     * @return The process start time, or the time this class was loaded if unknown
+     */
+    public static long getJvmStartMillis() {
+        return ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(CLASS_LOAD_MILLIS);
+    }
+
+    /**
+     * Get the measured startup time
+     *
+     * @return Milliseconds from JVM launch to interactive login screen, or -1 if not measured yet
+     */
+    public static long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Record the startup time once the first frame of the shown stage has been rendered.
+     * Must be called on the JavaFX Application Thread right after the stage is shown.
+     */
+    public static void markInteractive() {
+        new AnimationTimer() {
+            private int pulses = 0;
+
+            @Override
+            public void handle(long now) {
+                // The timer runs at the start of a pulse, so the second call means the
+                // pulse that rendered the login screen has completed
+                if (++pulses < 2) {
+                    return;
+                }
+                stop();
+                report(System.currentTimeMillis() - getJvmStartMillis());
+            }
+        }.start();
+    }
+
+    /**
+     * Keep the measured startup time and, in benchmark or CDS training runs, print it and exit
+     */
+    private static void report(long millis) {
+        elapsedMillis = millis;
+        long budget = Long.getLong(BUDGET_PROPERTY, 0L);
+        boolean exit = Boolean.getBoolean(EXIT_PROPERTY);
+        if (!exit && budget <= 0) {
+            return;
+        }
+        System.out.println("Startup: login screen interactive after " + millis + " ms");
+
+        if (budget > 0 && millis > budget) {
+            System.err.println("Startup: exceeded budget of " + budget + " ms");
+            System.exit(1);
+        }
+
+        if (exit) {
+            Platform.exit();
+        }
+    }
+}
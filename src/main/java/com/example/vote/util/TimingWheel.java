@@ -0,0 +1,164 @@
+package com.example.vote.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel running tasks on a single daemon thread.
+ * Scheduling and cancelling are O(1); each tick only visits one bucket.
+ */
+public class TimingWheel {
+
+    private final long tickMillis;
+    private final List<Queue<Timeout>> buckets;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startMillis;
+    private volatile boolean running = true;
+    private long tick = 0;
+
+    /**
+     * Handle to a scheduled task
+     */
+    public static class Timeout {
+        private final Runnable task;
+        private final long deadlineMillis;
+        private long remainingRounds;
+        private volatile boolean cancelled = false;
+
+        private Timeout(Runnable task, long deadlineMillis) {
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        /**
+         * Cancel the task if it has not run yet
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+
+    /**
+     * Create and start a timing wheel
+     *
+     * @param name Name of the worker thread
+     * @param tickDuration Duration of one tick
+     * @param unit Unit of the tick duration
+     * @param wheelSize Number of buckets in the wheel
+     */
+    public TimingWheel(String name, long tickDuration, TimeUnit unit, int wheelSize) {
+        this.tickMillis = Math.max(1, unit.toMillis(tickDuration));
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayDeque<>());
+        }
+        this.startMillis = System.currentTimeMillis();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedule a task to run at an absolute time
+     *
+     * @param task The task to run on the wheel thread
+     * @param deadlineMillis Epoch milliseconds at which to run the task
+     * @return Handle that can be used to cancel the task
+     */
+    public Timeout scheduleAt(Runnable task, long deadlineMillis) {
+        Timeout timeout = new Timeout(task, deadlineMillis);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Schedule a task to run after a delay
+     *
+     * @param task The task to run on the wheel thread
+     * @param delay The delay
+     * @param unit Unit of the delay
+     * @return Handle that can be used to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return scheduleAt(task, System.currentTimeMillis() + unit.toMillis(delay));
+    }
+
+    /**
+     * Stop the wheel; tasks that have not run yet are dropped
+     */
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long nextTickMillis = startMillis + (tick + 1) * tickMillis;
+            long sleep = nextTickMillis - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+            }
+
+            transferPending();
+            expireBucket(buckets.get((int) (tick % buckets.size())));
+            tick++;
+        }
+    }
+
+    /**
+     * Move newly scheduled tasks into their buckets
+     */
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long ticksFromStart = Math.max(0, (timeout.deadlineMillis - startMillis) / tickMillis);
+            // Never place a task behind the tick that is about to be processed
+            long targetTick = Math.max(ticksFromStart, tick);
+            timeout.remainingRounds = (targetTick - tick) / buckets.size();
+            buckets.get((int) (targetTick % buckets.size())).add(timeout);
+        }
+    }
+
+    private void expireBucket(Queue<Timeout> bucket) {
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                it.remove();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Scheduled task failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ballots per election and minute in the vote_turnout_buckets table, so "when did people vote"
+ * is read from a few hundred bucket rows instead of grouping the votes table. Buckets are
+ * rolled up to hours or days when read, depending on how long the election has been running.
+ *
+ * Committed ballots are counted by a background flush every second rather than inside the vote
+ * transaction, so kiosks do not queue on the lock of the current minute's row. A ballot is
+ * counted in the minute of its voted_at, which comes from the database clock (or, for ballots
+ * queued offline, the time they were queued), the same time the backfill uses. Ballots not
+ * flushed when a station crashes are missing from the chart only, never from the votes.
+ *
+ * Votes from before the buckets existed are counted from the votes table: the first time a
+ * series is read after start-up, minutes before the election's first bucket are filled in.
+ * Ballots newer than BACKFILL_MARGIN_MILLIS are left out, since they may still be pending in
+ * another station's flush and would then be counted twice.
+ */
+public class TurnoutBuckets {
+
+    /** Series are rolled up so they have no more than this many points */
+    private static final int MAX_POINTS = 360;
+    private static final long FLUSH_MILLIS = 1000;
+    /** A station's flush interval plus an allowance for slow or retried flushes */
+    private static final long BACKFILL_MARGIN_MILLIS = FLUSH_MILLIS + 60_000;
+
+    // Elections whose minutes before the first bucket were checked since start-up
+    private static final Set<Integer> backfilled = ConcurrentHashMap.newKeySet();
+    // Committed ballots not yet counted, as electionId << 32 | userId
+    private static final ConcurrentLinkedQueue<Long> pending = new ConcurrentLinkedQueue<>();
+    private static ScheduledExecutorService flusher;
+
+    /**
+     * Width of the points of a series
+     */
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES, "MM-dd HH:mm"),
+        HOUR(ChronoUnit.HOURS, "MM-dd HH:00"),
+        DAY(ChronoUnit.DAYS, "yyyy-MM-dd");
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter format;
+
+        Granularity(ChronoUnit unit, String pattern) {
+            this.unit = unit;
+            this.format = DateTimeFormatter.ofPattern(pattern);
+        }
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        public LocalDateTime next(LocalDateTime time) {
+            return time.plus(1, unit);
+        }
+
+        /**
+         * @param time The start of a point
+         * @return Chart label for the point
+         */
+        public String format(LocalDateTime time) {
+            return time.format(format);
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    /**
+     * Ballots cast from one point in time to the next
+     */
+    public static class Bucket {
+        private final LocalDateTime start;
+        private final long ballots;
+        private final long cumulativeBallots;
+
+        Bucket(LocalDateTime start, long ballots, long cumulativeBallots) {
+            this.start = start;
+            this.ballots = ballots;
+            this.cumulativeBallots = cumulativeBallots;
+        }
+
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        public long getBallots() {
+            return ballots;
+        }
+
+        /**
+         * @return Ballots cast up to the end of this bucket
+         */
+        public long getCumulativeBallots() {
+            return cumulativeBallots;
+        }
+    }
+
+    /**
+     * Ballots over time of one election, without gaps from the first ballot to the last
+     */
+    public static class Series {
+        private final Granularity granularity;
+        private final List<Bucket> buckets;
+
+        Series(Granularity granularity, List<Bucket> buckets) {
+            this.granularity = granularity;
+            this.buckets = buckets;
+        }
+
+        public Granularity getGranularity() {
+            return granularity;
+        }
+
+        public List<Bucket> getBuckets() {
+            return buckets;
+        }
+    }
+
+    /**
+     * Start counting recorded ballots in the background
+     */
+    public static synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "turnout-buckets");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(TurnoutBuckets::flushQuietly, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background flush and count the ballots still pending
+     */
+    public static synchronized void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        flushQuietly();
+    }
+
+    /**
+     * Count a ballot after the transaction that recorded it has committed
+     *
+     * @param electionId The election ID
+     * @param userId The voter's user ID
+     */
+    public static void recordBallot(int electionId, int userId) {
+        pending.add((long) electionId << 32 | userId);
+    }
+
+    /**
+     * Add the pending ballots to their buckets in one transaction. Ballots are put back if the
+     * database fails; nothing was added then, so they are not counted twice.
+     *
+     * @throws SQLException if the buckets could not be updated
+     */
+    static synchronized void flush() throws SQLException {
+        List<Long> ballots = new ArrayList<>();
+        for (Long ballot; (ballot = pending.poll()) != null; ) {
+            ballots.add(ballot);
+        }
+        if (ballots.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            Map<Integer, Map<LocalDateTime, Integer>> counts = new TreeMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT MIN(voted_at) FROM votes WHERE election_id = ? AND user_id = ?")) {
+                for (long ballot : ballots) {
+                    int electionId = (int) (ballot >>> 32);
+                    stmt.setInt(1, electionId);
+                    stmt.setInt(2, (int) ballot);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        Timestamp votedAt = rs.next() ? rs.getTimestamp(1) : null;
+                        if (votedAt != null) {
+                            add(counts, electionId, votedAt.getTime());
+                        }
+                    }
+                }
+            }
+            conn.setAutoCommit(false);
+            try {
+                write(conn, counts);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            pending.addAll(ballots);
+            throw e;
+        }
+    }
+
+    private static void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            if (!OfflineVoteQueue.isConnectionFailure(e)) {
+                System.err.println("Failed to update turnout buckets: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Read the ballots over time of an election
+     *
+     * @param electionId The election ID
+     * @return The series, empty if nobody has voted
+     * @throws SQLException if the buckets could not be read
+     */
+    public static Series load(int electionId) throws SQLException {
+        TreeMap<LocalDateTime, Long> minutes = new TreeMap<>();
+        try (Connection conn = DatabaseConnection.getReadConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT bucket_start, ballots FROM vote_turnout_buckets WHERE election_id = ? ORDER BY bucket_start")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    minutes.put(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2));
+                }
+            }
+        }
+
+        if (backfilled.add(electionId)) {
+            boolean counted;
+            try {
+                counted = backfill(electionId, minutes.isEmpty() ? null : minutes.firstKey());
+            } catch (SQLException e) {
+                backfilled.remove(electionId);
+                throw e;
+            }
+            if (counted) {
+                return load(electionId);
+            }
+        }
+        if (minutes.isEmpty()) {
+            return new Series(Granularity.MINUTE, Collections.emptyList());
+        }
+
+        Duration span = Duration.between(minutes.firstKey(), minutes.lastKey());
+        Granularity granularity = span.toMinutes() < MAX_POINTS ? Granularity.MINUTE
+                : span.toHours() < MAX_POINTS ? Granularity.HOUR : Granularity.DAY;
+
+        TreeMap<LocalDateTime, Long> rolledUp = new TreeMap<>();
+        for (Map.Entry<LocalDateTime, Long> minute : minutes.entrySet()) {
+            rolledUp.merge(granularity.truncate(minute.getKey()), minute.getValue(), Long::sum);
+        }
+
+        // Fill the gaps so the points are evenly spaced in time
+        List<Bucket> buckets = new ArrayList<>();
+        long cumulative = 0;
+        for (LocalDateTime time = rolledUp.firstKey(); !time.isAfter(rolledUp.lastKey()); time = granularity.next(time)) {
+            long ballots = rolledUp.getOrDefault(time, 0L);
+            cumulative += ballots;
+            buckets.add(new Bucket(time, ballots, cumulative));
+        }
+        return new Series(granularity, buckets);
+    }
+
+    /**
+     * Count the ballots of an election recorded before buckets existed from the votes table.
+     * Only minutes before the first bucket and older than BACKFILL_MARGIN_MILLIS are filled in;
+     * later ballots are counted by the flush, possibly still pending on some station.
+     *
+     * @param firstBucket The election's first bucket, or null if it has none
+     * @return true if there were votes to count
+     */
+    private static boolean backfill(int electionId, LocalDateTime firstBucket) throws SQLException {
+        Map<Integer, Map<LocalDateTime, Integer>> counts = new TreeMap<>();
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            LocalDateTime cutoff;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT MIN(voted_at), CURRENT_TIMESTAMP FROM votes WHERE election_id = ?")) {
+                stmt.setInt(1, electionId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    Timestamp firstVote = rs.getTimestamp(1);
+                    cutoff = new Timestamp(rs.getTimestamp(2).getTime() - BACKFILL_MARGIN_MILLIS)
+                            .toLocalDateTime().truncatedTo(ChronoUnit.MINUTES);
+                    if (firstBucket != null && firstBucket.isBefore(cutoff)) {
+                        cutoff = firstBucket;
+                    }
+                    if (firstVote == null || !firstVote.toLocalDateTime().isBefore(cutoff)) {
+                        return false;
+                    }
+                }
+            }
+
+            // A ballot's time is that of its first vote row
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT MIN(voted_at) FROM votes WHERE election_id = ? GROUP BY user_id HAVING MIN(voted_at) < ?")) {
+                stmt.setInt(1, electionId);
+                stmt.setTimestamp(2, Timestamp.valueOf(cutoff));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        add(counts, electionId, rs.getTimestamp(1).getTime());
+                    }
+                }
+            }
+            if (counts.isEmpty()) {
+                return false;
+            }
+
+            // Replace rather than add, in case another station filled these minutes meanwhile
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO vote_turnout_buckets (election_id, bucket_start, ballots) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE ballots = VALUES(ballots)")) {
+                addBatches(stmt, counts);
+                stmt.executeBatch();
+            }
+        }
+        return true;
+    }
+
+    private static void add(Map<Integer, Map<LocalDateTime, Integer>> counts, int electionId, long timeMillis) {
+        LocalDateTime minute = new Timestamp(timeMillis).toLocalDateTime().truncatedTo(ChronoUnit.MINUTES);
+        counts.computeIfAbsent(electionId, id -> new TreeMap<>()).merge(minute, 1, Integer::sum);
+    }
+
+    private static void write(Connection conn, Map<Integer, Map<LocalDateTime, Integer>> counts) throws SQLException {
+        // Sorted by key, so concurrent flushes lock bucket rows in the same order
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO vote_turnout_buckets (election_id, bucket_start, ballots) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE ballots = ballots + VALUES(ballots)")) {
+            addBatches(stmt, counts);
+            stmt.executeBatch();
+        }
+    }
+
+    private static void addBatches(PreparedStatement stmt, Map<Integer, Map<LocalDateTime, Integer>> counts) throws SQLException {
+        for (Map.Entry<Integer, Map<LocalDateTime, Integer>> election : counts.entrySet()) {
+            for (Map.Entry<LocalDateTime, Integer> minute : election.getValue().entrySet()) {
+                stmt.setInt(1, election.getKey());
+                stmt.setTimestamp(2, Timestamp.valueOf(minute.getKey()));
+                stmt.setInt(3, minute.getValue());
+                stmt.addBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Bulk import of users from CSV. The file needs a header row with the columns username,
+ * password, fullname and email, and optionally role ('user' or 'admin', default 'user').
+ *
+ * Rows are validated against one snapshot of the existing usernames and emails, hashed in
+ * parallel on a fork-join pool and inserted in JDBC batches. Invalid rows are reported
+ * with their line number and skipped; they never abort the import.
+ *
+ * Passwords may be given in plain text or as $2a$ BCrypt hashes. Plain text passwords are
+ * hashed with PasswordHash.IMPORT_WORKLOAD and upgraded on the user's first login, so users
+ * who never log in keep the lower workload.
+ */
+public class UserImporter {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
+
+    /**
+     * Receives import progress
+     */
+    public interface Progress {
+        void update(long rowsRead, long rowsImported);
+    }
+
+    /**
+     * A row that could not be imported
+     */
+    public static class RowError {
+        private final int lineNumber;
+        private final String username;
+        private final String message;
+
+        public RowError(int lineNumber, String username, String message) {
+            this.lineNumber = lineNumber;
+            this.username = username;
+            this.message = message;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + (username.isEmpty() ? "" : " (" + username + ")") + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static class ImportResult {
+        private final int imported;
+        private final List<RowError> errors;
+
+        public ImportResult(int imported, List<RowError> errors) {
+            this.imported = imported;
+            this.errors = errors;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public List<RowError> getErrors() {
+            return errors;
+        }
+    }
+
+    private static final class PendingUser {
+        final int lineNumber;
+        final String username;
+        final String password;
+        final String fullname;
+        final String email;
+        final String role;
+        String hash;
+
+        PendingUser(int lineNumber, String username, String password, String fullname, String email, String role) {
+            this.lineNumber = lineNumber;
+            this.username = username;
+            this.password = password;
+            this.fullname = fullname;
+            this.email = email;
+            this.role = role;
+        }
+    }
+
+    /**
+     * Import users from a CSV source
+     *
+     * @param source The CSV to import
+     * @param progress Receives progress after every batch
+     * @return The number of imported users and the rows that were skipped
+     * @throws IOException if the source could not be read, has no valid header, or the import was interrupted
+     * @throws SQLException if the existing users could not be loaded
+     */
+    public static ImportResult importUsers(Reader source, Progress progress) throws IOException, SQLException {
+        List<RowError> errors = new ArrayList<>();
+        int imported = 0;
+        long rowsRead = 0;
+
+        try (CsvReader csv = new CsvReader(source);
+             Connection conn = DatabaseConnection.getConnection()) {
+
+            Map<String, Integer> columns = readHeader(csv);
+
+            // One lookup of every taken username and email; the file's own rows are added as they pass
+            Set<String> usernames = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT username, email FROM users");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usernames.add(rs.getString("username").toLowerCase(Locale.ROOT));
+                    if (rs.getString("email") != null) {
+                        emails.add(rs.getString("email").toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+            try {
+                List<PendingUser> batch = new ArrayList<>(BATCH_SIZE);
+                List<String> record;
+                while ((record = csv.readRecord()) != null) {
+                    if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                        continue;
+                    }
+                    rowsRead++;
+                    PendingUser user = validate(csv.getLineNumber(), record, columns, usernames, emails, errors);
+                    if (user != null) {
+                        batch.add(user);
+                    }
+                    if (batch.size() == BATCH_SIZE) {
+                        imported += insertBatch(conn, pool, batch, errors);
+                        batch.clear();
+                        progress.update(rowsRead, imported);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    imported += insertBatch(conn, pool, batch, errors);
+                }
+                progress.update(rowsRead, imported);
+            } finally {
+                pool.shutdown();
+                if (imported > 0) {
+                    VoterRolls.invalidateUserCount();
+                }
+            }
+        }
+
+        return new ImportResult(imported, errors);
+    }
+
+    private static Map<String, Integer> readHeader(CsvReader csv) throws IOException {
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : new String[] {"username", "password", "fullname", "email"}) {
+            if (!columns.containsKey(required)) {
+                throw new IOException("Missing column in header row: " + required);
+            }
+        }
+        return columns;
+    }
+
+    private static PendingUser validate(int lineNumber, List<String> record, Map<String, Integer> columns,
+                                        Set<String> usernames, Set<String> emails, List<RowError> errors) {
+        String username = field(record, columns, "username");
+        String password = field(record, columns, "password");
+        String fullname = field(record, columns, "fullname");
+        String email = field(record, columns, "email");
+        String role = field(record, columns, "role").toLowerCase(Locale.ROOT);
+        if (role.isEmpty()) {
+            role = "user";
+        }
+
+        String problem = null;
+        if (username.isEmpty() || password.isEmpty() || fullname.isEmpty() || email.isEmpty()) {
+            problem = "username, password, fullname and email are required";
+        } else if (username.length() > 50) {
+            problem = "username is longer than 50 characters";
+        } else if (!email.matches(EMAIL_REGEX)) {
+            problem = "invalid email address";
+        } else if (PasswordHash.isUnsupportedHash(password)) {
+            problem = "password is a " + password.substring(0, password.indexOf('$', 1) + 1)
+                    + " BCrypt hash; only $2a$ hashes can be imported";
+        } else if (!role.equals("user") && !role.equals("admin")) {
+            problem = "role must be 'user' or 'admin'";
+        } else if (usernames.contains(username.toLowerCase(Locale.ROOT))) {
+            problem = "username already exists";
+        } else if (emails.contains(email.toLowerCase(Locale.ROOT))) {
+            problem = "email already exists";
+        }
+
+        if (problem != null) {
+            errors.add(new RowError(lineNumber, username, problem));
+            return null;
+        }
+        usernames.add(username.toLowerCase(Locale.ROOT));
+        emails.add(email.toLowerCase(Locale.ROOT));
+        return new PendingUser(lineNumber, username, password, fullname, email, role);
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= record.size() ? "" : record.get(index).trim();
+    }
+
+    /**
+     * Hash the batch in parallel, then insert it in one JDBC batch
+     */
+    private static int insertBatch(Connection conn, ForkJoinPool pool, List<PendingUser> batch,
+                                   List<RowError> errors) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Import cancelled");
+        }
+
+        pool.invoke(new HashTask(batch, 0, batch.size()));
+
+        String sql = "INSERT INTO users (username, password, role, fullname, email) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (PendingUser user : batch) {
+                stmt.setString(1, user.username);
+                stmt.setString(2, user.hash);
+                stmt.setString(3, user.role);
+                stmt.setString(4, user.fullname);
+                stmt.setString(5, user.email);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            return batch.size();
+
+        } catch (SQLException e) {
+            // A row was taken concurrently or rejected by the database; retry row by row to find it
+            rollbackQuietly(conn);
+            return insertOneByOne(conn, batch, errors, e);
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                System.err.println("Failed to restore auto-commit: " + e.getMessage());
+            }
+        }
+    }
+
+    private static int insertOneByOne(Connection conn, List<PendingUser> batch, List<RowError> errors,
+                                      SQLException batchError) {
+        if (!(batchError instanceof BatchUpdateException)) {
+            System.err.println("User import batch failed, retrying row by row: " + batchError.getMessage());
+        }
+        int inserted = 0;
+        String sql = "INSERT INTO users (username, password, role, fullname, email) VALUES (?, ?, ?, ?, ?)";
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Failed to restore auto-commit: " + e.getMessage());
+        }
+        for (PendingUser user : batch) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, user.username);
+                stmt.setString(2, user.hash);
+                stmt.setString(3, user.role);
+                stmt.setString(4, user.fullname);
+                stmt.setString(5, user.email);
+                stmt.executeUpdate();
+                inserted++;
+            } catch (SQLException e) {
+                errors.add(new RowError(user.lineNumber, user.username, e.getMessage()));
+            }
+        }
+        return inserted;
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            System.err.println("Failed to roll back user import batch: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hashes a slice of the batch. Each hash is expensive, so leaves are single users.
+     */
+    private static final class HashTask extends RecursiveAction {
+        private final List<PendingUser> users;
+        private final int from;
+        private final int to;
+
+        HashTask(List<PendingUser> users, int from, int to) {
+            this.users = users;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                PendingUser user = users.get(from);
+                user.hash = PasswordHash.isHash(user.password)
+                        ? user.password
+                        : PasswordHash.hashPassword(user.password, PasswordHash.IMPORT_WORKLOAD);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            ForkJoinTask.invokeAll(new HashTask(users, from, middle), new HashTask(users, middle, to));
+        }
+    }
+}
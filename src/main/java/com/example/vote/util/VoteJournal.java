@@ -0,0 +1,266 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only, tamper-evident journal of every vote recorded by this application.
+ *
+ * Records have a fixed size of 64 bytes and are written to memory-mapped segment files of
+ * 16 MB. Each record carries the SHA-256 of the previous record's hash and its own fields,
+ * so changing or removing a record breaks the chain from that point on. Appending is a
+ * memory copy and one hash, which keeps it off the vote latency; the mapped pages are
+ * forced to disk by a background thread every few milliseconds (group commit). A process
+ * crash loses nothing, a power loss at most the last flush interval.
+ *
+ * Record layout: sequence (long), timestamp millis (long), election ID, user ID,
+ * candidate ID, reserved (ints), hash (32 bytes).
+ */
+public class VoteJournal {
+
+    static final int RECORD_SIZE = 64;
+    static final int HASH_OFFSET = 32;
+    static final int HASH_SIZE = 32;
+    static final int RECORDS_PER_SEGMENT = 1 << 18;
+    static final long SEGMENT_SIZE = (long) RECORD_SIZE * RECORDS_PER_SEGMENT;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+
+    private static ScheduledExecutorService flusher;
+    private static MappedByteBuffer segment;
+    private static int segmentIndex;
+    private static long lastSequence;
+    private static byte[] lastHash = new byte[HASH_SIZE];
+    private static MessageDigest digest;
+    private static volatile boolean dirty;
+
+    /**
+     * Open the journal and start the flush thread. Recovery of the last segment runs on
+     * the flush thread; appends made before it finishes wait for it.
+     */
+    public static synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vote-journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.execute(() -> {
+            try {
+                open();
+            } catch (IOException e) {
+                System.err.println("Failed to open vote journal: " + e.getMessage());
+            }
+        });
+        flusher.scheduleWithFixedDelay(VoteJournal::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Flush outstanding records and stop the flush thread
+     */
+    public static synchronized void shutdown() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+            flusher = null;
+        }
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Get the directory holding the journal segments. Set the system property
+     * vote.journal.dir to move it; the default is .vote/journal in the user's home.
+     *
+     * @return The journal directory
+     */
+    public static Path getDirectory() {
+        String configured = System.getProperty("vote.journal.dir");
+        if (configured != null && !configured.isEmpty()) {
+            return Paths.get(configured);
+        }
+        return Paths.get(System.getProperty("user.home"), ".vote", "journal");
+    }
+
+    /**
+     * Append one record per chosen candidate of a ballot. Call this after the vote was committed.
+     *
+     * @param electionId The election ID
+     * @param userId The voter's user ID
+     * @param candidateIds The candidates the ballot counts for
+     * @throws IOException if the journal could not be opened or extended
+     */
+    public static synchronized void append(int electionId, int userId, int... candidateIds) throws IOException {
+        if (segment == null) {
+            open();
+        }
+        long timestamp = System.currentTimeMillis();
+        for (int candidateId : candidateIds) {
+            int slot = (int) (lastSequence % RECORDS_PER_SEGMENT);
+            if (slot == 0 && lastSequence > 0) {
+                rollSegment();
+            }
+            int offset = slot * RECORD_SIZE;
+            long sequence = lastSequence + 1;
+            segment.putLong(offset, sequence);
+            segment.putLong(offset + 8, timestamp);
+            segment.putInt(offset + 16, electionId);
+            segment.putInt(offset + 20, userId);
+            segment.putInt(offset + 24, candidateId);
+            segment.putInt(offset + 28, 0);
+
+            byte[] hash = chainHash(digest, lastHash, segment, offset);
+            segment.put(offset + HASH_OFFSET, hash);
+
+            lastHash = hash;
+            lastSequence = sequence;
+        }
+        dirty = true;
+    }
+
+    /**
+     * @return The sequence number of the last appended record, 0 if the journal is empty
+     * @throws IOException if the journal could not be opened
+     */
+    public static synchronized long getLastSequence() throws IOException {
+        if (segment == null) {
+            open();
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Compute the chained hash of a record: SHA-256 over the previous hash and the record's fields
+     */
+    static byte[] chainHash(MessageDigest digest, byte[] previousHash, ByteBuffer buffer, int offset) {
+        digest.reset();
+        digest.update(previousHash);
+        digest.update(buffer.slice(offset, HASH_OFFSET));
+        return digest.digest();
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static Path segmentPath(Path directory, int index) {
+        return directory.resolve(String.format("votes-%06d.journal", index));
+    }
+
+    /**
+     * List the segment files in order
+     */
+    static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        for (int index = 0; Files.exists(segmentPath(directory, index)); index++) {
+            segments.add(segmentPath(directory, index));
+        }
+        return segments;
+    }
+
+    static MappedByteBuffer map(Path file, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_ONLY
+                ? new StandardOpenOption[] {StandardOpenOption.READ}
+                : new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE};
+        // The mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            long size = mode == FileChannel.MapMode.READ_ONLY ? Math.min(channel.size(), SEGMENT_SIZE) : SEGMENT_SIZE;
+            return channel.map(mode, 0, size);
+        }
+    }
+
+    private static synchronized void open() throws IOException {
+        if (segment != null) {
+            return;
+        }
+        if (digest == null) {
+            digest = newDigest();
+        }
+        Path directory = getDirectory();
+        Files.createDirectories(directory);
+
+        List<Path> segments = listSegments(directory);
+        segmentIndex = Math.max(segments.size() - 1, 0);
+        MappedByteBuffer buffer = map(segmentPath(directory, segmentIndex), FileChannel.MapMode.READ_WRITE);
+
+        // The chain continues from the last record of the previous segment
+        byte[] hash = new byte[HASH_SIZE];
+        long sequence = (long) segmentIndex * RECORDS_PER_SEGMENT;
+        if (segmentIndex > 0) {
+            MappedByteBuffer previous = map(segmentPath(directory, segmentIndex - 1), FileChannel.MapMode.READ_ONLY);
+            previous.get((RECORDS_PER_SEGMENT - 1) * RECORD_SIZE + HASH_OFFSET, hash);
+        }
+
+        // Find the end of the journal; a record torn by a crash fails its hash and is cleared
+        for (int slot = 0; slot < RECORDS_PER_SEGMENT; slot++) {
+            int offset = slot * RECORD_SIZE;
+            if (buffer.getLong(offset) != sequence + 1) {
+                break;
+            }
+            byte[] expected = chainHash(digest, hash, buffer, offset);
+            byte[] stored = new byte[HASH_SIZE];
+            buffer.get(offset + HASH_OFFSET, stored);
+            if (!Arrays.equals(expected, stored)) {
+                System.err.println("Vote journal: discarding torn record " + (sequence + 1));
+                buffer.put(offset, new byte[RECORD_SIZE]);
+                break;
+            }
+            hash = stored;
+            sequence++;
+        }
+
+        segment = buffer;
+        lastHash = hash;
+        lastSequence = sequence;
+    }
+
+    private static void rollSegment() throws IOException {
+        MappedByteBuffer full = segment;
+        segment = map(segmentPath(getDirectory(), segmentIndex + 1), FileChannel.MapMode.READ_WRITE);
+        segmentIndex++;
+        // Forcing 16 MB takes a while, so leave it to the flush thread
+        if (flusher != null) {
+            flusher.execute(full::force);
+        } else {
+            full.force();
+        }
+    }
+
+    private static void flush() {
+        if (!dirty) {
+            return;
+        }
+        MappedByteBuffer current;
+        synchronized (VoteJournal.class) {
+            dirty = false;
+            current = segment;
+        }
+        if (current != null) {
+            current.force();
+        }
+    }
+}
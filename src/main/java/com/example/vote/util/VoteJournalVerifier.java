@@ -0,0 +1,250 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Replays this station's vote journal and compares it with the votes table.
+ *
+ * Every record stores its own chained hash, so each record can be checked against its
+ * predecessor independently and the journal is verified in parallel slices on the common
+ * fork-join pool. The slices also count the votes per candidate and collect the voters per
+ * election. The votes table is then counted for those voters only, since votes cast at other
+ * stations or before the journal existed are not in this journal.
+ */
+public class VoteJournalVerifier {
+
+    private static final int SLICE_SIZE = 1 << 14;
+
+    /**
+     * A candidate whose journal count differs from the votes stored for the journaled voters
+     */
+    public static class Mismatch {
+        private final int candidateId;
+        private final long journalVotes;
+        private final long storedVotes;
+
+        public Mismatch(int candidateId, long journalVotes, long storedVotes) {
+            this.candidateId = candidateId;
+            this.journalVotes = journalVotes;
+            this.storedVotes = storedVotes;
+        }
+
+        public int getCandidateId() {
+            return candidateId;
+        }
+
+        public long getJournalVotes() {
+            return journalVotes;
+        }
+
+        public long getStoredVotes() {
+            return storedVotes;
+        }
+
+        @Override
+        public String toString() {
+            return "Candidate " + candidateId + ": journal " + journalVotes + ", database " + storedVotes;
+        }
+    }
+
+    /**
+     * Outcome of a verification
+     */
+    public static class Result {
+        private final long recordCount;
+        private final long firstBrokenSequence;
+        private final List<Mismatch> mismatches;
+
+        public Result(long recordCount, long firstBrokenSequence, List<Mismatch> mismatches) {
+            this.recordCount = recordCount;
+            this.firstBrokenSequence = firstBrokenSequence;
+            this.mismatches = mismatches;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * @return The first record whose hash does not match the chain, or -1 if the chain is intact
+         */
+        public long getFirstBrokenSequence() {
+            return firstBrokenSequence;
+        }
+
+        public List<Mismatch> getMismatches() {
+            return mismatches;
+        }
+
+        public boolean isChainIntact() {
+            return firstBrokenSequence < 0;
+        }
+    }
+
+    /**
+     * Verify the journal up to the last record appended when the verification started
+     *
+     * @return The chain status and the candidates whose stored votes disagree with the journal
+     * @throws IOException if the journal could not be read
+     * @throws SQLException if the votes could not be loaded
+     */
+    public static Result verify() throws IOException, SQLException {
+        long recordCount = VoteJournal.getLastSequence();
+        Path directory = VoteJournal.getDirectory();
+
+        List<MappedByteBuffer> segments = new ArrayList<>();
+        for (Path segment : VoteJournal.listSegments(directory)) {
+            segments.add(VoteJournal.map(segment, FileChannel.MapMode.READ_ONLY));
+        }
+        long available = 0;
+        for (MappedByteBuffer segment : segments) {
+            available += segment.capacity() / VoteJournal.RECORD_SIZE;
+        }
+        if (available < recordCount) {
+            throw new IOException("Vote journal segments are missing: " + available + " of " + recordCount + " records found");
+        }
+
+        SliceResult replay = recordCount == 0
+                ? new SliceResult()
+                : ForkJoinPool.commonPool().invoke(new ReplayTask(segments, 1, recordCount + 1));
+
+        Map<Integer, Long> storedVotes = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT user_id, candidate_id FROM votes WHERE election_id = ?",
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            DatabaseConnection.streamResults(stmt);
+            for (Map.Entry<Integer, CompactBitmap> election : replay.voters.entrySet()) {
+                stmt.setInt(1, election.getKey());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (election.getValue().contains(rs.getInt("user_id"))) {
+                            storedVotes.merge(rs.getInt("candidate_id"), 1L, Long::sum);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<Mismatch> mismatches = new ArrayList<>();
+        TreeSet<Integer> candidateIds = new TreeSet<>(storedVotes.keySet());
+        candidateIds.addAll(replay.counts.keySet());
+        for (int candidateId : candidateIds) {
+            long[] journal = replay.counts.get(candidateId);
+            long journalVotes = journal == null ? 0 : journal[0];
+            long stored = storedVotes.getOrDefault(candidateId, 0L);
+            if (journalVotes != stored) {
+                mismatches.add(new Mismatch(candidateId, journalVotes, stored));
+            }
+        }
+
+        return new Result(recordCount, replay.firstBrokenSequence, mismatches);
+    }
+
+    private static final class SliceResult {
+        final Map<Integer, long[]> counts = new HashMap<>();
+        final Map<Integer, CompactBitmap> voters = new HashMap<>();
+        long firstBrokenSequence = -1;
+
+        SliceResult merge(SliceResult other) {
+            for (Map.Entry<Integer, long[]> entry : other.counts.entrySet()) {
+                counts.computeIfAbsent(entry.getKey(), key -> new long[1])[0] += entry.getValue()[0];
+            }
+            for (Map.Entry<Integer, CompactBitmap> entry : other.voters.entrySet()) {
+                CompactBitmap mine = voters.get(entry.getKey());
+                if (mine == null) {
+                    voters.put(entry.getKey(), entry.getValue());
+                    continue;
+                }
+                for (int[] range : entry.getValue().toRanges()) {
+                    mine.addRange(range[0], range[1]);
+                }
+            }
+            if (other.firstBrokenSequence >= 0
+                    && (firstBrokenSequence < 0 || other.firstBrokenSequence < firstBrokenSequence)) {
+                firstBrokenSequence = other.firstBrokenSequence;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Checks and counts the records with sequence numbers in [from, to)
+     */
+    private static final class ReplayTask extends RecursiveTask<SliceResult> {
+        private final List<MappedByteBuffer> segments;
+        private final long from;
+        private final long to;
+
+        ReplayTask(List<MappedByteBuffer> segments, long from, long to) {
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SliceResult compute() {
+            if (to - from > SLICE_SIZE) {
+                long middle = (from + to) >>> 1;
+                ReplayTask left = new ReplayTask(segments, from, middle);
+                left.fork();
+                SliceResult right = new ReplayTask(segments, middle, to).compute();
+                return left.join().merge(right);
+            }
+
+            SliceResult result = new SliceResult();
+            MessageDigest digest = VoteJournal.newDigest();
+            byte[] previousHash = new byte[VoteJournal.HASH_SIZE];
+            if (from > 1) {
+                readHash(from - 1, previousHash);
+            }
+            byte[] storedHash = new byte[VoteJournal.HASH_SIZE];
+
+            for (long sequence = from; sequence < to; sequence++) {
+                // Each task gets its own view so positions and limits are not shared between threads
+                ByteBuffer segment = segmentOf(sequence).duplicate();
+                int offset = offsetOf(sequence);
+                segment.get(offset + VoteJournal.HASH_OFFSET, storedHash);
+                boolean valid = segment.getLong(offset) == sequence
+                        && Arrays.equals(VoteJournal.chainHash(digest, previousHash, segment, offset), storedHash);
+                if (!valid && result.firstBrokenSequence < 0) {
+                    result.firstBrokenSequence = sequence;
+                }
+                result.counts.computeIfAbsent(segment.getInt(offset + 24), key -> new long[1])[0]++;
+                result.voters.computeIfAbsent(segment.getInt(offset + 16), key -> new CompactBitmap())
+                        .add(segment.getInt(offset + 20));
+                System.arraycopy(storedHash, 0, previousHash, 0, storedHash.length);
+            }
+            return result;
+        }
+
+        private void readHash(long sequence, byte[] hash) {
+            segmentOf(sequence).duplicate().get(offsetOf(sequence) + VoteJournal.HASH_OFFSET, hash);
+        }
+
+        private MappedByteBuffer segmentOf(long sequence) {
+            return segments.get((int) ((sequence - 1) / VoteJournal.RECORDS_PER_SEGMENT));
+        }
+
+        private static int offsetOf(long sequence) {
+            return (int) ((sequence - 1) % VoteJournal.RECORDS_PER_SEGMENT) * VoteJournal.RECORD_SIZE;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.vote.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a compressed bitmap of voter IDs per election so "has this user voted" and
+ * turnout questions are answered from memory instead of COUNT queries on the votes table.
+ *
+ * The bitmaps are built from the votes table at startup and updated on every vote recorded
+ * by this application. Votes from other kiosks are picked up by reloading the bitmaps of open
+ * elections every 30 seconds, which also drops votes deleted elsewhere. A bitmap older than
+ * -Dvote.participation.maxAgeSeconds (default 60) is not trusted: lookups query the database
+ * and the bitmap is reloaded in the background. Until the initial load finishes, lookups fall
+ * back to the database as well.
+ */
+public class VoterParticipation {
+
+    private static final long CATCH_UP_SECONDS = 30;
+    private static final long MAX_AGE_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("vote.participation.maxAgeSeconds", 60));
+
+    // Reloads requested by lookups while one was just done are skipped
+    private static final long RELOAD_INTERVAL_MILLIS = 1000;
+
+    private static final Map<Integer, Participation> voters = new ConcurrentHashMap<>();
+    private static final Participation EMPTY = new Participation(Long.MAX_VALUE);
+    private static volatile boolean loaded = false;
+    private static volatile long loadedAtMillis = 0;
+    private static ScheduledExecutorService loader;
+
+    private static final Metrics.Counter HITS = Metrics.counter("vote_cache_participation_hits_total", "Participation lookups answered from the bitmaps");
+    private static final Metrics.Counter MISSES = Metrics.counter("vote_cache_participation_misses_total", "Participation lookups that queried the database");
+
+    static {
+        Metrics.hitRatio("vote_cache_participation_hit_ratio", "Share of participation lookups answered from the bitmaps", HITS, MISSES);
+    }
+
+    /**
+     * The voters of one election. Votes recorded while the bitmap is being reloaded are
+     * remembered and added to the reloaded bitmap, so a reload cannot lose them.
+     */
+    private static class Participation {
+        private CompactBitmap bitmap = new CompactBitmap();
+        private Set<Integer> recordedDuringReload;
+        private volatile long loadedAtMillis;
+
+        Participation(long loadedAtMillis) {
+            this.loadedAtMillis = loadedAtMillis;
+        }
+
+        boolean isFresh() {
+            return System.currentTimeMillis() - loadedAtMillis < MAX_AGE_MILLIS;
+        }
+    }
+
+    /**
+     * Start loading the bitmaps in the background
+     */
+    public static synchronized void start() {
+        if (loader != null) {
+            return;
+        }
+        loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "participation-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        loader.scheduleWithFixedDelay(VoterParticipation::catchUp, 0, CATCH_UP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the background loader
+     */
+    public static synchronized void shutdown() {
+        if (loader != null) {
+            loader.shutdownNow();
+            loader = null;
+        }
+    }
+
+    /**
+     * Check if a user has voted in an election
+     *
+     * @param electionId The election ID
+     * @param userId The user ID
+     * @return true if the user has voted
+     * @throws SQLException if the bitmap is not current and the database lookup fails
+     */
+    public static boolean hasVoted(int electionId, int userId) throws SQLException {
+        Participation participation = current(electionId);
+        if (participation == null) {
+            MISSES.increment();
+            return queryHasVoted(electionId, userId);
+        }
+        HITS.increment();
+        synchronized (participation) {
+            return participation.bitmap.contains(userId);
+        }
+    }
+
+    /**
+     * Count the distinct users that have voted in an election
+     *
+     * @param electionId The election ID
+     * @return Number of voters
+     * @throws SQLException if the bitmap is not current and the database lookup fails
+     */
+    public static int countVoters(int electionId) throws SQLException {
+        Participation participation = current(electionId);
+        if (participation == null) {
+            MISSES.increment();
+            return queryCountVoters(electionId);
+        }
+        HITS.increment();
+        synchronized (participation) {
+            return (int) participation.bitmap.cardinality();
+        }
+    }
+
+    /**
+     * Find the elections a user has voted in among the given ones. Current bitmaps answer
+     * from memory; the remaining elections are looked up with one query.
+     *
+     * @param userId The user ID
+     * @param electionIds The elections to check
+     * @return IDs of the given elections the user has voted in
+     * @throws SQLException if a database lookup was needed and failed
+     */
+    public static Set<Integer> getVotedElections(int userId, Collection<Integer> electionIds) throws SQLException {
+        Set<Integer> voted = new HashSet<>();
+        Set<Integer> unknown = new HashSet<>();
+        for (int electionId : electionIds) {
+            Participation participation = current(electionId);
+            if (participation == null) {
+                unknown.add(electionId);
+                continue;
+            }
+            synchronized (participation) {
+                if (participation.bitmap.contains(userId)) {
+                    voted.add(electionId);
+                }
+            }
+        }
+        HITS.add(electionIds.size() - unknown.size());
+        if (!unknown.isEmpty()) {
+            MISSES.add(unknown.size());
+            for (int electionId : queryVotedElections(userId)) {
+                if (unknown.contains(electionId)) {
+                    voted.add(electionId);
+                }
+            }
+        }
+        return voted;
+    }
+
+    /**
+     * Record that a user has voted in an election. Call after the vote is committed.
+     *
+     * @param electionId The election ID
+     * @param userId The user ID
+     */
+    public static void recordVote(int electionId, int userId) {
+        // A new entry counts as loaded at the full load; only this vote is known to be newer
+        Participation participation = voters.computeIfAbsent(electionId, id -> new Participation(loadedAtMillis));
+        synchronized (participation) {
+            participation.bitmap.add(userId);
+            if (participation.recordedDuringReload != null) {
+                participation.recordedDuringReload.add(userId);
+            }
+        }
+    }
+
+    /**
+     * Forget a deleted user's participation
+     *
+     * @param userId The user ID
+     */
+    public static void removeUser(int userId) {
+        for (Participation participation : voters.values()) {
+            synchronized (participation) {
+                participation.bitmap.remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Forget a deleted election
+     *
+     * @param electionId The election ID
+     */
+    public static void removeElection(int electionId) {
+        voters.remove(electionId);
+    }
+
+    /**
+     * Get an election's participation if it can answer lookups, otherwise have it reloaded
+     *
+     * @return The participation, or null if lookups must query the database
+     */
+    private static Participation current(int electionId) {
+        if (!loaded) {
+            return null;
+        }
+        Participation participation = voters.get(electionId);
+        if (participation != null ? participation.isFresh()
+                : System.currentTimeMillis() - loadedAtMillis < MAX_AGE_MILLIS) {
+            return participation != null ? participation : EMPTY;
+        }
+        ScheduledExecutorService current = loader;
+        if (current != null) {
+            try {
+                current.execute(() -> reload(electionId));
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Load the whole votes table once, then reload the elections that are open
+     */
+    private static void catchUp() {
+        if (!loaded) {
+            loadAll();
+            return;
+        }
+        try {
+            for (ElectionScheduler.OpenElection election : ElectionScheduler.getOpenElections()) {
+                reload(election.getId());
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to refresh voter participation: " + e.getMessage());
+        }
+    }
+
+    private static void loadAll() {
+        String sql = "SELECT election_id, user_id FROM votes";
+        long startedAt = System.currentTimeMillis();
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Stream rows instead of buffering the whole result set
+            DatabaseConnection.streamResults(stmt);
+            Map<Integer, CompactBitmap> loadedVoters = new HashMap<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    loadedVoters.computeIfAbsent(rs.getInt("election_id"), id -> new CompactBitmap())
+                            .add(rs.getInt("user_id"));
+                }
+            }
+            for (Map.Entry<Integer, CompactBitmap> election : loadedVoters.entrySet()) {
+                Participation participation = voters.computeIfAbsent(election.getKey(), id -> new Participation(startedAt));
+                synchronized (participation) {
+                    // Keep votes recorded by this station while the table was read
+                    for (int[] range : participation.bitmap.toRanges()) {
+                        election.getValue().addRange(range[0], range[1]);
+                    }
+                    participation.bitmap = election.getValue();
+                    participation.loadedAtMillis = startedAt;
+                }
+            }
+            for (Participation participation : voters.values()) {
+                // Elections only this station has voted in since the table was read
+                synchronized (participation) {
+                    participation.loadedAtMillis = Math.max(participation.loadedAtMillis, startedAt);
+                }
+            }
+            loadedAtMillis = startedAt;
+            loaded = true;
+
+        } catch (SQLException e) {
+            System.err.println("Failed to load voter participation: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replace an election's bitmap with its voters in the votes table
+     */
+    private static void reload(int electionId) {
+        long startedAt = System.currentTimeMillis();
+        Participation participation = voters.computeIfAbsent(electionId, id -> new Participation(0));
+        synchronized (participation) {
+            if (participation.recordedDuringReload != null || startedAt - participation.loadedAtMillis < RELOAD_INTERVAL_MILLIS) {
+                // Another reload is running or just finished
+                return;
+            }
+            participation.recordedDuringReload = new HashSet<>();
+        }
+
+        // Ballots queued while the database was unreachable are not in the table yet. They are
+        // read first, so a ballot forwarded meanwhile is in one or the other.
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int userId : OfflineVoteQueue.getQueuedVoters(electionId)) {
+            bitmap.add(userId);
+        }
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT user_id FROM votes WHERE election_id = ?")) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    bitmap.add(rs.getInt(1));
+                }
+            }
+            synchronized (participation) {
+                for (int userId : participation.recordedDuringReload) {
+                    bitmap.add(userId);
+                }
+                participation.bitmap = bitmap;
+                participation.loadedAtMillis = startedAt;
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to reload voter participation of election " + electionId + ": " + e.getMessage());
+        } finally {
+            synchronized (participation) {
+                participation.recordedDuringReload = null;
+            }
+        }
+    }
+
+    private static boolean queryHasVoted(int electionId, int userId) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM votes WHERE user_id = ? AND election_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, userId);
+            stmt.setInt(2, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private static Set<Integer> queryVotedElections(int userId) throws SQLException {
+        Set<Integer> elections = new HashSet<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT DISTINCT election_id FROM votes WHERE user_id = ?")) {
+            stmt.setInt(1, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    elections.add(rs.getInt(1));
+                }
+            }
+        }
+        return elections;
+    }
+
+    private static int queryCountVoters(int electionId) throws SQLException {
+        String sql = "SELECT COUNT(DISTINCT user_id) FROM votes WHERE election_id = ?";
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, electionId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
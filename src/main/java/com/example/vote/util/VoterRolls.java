@@ -0,0 +1,425 @@
+package com.example.vote.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-election voter rolls. A roll is stored in the election_voter_rolls table as inclusive
+ * user ID ranges and held in memory as a compressed bitmap, so eligibility checks and
+ * eligible-voter counts cost O(1). Elections without a roll are open to every user with
+ * the 'user' role; that count is cached as well.
+ *
+ * The cache is guarded by the class monitor, but it is never held while the database is
+ * queried, so a reload does not hold up checks answered from the cache.
+ */
+public class VoterRolls {
+
+    // Rolls may be imported from another kiosk, so the cache is reloaded after this long
+    private static final long CACHE_TTL_MILLIS = 5 * 60 * 1000;
+    private static final int BATCH_SIZE = 1000;
+
+    private static Map<Integer, CompactBitmap> rolls;
+    private static long rollsLoadedAt;
+    // Bumped on every change of the cached rolls, so a reload that overlapped one is not cached
+    private static long rollsVersion;
+    private static int userCount = -1;
+    private static long userCountLoadedAt;
+    private static long userCountVersion;
+
+    private static final Metrics.Counter HITS = Metrics.counter("vote_cache_voter_rolls_hits_total", "Voter roll lookups answered from the cache");
+    private static final Metrics.Counter MISSES = Metrics.counter("vote_cache_voter_rolls_misses_total", "Voter roll lookups that reloaded from the database");
+
+    static {
+        Metrics.hitRatio("vote_cache_voter_rolls_hit_ratio", "Share of voter roll lookups answered from the cache", HITS, MISSES);
+    }
+
+    /**
+     * Result of a voter roll import
+     */
+    public static class ImportResult {
+        private final long eligibleCount;
+        private final int rangeCount;
+        private final List<String> rejectedEntries;
+
+        public ImportResult(long eligibleCount, int rangeCount, List<String> rejectedEntries) {
+            this.eligibleCount = eligibleCount;
+            this.rangeCount = rangeCount;
+            this.rejectedEntries = rejectedEntries;
+        }
+
+        public long getEligibleCount() {
+            return eligibleCount;
+        }
+
+        public int getRangeCount() {
+            return rangeCount;
+        }
+
+        public List<String> getRejectedEntries() {
+            return rejectedEntries;
+        }
+    }
+
+    /**
+     * Check if a user may vote in an election
+     *
+     * @param electionId The election ID
+     * @param userId The user ID
+     * @return true if the election has no roll or the user is on it
+     * @throws SQLException if the rolls could not be loaded
+     */
+    public static boolean isEligible(int electionId, int userId) throws SQLException {
+        Map<Integer, CompactBitmap> current = loadRolls();
+        synchronized (VoterRolls.class) {
+            CompactBitmap roll = current.get(electionId);
+            return roll == null || roll.contains(userId);
+        }
+    }
+
+    /**
+     * Check if an election is restricted to a voter roll
+     *
+     * @param electionId The election ID
+     * @return true if the election has a roll
+     * @throws SQLException if the rolls could not be loaded
+     */
+    public static boolean hasRoll(int electionId) throws SQLException {
+        Map<Integer, CompactBitmap> current = loadRolls();
+        synchronized (VoterRolls.class) {
+            return current.containsKey(electionId);
+        }
+    }
+
+    /**
+     * Count the voters eligible for an election
+     *
+     * @param electionId The election ID
+     * @return Size of the roll, or the number of voting users if the election has no roll
+     * @throws SQLException if the count could not be loaded
+     */
+    public static int countEligible(int electionId) throws SQLException {
+        Map<Integer, CompactBitmap> current = loadRolls();
+        synchronized (VoterRolls.class) {
+            CompactBitmap roll = current.get(electionId);
+            if (roll != null) {
+                return (int) roll.cardinality();
+            }
+        }
+        return countVotingUsers();
+    }
+
+    /**
+     * Forget the cached number of voting users after users were added, removed or changed role
+     */
+    public static synchronized void invalidateUserCount() {
+        userCount = -1;
+        userCountVersion++;
+    }
+
+    /**
+     * Reload all rolls on next use after rolls were written outside of importRoll, e.g. by cloning an election
+     */
+    public static synchronized void invalidateRolls() {
+        rolls = null;
+        rollsVersion++;
+    }
+
+    /**
+     * Remove a deleted user from all rolls, splitting the stored ranges that contain the user
+     *
+     * @param userId The user ID
+     * @throws SQLException if the rolls could not be updated
+     */
+    public static void removeUser(int userId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(
+                         "SELECT election_id, first_user_id, last_user_id FROM election_voter_rolls " +
+                         "WHERE first_user_id <= ? AND last_user_id >= ?");
+                 PreparedStatement delete = conn.prepareStatement(
+                         "DELETE FROM election_voter_rolls WHERE election_id = ? AND first_user_id = ?");
+                 PreparedStatement insert = conn.prepareStatement(
+                         "INSERT INTO election_voter_rolls (election_id, first_user_id, last_user_id) VALUES (?, ?, ?)")) {
+
+                select.setInt(1, userId);
+                select.setInt(2, userId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        int electionId = rs.getInt("election_id");
+                        int first = rs.getInt("first_user_id");
+                        int last = rs.getInt("last_user_id");
+                        delete.setInt(1, electionId);
+                        delete.setInt(2, first);
+                        delete.addBatch();
+                        if (first < userId) {
+                            addRangeBatch(insert, electionId, first, userId - 1);
+                        }
+                        if (userId < last) {
+                            addRangeBatch(insert, electionId, userId + 1, last);
+                        }
+                    }
+                }
+                delete.executeBatch();
+                insert.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        synchronized (VoterRolls.class) {
+            if (rolls != null) {
+                for (CompactBitmap roll : rolls.values()) {
+                    roll.remove(userId);
+                }
+            }
+            rollsVersion++;
+        }
+    }
+
+    /**
+     * Replace the voter roll of an election from a text source. Each line holds a user ID,
+     * a range of user IDs such as "1000-1999", or a username. Only users with the 'user' role
+     * are added; a range covers the voting users whose IDs fall in it.
+     *
+     * @param electionId The election ID
+     * @param source The roll to import
+     * @return Summary of the import
+     * @throws SQLException if the roll could not be stored
+     * @throws IOException if the source could not be read or names no voting users
+     */
+    public static ImportResult importRoll(int electionId, Reader source) throws SQLException, IOException {
+        List<String> rejected = new ArrayList<>();
+        CompactBitmap roll = new CompactBitmap();
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            // Resolve usernames and validate IDs against one snapshot of the voting users
+            Map<String, Integer> usersByName = new HashMap<>();
+            CompactBitmap votingUsers = new CompactBitmap();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id, username FROM users WHERE role = 'user'");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    usersByName.put(rs.getString("username"), rs.getInt("id"));
+                    votingUsers.add(rs.getInt("id"));
+                }
+            }
+            int[][] votingRanges = votingUsers.toRanges();
+
+            BufferedReader reader = new BufferedReader(source);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String entry = line.trim();
+                if (entry.isEmpty() || entry.startsWith("#")) {
+                    continue;
+                }
+                if (!addEntry(roll, entry, usersByName, votingUsers, votingRanges)) {
+                    rejected.add(entry);
+                }
+            }
+
+            // An empty roll would be stored as no rows, which opens the election to everyone
+            if (roll.isEmpty()) {
+                throw new IOException("The voter roll names no voting users; the current roll was kept");
+            }
+
+            int[][] ranges = roll.toRanges();
+            storeRanges(conn, electionId, ranges);
+
+            synchronized (VoterRolls.class) {
+                if (rolls != null) {
+                    rolls.put(electionId, roll);
+                }
+                rollsVersion++;
+            }
+            return new ImportResult(roll.cardinality(), ranges.length, rejected);
+        }
+    }
+
+    /**
+     * Remove the voter roll of an election, opening it to all users again
+     *
+     * @param electionId The election ID
+     * @throws SQLException if the roll could not be removed
+     */
+    public static void clearRoll(int electionId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM election_voter_rolls WHERE election_id = ?")) {
+            stmt.setInt(1, electionId);
+            stmt.executeUpdate();
+        }
+        synchronized (VoterRolls.class) {
+            if (rolls != null) {
+                rolls.remove(electionId);
+            }
+            rollsVersion++;
+        }
+    }
+
+    private static boolean addEntry(CompactBitmap roll, String entry, Map<String, Integer> usersByName,
+                                    CompactBitmap votingUsers, int[][] votingRanges) {
+        int dash = entry.indexOf('-', 1);
+        try {
+            if (dash > 0) {
+                int from = Integer.parseInt(entry.substring(0, dash).trim());
+                int to = Integer.parseInt(entry.substring(dash + 1).trim());
+                if (from < 0 || to < from) {
+                    return false;
+                }
+                return addVotingUsers(roll, from, to, votingRanges);
+            }
+            int userId = Integer.parseInt(entry);
+            if (!votingUsers.contains(userId)) {
+                return false;
+            }
+            roll.add(userId);
+            return true;
+        } catch (NumberFormatException e) {
+            Integer userId = usersByName.get(entry);
+            if (userId == null) {
+                return false;
+            }
+            roll.add(userId);
+            return true;
+        }
+    }
+
+    /**
+     * Add the voting users with IDs from one value to another, inclusive
+     *
+     * @return true if the range held any voting users
+     */
+    private static boolean addVotingUsers(CompactBitmap roll, int from, int to, int[][] votingRanges) {
+        // First voting range that ends at or after the start of the entry
+        int low = 0;
+        int high = votingRanges.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (votingRanges[middle][1] < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        boolean added = false;
+        for (int i = low; i < votingRanges.length && votingRanges[i][0] <= to; i++) {
+            roll.addRange(Math.max(from, votingRanges[i][0]), Math.min(to, votingRanges[i][1]));
+            added = true;
+        }
+        return added;
+    }
+
+    private static void addRangeBatch(PreparedStatement insert, int electionId, int first, int last) throws SQLException {
+        insert.setInt(1, electionId);
+        insert.setInt(2, first);
+        insert.setInt(3, last);
+        insert.addBatch();
+    }
+
+    private static void storeRanges(Connection conn, int electionId, int[][] ranges) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM election_voter_rolls WHERE election_id = ?")) {
+                delete.setInt(1, electionId);
+                delete.executeUpdate();
+            }
+
+            try (PreparedStatement insert = conn.prepareStatement(
+                    "INSERT INTO election_voter_rolls (election_id, first_user_id, last_user_id) VALUES (?, ?, ?)")) {
+                int pending = 0;
+                for (int[] range : ranges) {
+                    addRangeBatch(insert, electionId, range[0], range[1]);
+                    if (++pending == BATCH_SIZE) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+            }
+
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Get the cached rolls, reloading them if they expired. Read the returned map and its
+     * bitmaps only while holding the class monitor; imports and removals change them in place.
+     */
+    private static Map<Integer, CompactBitmap> loadRolls() throws SQLException {
+        long now = System.currentTimeMillis();
+        long version;
+        synchronized (VoterRolls.class) {
+            if (rolls != null && now - rollsLoadedAt < CACHE_TTL_MILLIS) {
+                HITS.increment();
+                return rolls;
+            }
+            version = rollsVersion;
+        }
+        MISSES.increment();
+
+        Map<Integer, CompactBitmap> loadedRolls = new HashMap<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT election_id, first_user_id, last_user_id FROM election_voter_rolls");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                loadedRolls.computeIfAbsent(rs.getInt("election_id"), id -> new CompactBitmap())
+                        .addRange(rs.getInt("first_user_id"), rs.getInt("last_user_id"));
+            }
+        }
+
+        synchronized (VoterRolls.class) {
+            // A roll changed while loading may be missing from this copy; load again next time
+            if (rollsVersion == version) {
+                rolls = loadedRolls;
+                rollsLoadedAt = now;
+            }
+        }
+        return loadedRolls;
+    }
+
+    private static int countVotingUsers() throws SQLException {
+        long now = System.currentTimeMillis();
+        long version;
+        synchronized (VoterRolls.class) {
+            if (userCount >= 0 && now - userCountLoadedAt < CACHE_TTL_MILLIS) {
+                return userCount;
+            }
+            version = userCountVersion;
+        }
+
+        int count;
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM users WHERE role = 'user'");
+             ResultSet rs = stmt.executeQuery()) {
+            count = rs.next() ? rs.getInt(1) : 0;
+        }
+
+        synchronized (VoterRolls.class) {
+            if (userCountVersion == version) {
+                userCount = count;
+                userCountLoadedAt = now;
+            }
+        }
+        return count;
+    }
+}
@@ -4,6 +4,9 @@ module com.example.vote {
     requires java.sql;
     requires jbcrypt;
     requires java.mail;
+    requires java.management;
+    requires jdk.httpserver;
+    requires jdk.jfr;
 
     // Open packages to JavaFX FXML
     opens com.example.vote to javafx.fxml;
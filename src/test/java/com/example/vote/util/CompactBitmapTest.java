@@ -0,0 +1,99 @@
+package com.example.vote.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactBitmapTest {
+
+    @Test
+    void addAndRemoveTrackCardinality() {
+        CompactBitmap bitmap = new CompactBitmap();
+        assertTrue(bitmap.isEmpty());
+        assertTrue(bitmap.add(7));
+        assertFalse(bitmap.add(7));
+        assertTrue(bitmap.add(70_000));
+        assertEquals(2, bitmap.cardinality());
+
+        assertTrue(bitmap.remove(7));
+        assertFalse(bitmap.remove(7));
+        assertFalse(bitmap.contains(7));
+        assertTrue(bitmap.contains(70_000));
+        assertEquals(1, bitmap.cardinality());
+    }
+
+    @Test
+    void sparseChunkSwitchesToBitsetWithoutLosingValues() {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int i = 0; i <= 5000; i++) {
+            bitmap.add(i * 3);
+        }
+        assertEquals(5001, bitmap.cardinality());
+        assertTrue(bitmap.contains(15_000));
+        assertFalse(bitmap.contains(15_001));
+    }
+
+    @Test
+    void rangeAcrossChunksCountsOverlapOnce() {
+        CompactBitmap bitmap = new CompactBitmap();
+        bitmap.add(65_530);
+        bitmap.add(200_000);
+        bitmap.addRange(65_500, 131_100);
+
+        // 65_500..131_100 plus 200_000; 65_530 was already inside the range
+        assertEquals(131_100 - 65_500 + 1 + 1, bitmap.cardinality());
+        assertTrue(bitmap.contains(65_535));
+        assertTrue(bitmap.contains(65_536));
+        assertTrue(bitmap.contains(131_100));
+        assertFalse(bitmap.contains(131_101));
+        assertArrayEquals(new int[][] {{65_500, 131_100}, {200_000, 200_000}}, bitmap.toRanges());
+    }
+
+    @Test
+    void emptyOrReversedRangeAddsNothing() {
+        CompactBitmap bitmap = new CompactBitmap();
+        bitmap.addRange(10, 9);
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.toRanges().length);
+        assertThrows(IllegalArgumentException.class, () -> bitmap.addRange(-1, 5));
+    }
+
+    @Test
+    void removingInsideRangeSplitsIt() {
+        CompactBitmap bitmap = new CompactBitmap();
+        bitmap.addRange(1, 10);
+        bitmap.remove(5);
+        assertArrayEquals(new int[][] {{1, 4}, {6, 10}}, bitmap.toRanges());
+        assertEquals(9, bitmap.cardinality());
+    }
+
+    @Test
+    void andCardinalityMatchesBitSet() {
+        Random random = new Random(42);
+        CompactBitmap left = new CompactBitmap();
+        CompactBitmap right = new CompactBitmap();
+        BitSet expectedLeft = new BitSet();
+        BitSet expectedRight = new BitSet();
+        for (int i = 0; i < 20_000; i++) {
+            int a = random.nextInt(300_000);
+            int b = random.nextInt(300_000);
+            left.add(a);
+            expectedLeft.set(a);
+            right.add(b);
+            expectedRight.set(b);
+        }
+        left.addRange(100_000, 140_000);
+        expectedLeft.set(100_000, 140_001);
+
+        expectedLeft.and(expectedRight);
+        assertEquals(expectedLeft.cardinality(), left.andCardinality(right));
+        assertEquals(expectedLeft.cardinality(), right.andCardinality(left));
+    }
+}
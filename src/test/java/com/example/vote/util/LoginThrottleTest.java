@@ -0,0 +1,84 @@
+package com.example.vote.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginThrottleTest {
+
+    // Far from 0, so slot numbers need the high bits of the packed slot
+    private static final long NOW = 1_800_000_000_000L;
+
+    @AfterEach
+    void forgetFailures() {
+        LoginThrottle.setEnabled(false);
+        LoginThrottle.setEnabled(true);
+    }
+
+    @Test
+    void failuresAddUpWithinTheWindow() {
+        LoginThrottle.Window window = new LoginThrottle.Window();
+        for (int slot = 0; slot < LoginThrottle.SLOTS; slot++) {
+            window.add(NOW + slot * LoginThrottle.SLOT_MILLIS);
+            window.add(NOW + slot * LoginThrottle.SLOT_MILLIS);
+        }
+        long lastSlot = NOW + (LoginThrottle.SLOTS - 1) * LoginThrottle.SLOT_MILLIS;
+        assertEquals(2 * LoginThrottle.SLOTS, window.count(lastSlot));
+    }
+
+    @Test
+    void oldSlotsAgeOutAndAreReused() {
+        LoginThrottle.Window window = new LoginThrottle.Window();
+        window.add(NOW);
+        window.add(NOW);
+        window.add(NOW + LoginThrottle.SLOT_MILLIS);
+        assertEquals(3, window.count(NOW + LoginThrottle.SLOT_MILLIS));
+
+        // One window later the first slot's failures have aged out but the second's have not
+        long later = NOW + LoginThrottle.SLOTS * LoginThrottle.SLOT_MILLIS;
+        assertEquals(1, window.count(later));
+
+        // The first slot's index is reused: it starts over instead of adding to the old count
+        window.add(later);
+        assertEquals(2, window.count(later));
+        assertEquals(0, window.count(later + 2 * LoginThrottle.WINDOW_MILLIS));
+    }
+
+    @Test
+    void slotCountSaturatesInsteadOfOverflowingIntoTheSlotNumber() {
+        LoginThrottle.Window window = new LoginThrottle.Window();
+        for (long i = 0; i < LoginThrottle.COUNT_MASK + 10; i++) {
+            window.add(NOW);
+        }
+        assertEquals(LoginThrottle.COUNT_MASK, window.count(NOW));
+        window.add(NOW + LoginThrottle.SLOT_MILLIS);
+        assertEquals(LoginThrottle.COUNT_MASK + 1, window.count(NOW + LoginThrottle.SLOT_MILLIS));
+    }
+
+    @Test
+    void usernameIsBlockedAfterTooManyFailures() {
+        for (int i = 0; i < 5; i++) {
+            assertFalse(LoginThrottle.isBlocked("Alice"));
+            LoginThrottle.recordFailure("alice ");
+        }
+        assertTrue(LoginThrottle.isBlocked("ALICE"));
+        assertFalse(LoginThrottle.isBlocked("bob"), "the station is not blocked by default");
+
+        LoginThrottle.recordSuccess("alice");
+        assertFalse(LoginThrottle.isBlocked("alice"));
+    }
+
+    @Test
+    void disablingForgetsFailures() {
+        for (int i = 0; i < 5; i++) {
+            LoginThrottle.recordFailure("carol");
+        }
+        LoginThrottle.setEnabled(false);
+        assertFalse(LoginThrottle.isBlocked("carol"));
+        LoginThrottle.setEnabled(true);
+        assertFalse(LoginThrottle.isBlocked("carol"));
+    }
+}
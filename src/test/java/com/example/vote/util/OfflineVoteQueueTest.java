@@ -0,0 +1,95 @@
+package com.example.vote.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the queue directory under target/ (vote.offline.dir); the forwarder is never
+ * started, so nothing is sent to the database.
+ */
+class OfflineVoteQueueTest {
+
+    private static final int ELECTION_ID = 900;
+
+    private Path queueFile;
+
+    @BeforeEach
+    void emptyQueue() throws IOException {
+        OfflineVoteQueue.shutdown();
+        Path directory = OfflineVoteQueue.getDirectory();
+        Files.createDirectories(directory);
+        queueFile = directory.resolve("offline-votes.queue");
+        Files.deleteIfExists(queueFile);
+        Files.deleteIfExists(directory.resolve("offline-votes.offset"));
+    }
+
+    @AfterEach
+    void closeQueue() {
+        OfflineVoteQueue.shutdown();
+    }
+
+    @Test
+    void oneQueuedBallotPerVoter() throws IOException {
+        assertTrue(enqueue(101));
+        assertFalse(enqueue(101));
+        assertTrue(OfflineVoteQueue.hasQueuedVote(ELECTION_ID, 101));
+        assertTrue(OfflineVoteQueue.getQueuedVoters(ELECTION_ID).contains(101));
+    }
+
+    @Test
+    void tornTrailingRecordIsDiscardedOnReopen() throws IOException {
+        enqueue(201);
+        enqueue(202);
+        long validEnd = Files.size(queueFile);
+        OfflineVoteQueue.shutdown();
+
+        // A crash in the middle of the next write leaves a header promising more than was written
+        ByteBuffer torn = ByteBuffer.allocate(12);
+        torn.putInt(64).putInt(0).putInt(ELECTION_ID).flip();
+        try (FileChannel channel = FileChannel.open(queueFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(torn);
+        }
+
+        assertTrue(enqueue(203));
+        assertEquals(3, OfflineVoteQueue.getPendingCount());
+        long recordSize = validEnd / 2;
+        assertEquals(validEnd + recordSize, Files.size(queueFile));
+    }
+
+    @Test
+    void recordFailingItsChecksumEndsTheLog() throws IOException {
+        enqueue(301);
+        long firstEnd = Files.size(queueFile);
+        enqueue(302);
+        OfflineVoteQueue.shutdown();
+
+        // Flip a payload byte of the second record; its CRC no longer matches
+        try (FileChannel channel = FileChannel.open(queueFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.allocate(1);
+            long position = firstEnd + 12;
+            channel.read(bytes, position);
+            bytes.put(0, (byte) ~bytes.get(0)).rewind();
+            channel.write(bytes, position);
+        }
+
+        assertTrue(enqueue(303));
+        assertEquals(2, OfflineVoteQueue.getPendingCount());
+        assertEquals(2 * firstEnd, Files.size(queueFile));
+    }
+
+    private static boolean enqueue(int userId) throws IOException {
+        return OfflineVoteQueue.enqueue(ELECTION_ID, userId, new int[] {7}, new String[] {""}, null);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.vote.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankedChoiceTabulatorTest {
+
+    @Test
+    void packRoundTrips() {
+        byte[] packed = RankedBallots.pack(List.of(30, 10, 20));
+        assertEquals(12, packed.length);
+        assertArrayEquals(new int[] {30, 10, 20}, RankedBallots.unpack(packed));
+
+        RankedBallots ballots = new RankedBallots(new int[] {10, 20, 30});
+        ballots.addPacked(packed);
+        RankedBallots same = new RankedBallots(new int[] {10, 20, 30});
+        same.add(30, 10, 20);
+        assertArrayEquals(RankedChoiceTabulator.tabulate(same).getRounds().get(0).getTallies(),
+                RankedChoiceTabulator.tabulate(ballots).getRounds().get(0).getTallies());
+    }
+
+    @Test
+    void packRejectsTooManyRanks() {
+        List<Integer> ranking = Collections.nCopies(RankedBallots.MAX_RANKS + 1, 1);
+        assertThrows(IllegalArgumentException.class, () -> RankedBallots.pack(ranking));
+    }
+
+    @Test
+    void unknownAndRepeatedPreferencesAreSkipped() {
+        RankedBallots ballots = new RankedBallots(new int[] {1, 2});
+        ballots.add(99, 1, 1, 2);
+        ballots.add(99);
+        assertEquals(2, ballots.size());
+        assertTrue(ballots.indexOf(99) < 0);
+
+        RankedChoiceTabulator.Round first = RankedChoiceTabulator.tabulate(ballots).getRounds().get(0);
+        assertArrayEquals(new long[] {1, 0}, first.getTallies());
+        assertEquals(1, first.getExhausted());
+    }
+
+    @Test
+    void majorityWinsInFirstRound() {
+        RankedBallots ballots = new RankedBallots(new int[] {1, 2, 3});
+        ballots.add(1, 2);
+        ballots.add(1, 3);
+        ballots.add(2, 1);
+        RankedChoiceTabulator.Result result = RankedChoiceTabulator.tabulate(ballots);
+        assertEquals(1, result.getWinnerId());
+        assertEquals(1, result.getRounds().size());
+        assertEquals(3, result.getBallotCount());
+    }
+
+    @Test
+    void lastPlaceIsEliminatedAndItsBallotsTransfer() {
+        RankedBallots ballots = new RankedBallots(new int[] {1, 2, 3});
+        ballots.add(1, 3, 2);
+        ballots.add(1, 3);
+        ballots.add(2, 1);
+        ballots.add(3, 2);
+        ballots.add(2, 3);
+
+        RankedChoiceTabulator.Result result = RankedChoiceTabulator.tabulate(ballots);
+        List<RankedChoiceTabulator.Round> rounds = result.getRounds();
+        assertEquals(2, rounds.size());
+        assertArrayEquals(new long[] {2, 2, 1}, rounds.get(0).getTallies());
+        assertEquals(3, rounds.get(0).getEliminatedCandidateId());
+        assertArrayEquals(new long[] {2, 3, 0}, rounds.get(1).getTallies());
+        assertEquals(2, result.getWinnerId());
+    }
+
+    @Test
+    void exhaustedBallotsLeaveTheMajorityThreshold() {
+        RankedBallots ballots = new RankedBallots(new int[] {1, 2, 3});
+        ballots.add(1);
+        ballots.add(1);
+        ballots.add(2);
+        ballots.add(2);
+        ballots.add(3);
+
+        // Round 1: 2-2-1, 3 is out and its ballot exhausts; round 2 is level at 2-2
+        RankedChoiceTabulator.Result result = RankedChoiceTabulator.tabulate(ballots);
+        RankedChoiceTabulator.Round last = result.getRounds().get(result.getRounds().size() - 1);
+        assertEquals(1, last.getExhausted());
+        assertEquals(-1, result.getWinnerId());
+    }
+
+    @Test
+    void lastPlaceTieIsBrokenByEarlierRounds() {
+        RankedBallots ballots = new RankedBallots(new int[] {1, 2, 3, 4});
+        for (int i = 0; i < 5; i++) {
+            ballots.add(1);
+        }
+        for (int i = 0; i < 3; i++) {
+            ballots.add(2);
+        }
+        ballots.add(3, 2);
+        ballots.add(3, 2);
+        ballots.add(4, 3, 2);
+
+        // Round 2 ties 2 and 3 at 3 each; 3 had fewer votes in round 1, so it goes
+        RankedChoiceTabulator.Result result = RankedChoiceTabulator.tabulate(ballots);
+        List<RankedChoiceTabulator.Round> rounds = result.getRounds();
+        assertEquals(4, rounds.get(0).getEliminatedCandidateId());
+        assertArrayEquals(new long[] {5, 3, 3, 0}, rounds.get(1).getTallies());
+        assertEquals(3, rounds.get(1).getEliminatedCandidateId());
+        assertArrayEquals(new long[] {5, 6, 0, 0}, rounds.get(2).getTallies());
+        assertEquals(2, result.getWinnerId());
+    }
+
+    @Test
+    void noBallotsAndNoCandidates() {
+        RankedChoiceTabulator.Result empty = RankedChoiceTabulator.tabulate(new RankedBallots(new int[0]));
+        assertEquals(-1, empty.getWinnerId());
+        assertEquals(1, empty.getRounds().size());
+
+        RankedChoiceTabulator.Result noBallots = RankedChoiceTabulator.tabulate(new RankedBallots(new int[] {5, 6}));
+        assertEquals(-1, noBallots.getWinnerId());
+        assertEquals(0, noBallots.getBallotCount());
+    }
+
+    @Test
+    void largeElectionCountsEveryBallotAcrossSlices() {
+        // More ballots than one fork-join slice, so the parallel merge is exercised
+        RankedBallots ballots = new RankedBallots(new int[] {1, 2, 3});
+        int total = 100_000;
+        for (int i = 0; i < total; i++) {
+            int share = i % 100;
+            if (share < 40) {
+                ballots.add(1, 2);
+            } else if (share < 71) {
+                ballots.add(2, 1);
+            } else {
+                ballots.add(3, 2);
+            }
+        }
+        RankedChoiceTabulator.Result result = RankedChoiceTabulator.tabulate(ballots);
+        assertArrayEquals(new long[] {40_000, 31_000, 29_000}, result.getRounds().get(0).getTallies());
+        assertEquals(2, result.getWinnerId());
+        assertArrayEquals(new long[] {40_000, 60_000, 0}, result.getRounds().get(1).getTallies());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.vote.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    // 10 ms ticks and 8 buckets: one revolution is 80 ms
+    private final TimingWheel wheel = new TimingWheel("timing-wheel-test", 10, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    void stopWheel() {
+        wheel.stop();
+    }
+
+    @Test
+    void taskBeyondOneRevolutionWaitsForItsRound() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong firedAt = new AtomicLong();
+        long deadline = System.currentTimeMillis() + 250;
+        wheel.scheduleAt(() -> {
+            firedAt.set(System.currentTimeMillis());
+            fired.countDown();
+        }, deadline);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(firedAt.get() >= deadline - 10, "fired " + (deadline - firedAt.get()) + " ms early");
+    }
+
+    @Test
+    void pastDeadlineRunsOnNextTick() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.scheduleAt(fired::countDown, System.currentTimeMillis() - 1000);
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws InterruptedException {
+        AtomicBoolean ran = new AtomicBoolean();
+        TimingWheel.Timeout beforeTransfer = wheel.schedule(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+        beforeTransfer.cancel();
+
+        TimingWheel.Timeout inBucket = wheel.schedule(() -> ran.set(true), 150, TimeUnit.MILLISECONDS);
+        Thread.sleep(40);
+        inBucket.cancel();
+
+        // A later task in the same slot proves the wheel went past both deadlines
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 250, TimeUnit.MILLISECONDS);
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertTrue(beforeTransfer.isCancelled());
+        assertFalse(ran.get());
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheWheel() throws InterruptedException {
+        wheel.schedule(() -> {
+            throw new IllegalStateException("expected by test");
+        }, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch fired = new CountDownLatch(1);
+        wheel.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+    }
+}
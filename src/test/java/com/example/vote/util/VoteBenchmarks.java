@@ -0,0 +1,100 @@
+package com.example.vote.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmarks behind the figures quoted for ranked-choice tabulation and the vote journal.
+ * Run with: mvn -Pbenchmark test-compile exec:java
+ *
+ * Tabulation counts -Dbenchmark.ballots (default 10M) three-preference ballots over 12
+ * candidates and reports the median of 5 runs after 2 warm-ups. The journal benchmark times
+ * -Dbenchmark.appends (default 300k) single-candidate appends with the group-commit flusher
+ * running, in a temporary directory unless vote.journal.dir is set.
+ */
+public class VoteBenchmarks {
+
+    private static final int CANDIDATES = 12;
+    private static final int PREFERENCES = 3;
+    private static final int WARMUPS = 2;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        tabulation(Integer.getInteger("benchmark.ballots", 10_000_000));
+        journal(Integer.getInteger("benchmark.appends", 300_000));
+    }
+
+    private static void tabulation(int ballotCount) {
+        int[] candidateIds = new int[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidateIds[i] = i + 1;
+        }
+
+        // Slightly uneven support, so every candidate but the last two is eliminated in turn
+        SplittableRandom random = new SplittableRandom(42);
+        double[] weights = new double[CANDIDATES];
+        double totalWeight = 0;
+        for (int i = 0; i < CANDIDATES; i++) {
+            weights[i] = 1 + i * 0.05;
+            totalWeight += weights[i];
+        }
+        RankedBallots ballots = new RankedBallots(candidateIds);
+        int[] ranking = new int[PREFERENCES];
+        for (int b = 0; b < ballotCount; b++) {
+            for (int p = 0; p < PREFERENCES; p++) {
+                ranking[p] = pick(random, weights, totalWeight);
+            }
+            ballots.add(ranking);
+        }
+
+        RankedChoiceTabulator.Result result = null;
+        long[] millis = new long[RUNS];
+        for (int run = -WARMUPS; run < RUNS; run++) {
+            long start = System.nanoTime();
+            result = RankedChoiceTabulator.tabulate(ballots);
+            if (run >= 0) {
+                millis[run] = (System.nanoTime() - start) / 1_000_000;
+            }
+        }
+        Arrays.sort(millis);
+        System.out.printf("Ranked-choice tabulation: %,d ballots, %d candidates, %d rounds, median %d ms (min %d, max %d)%n",
+                ballotCount, CANDIDATES, result.getRounds().size(), millis[RUNS / 2], millis[0], millis[RUNS - 1]);
+    }
+
+    private static int pick(SplittableRandom random, double[] weights, double totalWeight) {
+        double target = random.nextDouble() * totalWeight;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i + 1;
+            }
+        }
+        return weights.length;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[Math.max(0, (int) Math.ceil(sorted.length * percentile / 100.0) - 1)];
+    }
+
+    private static void journal(int appends) throws IOException {
+        if (System.getProperty("vote.journal.dir") == null) {
+            System.setProperty("vote.journal.dir", Files.createTempDirectory("vote-journal-benchmark").toString());
+        }
+        VoteJournal.start();
+        try {
+            long[] micros = new long[appends];
+            for (int i = 0; i < appends; i++) {
+                long start = System.nanoTime();
+                VoteJournal.append(1, i, 1 + i % CANDIDATES);
+                micros[i] = (System.nanoTime() - start) / 1000;
+            }
+            Arrays.sort(micros);
+            System.out.printf("Vote journal: %,d appends in %s, p50 %d us, p99 %d us, max %d us%n",
+                    appends, VoteJournal.getDirectory(), percentile(micros, 50), percentile(micros, 99), micros[appends - 1]);
+        } finally {
+            VoteJournal.shutdown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.vote.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the embedded database and the journal directory under target/. The journal
+ * is emptied first; the database is shared, so every row this test adds is new.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class VoteJournalTest {
+
+    private static int electionId;
+    private static int candidateA;
+    private static int candidateB;
+    private static int[] users;
+
+    @BeforeAll
+    static void setUp() throws IOException, SQLException {
+        for (Path segment : VoteJournal.listSegments(VoteJournal.getDirectory())) {
+            Files.delete(segment);
+        }
+
+        String suffix = Long.toString(System.nanoTime(), 36);
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            users = new int[4];
+            for (int i = 0; i < users.length; i++) {
+                users[i] = insert(conn, "INSERT INTO users (username, password, role, email) VALUES ('journal" + i + suffix
+                        + "', 'x', 'user', 'journal" + i + suffix + "@example.com')");
+            }
+            electionId = insert(conn, "INSERT INTO elections (title, start_date, end_date, status) " +
+                    "VALUES ('Journal test', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP, 'active')");
+            candidateA = insert(conn, "INSERT INTO candidates (election_id, name) VALUES (" + electionId + ", 'A')");
+            candidateB = insert(conn, "INSERT INTO candidates (election_id, name) VALUES (" + electionId + ", 'B')");
+
+            // users[3] voted at another station, so this journal has no record of it
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO votes (election_id, user_id, candidate_id) VALUES (?, ?, ?)")) {
+                int[][] votes = {{users[0], candidateA}, {users[1], candidateB}, {users[3], candidateA}};
+                for (int[] vote : votes) {
+                    stmt.setInt(1, electionId);
+                    stmt.setInt(2, vote[0]);
+                    stmt.setInt(3, vote[1]);
+                    stmt.executeUpdate();
+                }
+            }
+        }
+    }
+
+    @Test
+    @Order(1)
+    void journalMatchingTheStoredVotesVerifies() throws IOException, SQLException {
+        VoteJournal.append(electionId, users[0], candidateA);
+        VoteJournal.append(electionId, users[1], candidateB);
+        assertEquals(2, VoteJournal.getLastSequence());
+
+        VoteJournalVerifier.Result result = VoteJournalVerifier.verify();
+        assertEquals(2, result.getRecordCount());
+        assertTrue(result.isChainIntact());
+        assertTrue(result.getMismatches().isEmpty(), result.getMismatches().toString());
+    }
+
+    @Test
+    @Order(2)
+    void journaledBallotMissingFromTheDatabaseIsReported() throws IOException, SQLException {
+        VoteJournal.append(electionId, users[2], candidateA);
+
+        VoteJournalVerifier.Result result = VoteJournalVerifier.verify();
+        assertTrue(result.isChainIntact());
+        List<VoteJournalVerifier.Mismatch> mismatches = result.getMismatches();
+        assertEquals(1, mismatches.size());
+        assertEquals(candidateA, mismatches.get(0).getCandidateId());
+        assertEquals(2, mismatches.get(0).getJournalVotes());
+        assertEquals(1, mismatches.get(0).getStoredVotes());
+    }
+
+    @Test
+    @Order(3)
+    void editedRecordBreaksTheChain() throws IOException, SQLException {
+        Path first = VoteJournal.listSegments(VoteJournal.getDirectory()).get(0);
+        MappedByteBuffer segment = VoteJournal.map(first, FileChannel.MapMode.READ_WRITE);
+        // Record 2 now claims candidate A instead of B
+        segment.putInt(VoteJournal.RECORD_SIZE + 24, candidateA);
+        segment.force();
+
+        VoteJournalVerifier.Result result = VoteJournalVerifier.verify();
+        assertFalse(result.isChainIntact());
+        assertEquals(2, result.getFirstBrokenSequence());
+    }
+
+    private static int insert(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+-- Bring an existing vote database up to the current schema.
+-- New installs only need database.sql. Every step checks information_schema first,
+-- so the script can be run again after an interrupted or earlier upgrade:
+--   mysql -u root -p < upgrade.sql
+
+USE vote;
+
+-- Last login time of each user
+SET @step = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'users' AND COLUMN_NAME = 'last_login') = 0,
+               'ALTER TABLE users ADD COLUMN last_login TIMESTAMP NULL',
+               'DO 0');
+PREPARE upgrade_step FROM @step;
+EXECUTE upgrade_step;
+DEALLOCATE PREPARE upgrade_step;
+
+-- Per-election voter rolls
+CREATE TABLE IF NOT EXISTS election_voter_rolls (
+    election_id INT NOT NULL,
+    first_user_id INT NOT NULL,
+    last_user_id INT NOT NULL,
+    PRIMARY KEY (election_id, first_user_id),
+    CONSTRAINT fk_roll_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
+
+-- Ranked-choice elections
+SET @step = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'elections' AND COLUMN_NAME = 'voting_method') = 0,
+               'ALTER TABLE elections ADD COLUMN voting_method ENUM(''single'', ''ranked'') DEFAULT ''single'' AFTER status',
+               'DO 0');
+PREPARE upgrade_step FROM @step;
+EXECUTE upgrade_step;
+DEALLOCATE PREPARE upgrade_step;
+
+SET @step = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'votes' AND COLUMN_NAME = 'ranking') = 0,
+               'ALTER TABLE votes ADD COLUMN ranking VARBINARY(1024) NULL AFTER candidate_id',
+               'DO 0');
+PREPARE upgrade_step FROM @step;
+EXECUTE upgrade_step;
+DEALLOCATE PREPARE upgrade_step;
+
+-- Multi-position elections: one vote row per position. The new unique key is added in the
+-- same statement that drops the old one, since fk_vote_election needs an index on election_id.
+ALTER TABLE elections MODIFY COLUMN voting_method ENUM('single', 'ranked', 'multi_position') DEFAULT 'single';
+
+SET @step = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'votes' AND COLUMN_NAME = 'position') = 0,
+               'ALTER TABLE votes ADD COLUMN position VARCHAR(100) NOT NULL DEFAULT '''' AFTER ranking',
+               'DO 0');
+PREPARE upgrade_step FROM @step;
+EXECUTE upgrade_step;
+DEALLOCATE PREPARE upgrade_step;
+
+SET @step = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'votes' AND INDEX_NAME = 'unique_vote'
+                  AND COLUMN_NAME = 'position') = 0,
+               'ALTER TABLE votes DROP INDEX unique_vote, ADD CONSTRAINT unique_vote UNIQUE (election_id, user_id, position)',
+               'DO 0');
+PREPARE upgrade_step FROM @step;
+EXECUTE upgrade_step;
+DEALLOCATE PREPARE upgrade_step;
+
+-- Final results of completed elections, frozen when they close so finished elections are
+-- shown without counting votes again; one row per candidate in display order
+CREATE TABLE IF NOT EXISTS election_result_snapshots (
+    election_id INT NOT NULL,
+    position_order INT NOT NULL,
+    position_rank INT NOT NULL,
+    -- Group the candidate is ranked in: its position for multi-position elections, '' otherwise
+    position_group VARCHAR(100) NOT NULL,
+    candidate_id INT NOT NULL,
+    candidate_name VARCHAR(100) NOT NULL,
+    candidate_position VARCHAR(100) NOT NULL,
+    votes INT NOT NULL,
+    percentage DECIMAL(5,2) NOT NULL,
+    voters INT NOT NULL,
+    eligible_voters INT NOT NULL,
+    frozen_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (election_id, position_order, position_rank),
+    CONSTRAINT fk_snapshot_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
+
+-- Instant-runoff rounds of completed ranked-choice elections, frozen with their results;
+-- one row per round and candidate, in the tabulator's candidate order
+CREATE TABLE IF NOT EXISTS election_round_snapshots (
+    election_id INT NOT NULL,
+    round_number INT NOT NULL,
+    candidate_order INT NOT NULL,
+    candidate_id INT NOT NULL,
+    votes INT NOT NULL,
+    exhausted INT NOT NULL,
+    -- Candidate eliminated after the round, or -1; the winner is -1 for a tie
+    eliminated_candidate_id INT NOT NULL,
+    winner_id INT NOT NULL,
+    ballots INT NOT NULL,
+    PRIMARY KEY (election_id, round_number, candidate_order),
+    CONSTRAINT fk_round_snapshot_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
+
+-- Ballots per election and minute, counted when the ballot is recorded
+CREATE TABLE IF NOT EXISTS vote_turnout_buckets (
+    election_id INT NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    ballots INT NOT NULL,
+    PRIMARY KEY (election_id, bucket_start),
+    CONSTRAINT fk_turnout_election FOREIGN KEY (election_id) REFERENCES elections(id) ON DELETE CASCADE
+);
@@ -91,6 +91,7 @@ CREATE TABLE `elections` (
   `start_date` datetime NOT NULL,
   `end_date` datetime NOT NULL,
   `status` enum('pending','active','completed','cancelled') DEFAULT 'pending',
+  `voting_method` enum('single','ranked','multi_position') DEFAULT 'single',
   `created_by` int(11) DEFAULT NULL,
   `created_at` timestamp NOT NULL DEFAULT current_timestamp(),
   `updated_at` timestamp NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp()
@@ -166,6 +167,8 @@ CREATE TABLE `votes` (
   `election_id` int(11) NOT NULL,
   `user_id` int(11) NOT NULL,
   `candidate_id` int(11) NOT NULL,
+  `ranking` varbinary(1024) DEFAULT NULL,
+  `position` varchar(100) NOT NULL DEFAULT '',
   `voted_at` timestamp NOT NULL DEFAULT current_timestamp()
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci;
 
@@ -221,7 +224,7 @@ ALTER TABLE `users`
 --
 ALTER TABLE `votes`
   ADD PRIMARY KEY (`id`),
-  ADD UNIQUE KEY `unique_vote` (`election_id`,`user_id`),
+  ADD UNIQUE KEY `unique_vote` (`election_id`,`user_id`,`position`),
   ADD KEY `fk_vote_user` (`user_id`),
   ADD KEY `fk_vote_candidate` (`candidate_id`);
 